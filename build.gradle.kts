@@ -4,6 +4,7 @@ plugins {
     java
     alias(libs.plugins.runPaper)
     alias(libs.plugins.paperweight.userdev)
+    alias(libs.plugins.jmh)
 }
 
 group = "de.nvclas"
@@ -28,6 +29,10 @@ dependencies {
     testRuntimeOnly(libs.junit.platform.launcher)
     testImplementation(libs.junit.jupiter)
     testImplementation(libs.mockbukkit)
+    // The server ships the SQLite driver, but it is not part of the test classpath
+    testRuntimeOnly(libs.sqlite.jdbc)
+
+    jmhImplementation(libs.mockbukkit)
 }
 
 paperweight {
@@ -55,6 +60,14 @@ tasks.test {
     useJUnitPlatform()
 }
 
+jmh {
+    jmhVersion = libs.versions.jmh
+    profilers.add("gc")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
 tasks.processResources {
     val props = mapOf("version" to version)
     inputs.properties(props)
@@ -0,0 +1,120 @@
+package de.nvclas.flats.benchutil;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Utility class generating reproducible flats and lookup locations for benchmarks.
+ */
+@UtilityClass
+public class BenchmarkFlats {
+
+    /**
+     * The number of floors of each tower generated with {@link Layout#TOWERS}.
+     */
+    public static final int TOWER_FLOORS = 32;
+
+    private static final int MIN_Y = -64;
+    private static final int FLOOR_HEIGHT = 5;
+    private static final int MAX_AREA_HEIGHT = 32;
+    private static final long SEED = 0x5EEDL;
+
+    /**
+     * The arrangement of generated flats.
+     */
+    public enum Layout {
+        /**
+         * Single flats spread evenly over the XZ plane with a gap of their own size in between.
+         */
+        SCATTERED,
+        /**
+         * Towers of {@link #TOWER_FLOORS} flats stacked on top of each other, spread over the XZ plane.
+         */
+        TOWERS
+    }
+
+    /**
+     * Creates the given number of flats with a single area each.
+     * <p>
+     * Flats are named {@code flat<index>} and never overlap.
+     *
+     * @param world    The world of the flats. Must not be null.
+     * @param count    The number of flats to create.
+     * @param areaSize The horizontal size of each area in blocks.
+     * @param layout   The arrangement of the flats. Must not be null.
+     * @return A new list of the created flats. Never null.
+     */
+    public static @NotNull List<Flat> createFlats(@NotNull World world, int count, int areaSize,
+                                                  @NotNull Layout layout) {
+        List<Flat> flats = new ArrayList<>(count);
+        int floors = layout == Layout.TOWERS ? TOWER_FLOORS : 1;
+        int columns = (count + floors - 1) / floors;
+        int side = (int) Math.ceil(Math.sqrt(columns));
+        int spacing = areaSize * 2;
+        int height = layout == Layout.TOWERS ? FLOOR_HEIGHT - 1 : Math.min(areaSize, MAX_AREA_HEIGHT);
+
+        for (int i = 0; i < count; i++) {
+            int column = i / floors;
+            int minX = (column % side - side / 2) * spacing;
+            int minZ = (column / side - side / 2) * spacing;
+            int minY = layout == Layout.TOWERS ? MIN_Y + (i % floors) * FLOOR_HEIGHT : 0;
+            String name = "flat" + i;
+            Area area = new Area(new Location(world, minX, minY, minZ),
+                                 new Location(world, minX + areaSize - 1, minY + height - 1, minZ + areaSize - 1),
+                                 name);
+            flats.add(new Flat(name, area));
+        }
+        return flats;
+    }
+
+    /**
+     * Creates random locations inside the given flats.
+     *
+     * @param flats The flats to pick locations in. Must not be null or empty.
+     * @param count The number of locations to create.
+     * @return A new array of locations that are each contained in one of the flats. Never null.
+     */
+    public static @NotNull Location[] createLocationsInside(@NotNull List<Flat> flats, int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Location[] locations = new Location[count];
+        for (int i = 0; i < count; i++) {
+            Area area = flats.get(random.nextInt(flats.size())).getAreas().getFirst();
+            locations[i] = new Location(area.getWorld(),
+                                        random.nextInt(area.getMinX(), area.getMaxX() + 1),
+                                        random.nextInt(area.getMinY(), area.getMaxY() + 1),
+                                        random.nextInt(area.getMinZ(), area.getMaxZ() + 1));
+        }
+        return locations;
+    }
+
+    /**
+     * Creates random locations in the gaps between the given flats.
+     * <p>
+     * The locations lie within the region spanned by the flats, but outside each of them.
+     *
+     * @param flats The flats to pick locations between. Must not be null or empty.
+     * @param count The number of locations to create.
+     * @return A new array of locations that are not contained in any of the flats. Never null.
+     */
+    public static @NotNull Location[] createLocationsOutside(@NotNull List<Flat> flats, int count) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        Location[] locations = new Location[count];
+        for (int i = 0; i < count; i++) {
+            Area area = flats.get(random.nextInt(flats.size())).getAreas().getFirst();
+            int size = area.getMaxX() - area.getMinX() + 1;
+            locations[i] = new Location(area.getWorld(),
+                                        area.getMaxX() + 1 + random.nextInt(size),
+                                        area.getMinY(),
+                                        area.getMinZ() + random.nextInt(size));
+        }
+        return locations;
+    }
+}
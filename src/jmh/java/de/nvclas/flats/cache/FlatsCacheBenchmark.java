@@ -0,0 +1,119 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.benchutil.BenchmarkFlats;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries of {@link FlatsCache} issued by commands and protection listeners, and the cost of
+ * creating and deleting a flat, which derives a new {@link IndexSnapshot} each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FlatsCacheBenchmark {
+
+    private static final int LOOKUP_COUNT = 1 << 14;
+    private static final int OWNER_COUNT = 64;
+    private static final int AREA_SIZE = 16;
+    private static final int CREATED_FLAT_X = 1_000_000;
+    private static final String CREATED_FLAT_NAME = "created";
+
+    @Param({"100", "10000", "1000000"})
+    int flatCount;
+
+    @Param({"SCATTERED", "TOWERS"})
+    BenchmarkFlats.Layout layout;
+
+    private FlatsCache flatsCache;
+    private PlayerMock[] owners;
+    private Location[] locationsInside;
+    private Location[] locationsOutside;
+    private Area createdArea;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        WorldMock world = new WorldMock();
+        world.setName("world");
+        serverMock.addWorld(world);
+        flatsCache = MockBukkit.load(Flats.class).getFlatsCache();
+
+        owners = new PlayerMock[OWNER_COUNT];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = serverMock.addPlayer();
+        }
+
+        List<Flat> flats = BenchmarkFlats.createFlats(world, flatCount, AREA_SIZE, layout);
+        for (int i = 0; i < flats.size(); i++) {
+            Flat flat = flats.get(i);
+            flatsCache.create(flat.getName(), flat.getAreas().getFirst());
+            flatsCache.getExistingFlat(flat.getName()).setOwner(owners[i % owners.length].getUniqueId());
+        }
+        locationsInside = BenchmarkFlats.createLocationsInside(flats, LOOKUP_COUNT);
+        locationsOutside = BenchmarkFlats.createLocationsOutside(flats, LOOKUP_COUNT);
+        createdArea = new Area(new Location(world, CREATED_FLAT_X, 0, 0),
+                               new Location(world, CREATED_FLAT_X + AREA_SIZE - 1, AREA_SIZE - 1, AREA_SIZE - 1),
+                               CREATED_FLAT_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public int getOwnedFlatsCount() {
+        return flatsCache.getOwnedFlatsCount(owners[nextIndex() & (OWNER_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public Flat getFlatByLocationInside() {
+        return flatsCache.getFlatByLocation(locationsInside[nextIndex()]);
+    }
+
+    @Benchmark
+    public Flat getFlatByLocationOutside() {
+        return flatsCache.getFlatByLocation(locationsOutside[nextIndex()]);
+    }
+
+    /**
+     * Creates a flat away from all others and deletes it again, so the number of flats stays the same.
+     */
+    @Benchmark
+    public void createAndDeleteFlat() {
+        flatsCache.create(CREATED_FLAT_NAME, createdArea);
+        flatsCache.delete(CREATED_FLAT_NAME);
+    }
+
+    private int nextIndex() {
+        cursor = (cursor + 1) & (LOOKUP_COUNT - 1);
+        return cursor;
+    }
+}
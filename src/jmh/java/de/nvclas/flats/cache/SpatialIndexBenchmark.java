@@ -0,0 +1,100 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.benchutil.BenchmarkFlats;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures point lookups of every {@link SpatialIndexType} for locations inside and outside of flats, and the
+ * cost of removing a flat from a copy of the index, as done for every change of the flats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SpatialIndexBenchmark {
+
+    private static final int LOOKUP_COUNT = 1 << 14;
+
+    @Param({"100", "10000", "1000000"})
+    int flatCount;
+
+    @Param({"8", "32"})
+    int areaSize;
+
+    @Param({"SCATTERED", "TOWERS"})
+    BenchmarkFlats.Layout layout;
+
+    @Param({"GRID", "GRID_3D", "RTREE"})
+    SpatialIndexType indexType;
+
+    private SpatialIndex spatialIndex;
+    private List<Flat> flats;
+    private Location[] locationsInside;
+    private Location[] locationsOutside;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        WorldMock world = new WorldMock();
+        world.setName("world");
+        serverMock.addWorld(world);
+
+        flats = BenchmarkFlats.createFlats(world, flatCount, areaSize, layout);
+        spatialIndex = indexType.createIndex();
+        for (Flat flat : flats) {
+            spatialIndex.addFlat(flat);
+        }
+        locationsInside = BenchmarkFlats.createLocationsInside(flats, LOOKUP_COUNT);
+        locationsOutside = BenchmarkFlats.createLocationsOutside(flats, LOOKUP_COUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Flat getFlatAtLocationInside() {
+        return spatialIndex.getFlatAtLocation(locationsInside[nextIndex()]);
+    }
+
+    @Benchmark
+    public Flat getFlatAtLocationOutside() {
+        return spatialIndex.getFlatAtLocation(locationsOutside[nextIndex()]);
+    }
+
+    @Benchmark
+    public SpatialIndex copyAndRemoveFlat() {
+        SpatialIndex copy = spatialIndex.copy();
+        copy.removeFlat(flats.get(nextIndex() % flats.size()));
+        return copy;
+    }
+
+    private int nextIndex() {
+        cursor = (cursor + 1) & (LOOKUP_COUNT - 1);
+        return cursor;
+    }
+}
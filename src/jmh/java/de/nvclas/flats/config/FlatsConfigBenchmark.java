@@ -0,0 +1,99 @@
+package de.nvclas.flats.config;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.benchutil.BenchmarkFlats;
+import de.nvclas.flats.volumes.Flat;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving all flats through {@link FlatsConfig}.
+ * <p>
+ * Each invocation reads or writes the whole file, so this benchmark reports the time per
+ * operation in milliseconds and stops at 100000 flats to keep a run reasonably short.
+ * {@code saveFlats} marks every flat as modified first, {@code saveUnchangedFlats} measures
+ * an autosave without any changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FlatsConfigBenchmark {
+
+    private static final int OWNER_COUNT = 64;
+    private static final int AREA_SIZE = 16;
+
+    @Param({"100", "10000", "100000"})
+    int flatCount;
+
+    private FlatsConfig flatsConfig;
+    private Map<String, Flat> flats;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        WorldMock world = new WorldMock();
+        world.setName("world");
+        serverMock.addWorld(world);
+        flatsConfig = (FlatsConfig) MockBukkit.load(Flats.class).getFlatsStorage();
+
+        PlayerMock[] players = new PlayerMock[OWNER_COUNT];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = serverMock.addPlayer();
+        }
+
+        flats = new HashMap<>();
+        int index = 0;
+        for (Flat flat : BenchmarkFlats.createFlats(world, flatCount, AREA_SIZE, BenchmarkFlats.Layout.SCATTERED)) {
+            flat.setOwner(players[index % players.length].getUniqueId());
+            flat.addTrusted(players[(index + 1) % players.length]);
+            flats.put(flat.getName(), flat);
+            index++;
+        }
+        flatsConfig.saveFlats(flats);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public boolean saveFlats() {
+        for (Flat flat : flats.values()) {
+            flat.markDirty();
+        }
+        return flatsConfig.saveFlats(flats);
+    }
+
+    @Benchmark
+    public boolean saveUnchangedFlats() {
+        return flatsConfig.saveFlats(flats);
+    }
+
+    @Benchmark
+    public Map<String, Flat> loadFlats() {
+        return flatsConfig.loadFlats();
+    }
+}
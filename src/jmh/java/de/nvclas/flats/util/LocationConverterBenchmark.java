@@ -0,0 +1,82 @@
+package de.nvclas.flats.util;
+
+import org.bukkit.Location;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of areas between {@link Location}s and their string representation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationConverterBenchmark {
+
+    private static final int SAMPLE_COUNT = 1 << 10;
+    private static final int COORDINATE_RANGE = 1_000_000;
+
+    private String[] locationStrings;
+    private Location[][] locations;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        WorldMock world = new WorldMock();
+        world.setName("world");
+        serverMock.addWorld(world);
+
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        locationStrings = new String[SAMPLE_COUNT];
+        locations = new Location[SAMPLE_COUNT][];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            Location pos1 = new Location(world,
+                                         random.nextInt(-COORDINATE_RANGE, COORDINATE_RANGE),
+                                         random.nextInt(-64, 320),
+                                         random.nextInt(-COORDINATE_RANGE, COORDINATE_RANGE));
+            Location pos2 = pos1.clone().add(random.nextInt(1, 64), random.nextInt(1, 16), random.nextInt(1, 64));
+            locations[i] = new Location[]{pos1, pos2};
+            locationStrings[i] = LocationConverter.getStringFromLocations(pos1, pos2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Location[] getLocationsFromString() {
+        return LocationConverter.getLocationsFromString(locationStrings[nextIndex()]);
+    }
+
+    @Benchmark
+    public String getStringFromLocations() {
+        Location[] pair = locations[nextIndex()];
+        return LocationConverter.getStringFromLocations(pair[0], pair[1]);
+    }
+
+    private int nextIndex() {
+        cursor = (cursor + 1) & (SAMPLE_COUNT - 1);
+        return cursor;
+    }
+}
@@ -1,6 +1,7 @@
 package de.nvclas.flats;
 
 import de.nvclas.flats.cache.FlatsCache;
+import de.nvclas.flats.cache.PlayerNameCache;
 import de.nvclas.flats.commands.flats.FlatsCommand;
 import de.nvclas.flats.config.FlatsConfig;
 import de.nvclas.flats.config.SettingsConfig;
@@ -19,11 +20,21 @@ import de.nvclas.flats.listeners.protection.HangingBreakByEntityListener;
 import de.nvclas.flats.listeners.protection.PlayerInteractListener;
 import de.nvclas.flats.schedulers.AutoSaveScheduler;
 import de.nvclas.flats.schedulers.CommandDelayScheduler;
+import de.nvclas.flats.schedulers.JournalScheduler;
+import de.nvclas.flats.storage.BinaryFlatsStorage;
+import de.nvclas.flats.storage.FlatsStorage;
+import de.nvclas.flats.storage.MutationJournal;
+import de.nvclas.flats.storage.SavePipeline;
+import de.nvclas.flats.storage.SqliteFlatsStorage;
+import de.nvclas.flats.storage.StorageType;
 import de.nvclas.flats.util.I18n;
 import lombok.Getter;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -41,11 +52,26 @@ import java.util.logging.Level;
 public class Flats extends JavaPlugin {
 
     public static final String PREFIX = "§7[§6Flats§7] §r";
+    public static final String FLATS_YAML_FILE = "flats.yml";
+    public static final String FLATS_DATABASE_FILE = "flats.db";
+    public static final String FLATS_SNAPSHOT_FILE = "flats.bin";
+    public static final String FLATS_JOURNAL_FILE = "flats.journal";
+    public static final String FLATS_INDEX_FILE = "flats.index";
 
-    private FlatsConfig flatsConfig;
+    /**
+     * The maximum time in seconds to wait for pending saves when the plugin is disabled.
+     */
+    private static final long SAVE_TIMEOUT_SECONDS = 30;
+
+    private StorageType storageType;
+    private FlatsStorage flatsStorage;
+    private @Nullable MutationJournal mutationJournal;
     private SettingsConfig settingsConfig;
     private FlatsCache flatsCache;
+    private PlayerNameCache playerNameCache;
+    private SavePipeline savePipeline;
     private AutoSaveScheduler autoSaveScheduler;
+    private @Nullable JournalScheduler journalScheduler;
 
     /**
      * Initializes the plugin when it is enabled by the server.
@@ -55,7 +81,7 @@ public class Flats extends JavaPlugin {
      *   <li>Loads configuration files</li>
      *   <li>Sets up internationalization</li>
      *   <li>Initializes the flats cache</li>
-     *   <li>Starts the auto-save scheduler</li>
+     *   <li>Starts the journal scheduler, or the auto-save scheduler if the journal is disabled</li>
      *   <li>Registers commands</li>
      *   <li>Registers event listeners</li>
      * </ol>
@@ -63,8 +89,12 @@ public class Flats extends JavaPlugin {
     @Override
     public void onEnable() {
         //Configs
-        flatsConfig = new FlatsConfig("flats.yml", this);
         settingsConfig = new SettingsConfig("settings.yml", this);
+        storageType = resolveStorageType();
+        flatsStorage = createFlatsStorage(storageType);
+        if (settingsConfig.isJournalEnabled()) {
+            mutationJournal = new MutationJournal(new File(getDataFolder(), FLATS_JOURNAL_FILE), getLogger());
+        }
 
         //Translations
         I18n.initialize(this);
@@ -72,13 +102,20 @@ public class Flats extends JavaPlugin {
 
         //Managers
         flatsCache = new FlatsCache(this);
+        playerNameCache = new PlayerNameCache();
+        savePipeline = new SavePipeline(flatsStorage, getLogger());
 
         //Flats
         flatsCache.loadAll();
 
         //Schedulers
         autoSaveScheduler = new AutoSaveScheduler(this);
-        autoSaveScheduler.start();
+        if (mutationJournal != null) {
+            journalScheduler = new JournalScheduler(this, mutationJournal);
+            journalScheduler.start();
+        } else {
+            autoSaveScheduler.start();
+        }
 
         //Commands
         Objects.requireNonNull(getCommand("flats")).setExecutor(new FlatsCommand(this));
@@ -108,21 +145,68 @@ public class Flats extends JavaPlugin {
      * This method ensures that all plugin resources are properly released and
      * data is saved before the plugin is disabled. It performs the following tasks:
      * <ol>
-     *   <li>Saves all flats data to persistent storage</li>
-     *   <li>Stops the auto-save scheduler</li>
+     *   <li>Stops the auto-save and journal schedulers</li>
      *   <li>Stops all command delay schedulers</li>
+     *   <li>Saves all changed flats and the spatial index, and waits for pending saves to complete</li>
+     *   <li>Compacts and closes the journal</li>
+     *   <li>Closes the flats storage</li>
      * </ol>
      */
     @Override
     public void onDisable() {
-        //Save flats
-        flatsCache.saveAll();
-
         //Stop schedulers
         autoSaveScheduler.stop();
+        if (journalScheduler != null) {
+            journalScheduler.stop();
+        }
         CommandDelayScheduler.stopAll();
 
+        //Save flats
+        if (mutationJournal != null) {
+            MutationJournal journal = mutationJournal;
+            long position = journal.mark();
+            savePipeline.execute(journal::flush);
+            savePipeline.submit(flatsCache.captureChanges(), () -> journal.truncate(position));
+        } else {
+            savePipeline.submit(flatsCache.captureChanges());
+        }
+        flatsCache.saveIndex();
+        if (!savePipeline.shutdown(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            getLogger().log(Level.SEVERE, () -> "Timed out waiting for flats to be saved");
+        }
+        if (mutationJournal != null) {
+            mutationJournal.close();
+        }
+        flatsStorage.close();
+
         getLogger().log(Level.INFO, () -> "All flats saved and schedulers stopped");
     }
 
+    private StorageType resolveStorageType() {
+        String configValue = settingsConfig.getStorage();
+        StorageType type = StorageType.fromConfigValue(configValue);
+        if (type == null) {
+            getLogger().log(Level.WARNING,
+                            () -> "Unknown storage '" + configValue + "', falling back to " +
+                                  StorageType.YAML.getConfigValue());
+            return StorageType.YAML;
+        }
+        return type;
+    }
+
+    /**
+     * Creates a new instance of the {@link FlatsStorage} backend of the specified type.
+     *
+     * @param type The {@link StorageType} of the backend to create. Must not be null.
+     * @return The new {@link FlatsStorage}. Never null.
+     * @throws IllegalStateException If the backend cannot be opened.
+     */
+    public FlatsStorage createFlatsStorage(StorageType type) {
+        return switch (type) {
+            case YAML -> new FlatsConfig(FLATS_YAML_FILE, this);
+            case SQLITE -> new SqliteFlatsStorage(FLATS_DATABASE_FILE, this);
+            case BINARY -> new BinaryFlatsStorage(FLATS_SNAPSHOT_FILE, this);
+        };
+    }
+
 }
@@ -0,0 +1,275 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks which chunks of each world contain at least one {@link Area}.
+ * <p>
+ * Chunks are grouped into regions of 32x32 chunks, each backed by a bitmap of 1024 bits, so
+ * answering whether a chunk contains no flats costs one lookup of the region and a single bit test.
+ * Since most events happen far away from any flat, this check is placed in front of the
+ * {@link SpatialIndex} to skip the lookup of the index entirely.
+ * <p>
+ * A reference count per chunk is kept next to the bitmap of its region, so a bit is only cleared once
+ * the last area overlapping its chunk is removed.
+ * <p>
+ * A {@link #copy()} shares the worlds and regions of this occupancy. They are copied on the first
+ * modification of the copy, so applying a single change only copies the regions the change touches and the
+ * segments of the {@link SegmentedLong2ObjectMap} holding them.
+ */
+public class ChunkOccupancy {
+
+    private static final int CHUNK_SHIFT = 4;
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+    private static final int CHUNKS_PER_REGION = 1 << (REGION_SHIFT * 2);
+    private static final int WORDS_PER_REGION = CHUNKS_PER_REGION / Long.SIZE;
+
+    private final Map<UUID, WorldOccupancy> worlds;
+
+    /**
+     * Identifies the worlds this occupancy created and may modify. Worlds keep this token rather than the
+     * occupancy itself, so a shared world does not keep an outdated occupancy and all of its worlds reachable.
+     */
+    private final Object ownerToken = new Object();
+
+    /**
+     * Constructs a new {@code ChunkOccupancy} in which no chunk is occupied.
+     */
+    public ChunkOccupancy() {
+        worlds = new HashMap<>();
+    }
+
+    private ChunkOccupancy(ChunkOccupancy source) {
+        worlds = new HashMap<>(source.worlds);
+    }
+
+    /**
+     * Creates a copy of this occupancy that can be modified without affecting this occupancy.
+     *
+     * @return A new {@code ChunkOccupancy} with the same chunks occupied. Never null.
+     */
+    public @NotNull ChunkOccupancy copy() {
+        return new ChunkOccupancy(this);
+    }
+
+    /**
+     * Marks all chunks overlapped by the specified {@link Area} as occupied.
+     *
+     * @param area The {@link Area} to add. Must not be null.
+     */
+    public void addArea(@NotNull Area area) {
+        WorldOccupancy occupancy = worlds.get(area.getWorldId());
+        if (occupancy == null || occupancy.owner != ownerToken) {
+            occupancy = occupancy == null ? new WorldOccupancy(ownerToken) : occupancy.copy(ownerToken);
+            worlds.put(area.getWorldId(), occupancy);
+        }
+        forEachChunk(area, occupancy::increment);
+    }
+
+    /**
+     * Releases all chunks overlapped by the specified {@link Area}.
+     * <p>
+     * Chunks that are still overlapped by other areas remain occupied.
+     *
+     * @param area The {@link Area} to remove. Must not be null.
+     */
+    public void removeArea(@NotNull Area area) {
+        WorldOccupancy occupancy = worlds.get(area.getWorldId());
+        if (occupancy == null) {
+            return;
+        }
+        if (occupancy.owner != ownerToken) {
+            occupancy = occupancy.copy(ownerToken);
+            worlds.put(area.getWorldId(), occupancy);
+        }
+        forEachChunk(area, occupancy::decrement);
+        if (occupancy.isEmpty()) {
+            worlds.remove(area.getWorldId());
+        }
+    }
+
+    /**
+     * Checks whether the chunk containing the specified {@link Location} overlaps any area.
+     *
+     * @param location The {@link Location} to check. Must not be null.
+     * @return {@code true} if the chunk contains at least one area; {@code false} otherwise.
+     */
+    public boolean isOccupied(@NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return false;
+        }
+        return isOccupied(world, location.getBlockX() >> CHUNK_SHIFT, location.getBlockZ() >> CHUNK_SHIFT);
+    }
+
+    /**
+     * Checks whether the specified chunk overlaps any area.
+     *
+     * @param world  The {@link World} of the chunk. Must not be null.
+     * @param chunkX The X coordinate of the chunk.
+     * @param chunkZ The Z coordinate of the chunk.
+     * @return {@code true} if the chunk contains at least one area; {@code false} otherwise.
+     */
+    public boolean isOccupied(@NotNull World world, int chunkX, int chunkZ) {
+        WorldOccupancy occupancy = worlds.get(world.getUID());
+        return occupancy != null && occupancy.isOccupied(chunkX, chunkZ);
+    }
+
+    private static void forEachChunk(@NotNull Area area, @NotNull ChunkConsumer consumer) {
+        int minChunkX = area.getMinX() >> CHUNK_SHIFT;
+        int maxChunkX = area.getMaxX() >> CHUNK_SHIFT;
+        int minChunkZ = area.getMinZ() >> CHUNK_SHIFT;
+        int maxChunkZ = area.getMaxZ() >> CHUNK_SHIFT;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                consumer.accept(chunkX, chunkZ);
+            }
+        }
+    }
+
+    private static long packRegion(int chunkX, int chunkZ) {
+        return ((long) (chunkX >> REGION_SHIFT) << 32) | ((chunkZ >> REGION_SHIFT) & 0xFFFFFFFFL);
+    }
+
+    private static int chunkIndex(int chunkX, int chunkZ) {
+        return ((chunkX & REGION_MASK) << REGION_SHIFT) | (chunkZ & REGION_MASK);
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(int chunkX, int chunkZ);
+    }
+
+    /**
+     * The regions of a single world.
+     */
+    private static final class WorldOccupancy {
+
+        /**
+         * The token of the occupancy that created this world and may modify it.
+         */
+        private final Object owner;
+
+        /**
+         * Identifies the regions this world created and may modify, see {@link ChunkOccupancy#ownerToken}.
+         */
+        private final Object ownerToken = new Object();
+        private final SegmentedLong2ObjectMap<Region> regions;
+
+        private WorldOccupancy(Object owner) {
+            this.owner = owner;
+            regions = new SegmentedLong2ObjectMap<>();
+        }
+
+        private WorldOccupancy(Object owner, WorldOccupancy source) {
+            this.owner = owner;
+            regions = source.regions.copy();
+        }
+
+        /**
+         * Copies this world for another occupancy. The regions are shared until they are modified.
+         */
+        private WorldOccupancy copy(Object newOwner) {
+            return new WorldOccupancy(newOwner, this);
+        }
+
+        private boolean isOccupied(int chunkX, int chunkZ) {
+            Region region = regions.get(packRegion(chunkX, chunkZ));
+            return region != null && region.isOccupied(chunkIndex(chunkX, chunkZ));
+        }
+
+        private void increment(int chunkX, int chunkZ) {
+            long regionKey = packRegion(chunkX, chunkZ);
+            Region region = regions.get(regionKey);
+            if (region == null || region.owner != ownerToken) {
+                region = region == null ? new Region(ownerToken) : region.copy(ownerToken);
+                regions.put(regionKey, region);
+            }
+            region.increment(chunkIndex(chunkX, chunkZ));
+        }
+
+        private void decrement(int chunkX, int chunkZ) {
+            long regionKey = packRegion(chunkX, chunkZ);
+            Region region = regions.get(regionKey);
+            if (region == null) {
+                return;
+            }
+            if (region.owner != ownerToken) {
+                region = region.copy(ownerToken);
+                regions.put(regionKey, region);
+            }
+            region.decrement(chunkIndex(chunkX, chunkZ));
+            if (region.isEmpty()) {
+                regions.remove(regionKey);
+            }
+        }
+
+        private boolean isEmpty() {
+            return regions.isEmpty();
+        }
+    }
+
+    /**
+     * The occupancy bitmap and the reference counts of the chunks of a single region.
+     */
+    private static final class Region {
+
+        /**
+         * The token of the world that created this region and may modify it.
+         */
+        private final Object owner;
+        private final long[] bits;
+        private final int[] counts;
+        private int occupiedChunks;
+
+        private Region(Object owner) {
+            this.owner = owner;
+            bits = new long[WORDS_PER_REGION];
+            counts = new int[CHUNKS_PER_REGION];
+        }
+
+        private Region(Object owner, Region source) {
+            this.owner = owner;
+            bits = source.bits.clone();
+            counts = source.counts.clone();
+            occupiedChunks = source.occupiedChunks;
+        }
+
+        private Region copy(Object newOwner) {
+            return new Region(newOwner, this);
+        }
+
+        private boolean isOccupied(int index) {
+            return (bits[index >>> 6] & (1L << index)) != 0;
+        }
+
+        private void increment(int index) {
+            if (counts[index]++ == 0) {
+                bits[index >>> 6] |= 1L << index;
+                occupiedChunks++;
+            }
+        }
+
+        private void decrement(int index) {
+            if (counts[index] == 0) {
+                return;
+            }
+            if (--counts[index] == 0) {
+                bits[index >>> 6] &= ~(1L << index);
+                occupiedChunks--;
+            }
+        }
+
+        private boolean isEmpty() {
+            return occupiedChunks == 0;
+        }
+    }
+}
@@ -1,19 +1,35 @@
 package de.nvclas.flats.cache;
 
 import de.nvclas.flats.Flats;
-import de.nvclas.flats.config.FlatsConfig;
+import de.nvclas.flats.storage.FlatsStorage;
+import de.nvclas.flats.storage.MutationJournal;
+import de.nvclas.flats.storage.SaveBatch;
 import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
 import de.nvclas.flats.volumes.Flat;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 /**
  * Manages a cache of flats and provides methods to interact with them.
@@ -25,37 +41,142 @@ import java.util.Objects;
  *
  * <p>
  * Instances of this class are initialized with a reference to the
- * {@link FlatsConfig}, enabling seamless integration with the underlying storage.
+ * {@link FlatsStorage}, enabling seamless integration with the underlying storage.
+ *
+ * <p>
+ * The cache may be read from any thread, for example by asynchronous saves. All flats and the spatial
+ * structures built from them are published as an immutable {@link IndexSnapshot}, so reads never lock.
+ * Creating, extending, deleting and reloading flats are serialized; each of them derives a new snapshot
+ * off to the side and swaps it in once it is complete.
  */
 public class FlatsCache {
 
-    private final Map<String, Flat> allFlats = new HashMap<>();
-    private final FlatsConfig config;
-    private final SpatialIndex spatialIndex = new SpatialIndex();
+    /**
+     * The radius the search for the nearest flats starts with. It is doubled until enough flats are found.
+     */
+    private static final double INITIAL_SEARCH_RADIUS = 32.0;
+
+    /**
+     * The radius beyond which the search for the nearest flats gives up, matching the maximum world border.
+     */
+    private static final double MAX_SEARCH_RADIUS = 30_000_000.0;
+
+    /**
+     * The number of bits of a block coordinate that address a block within a section of 16x16x16 blocks.
+     */
+    private static final int SECTION_SHIFT = 4;
+
+    private final Flats flatsPlugin;
+    private final FlatsStorage storage;
+
+    /**
+     * The journal all changes of flats are recorded in, or {@code null} if journaling is disabled.
+     */
+    private final @Nullable MutationJournal journal;
+    private final SpatialIndexType spatialIndexType;
+    private final SpatialIndexStore spatialIndexStore;
+    private final LocalityCache localityCache = new LocalityCache();
+    private volatile PlayerFlatsIndex playerFlatsIndex = new PlayerFlatsIndex();
+
+    /**
+     * The current snapshot of all flats. Its generation is advanced whenever flats or their areas change,
+     * invalidating the areas remembered by the {@link LocalityCache}.
+     */
+    private volatile IndexSnapshot snapshot;
+
+    /**
+     * The names of the flats deleted since the changes were last captured, see {@link #captureChanges()}.
+     */
+    private Set<String> deletedFlats = new HashSet<>();
 
+    /**
+     * Creates an empty cache. The flats are loaded by {@link #loadAll()}.
+     *
+     * @param flatsPlugin The plugin instance providing the storage and settings. Must not be null.
+     */
     public FlatsCache(Flats flatsPlugin) {
-        this.config = flatsPlugin.getFlatsConfig();
-        loadAll();
+        this.flatsPlugin = flatsPlugin;
+        this.storage = flatsPlugin.getFlatsStorage();
+        this.journal = flatsPlugin.getMutationJournal();
+        this.spatialIndexType = resolveSpatialIndexType(flatsPlugin);
+        this.spatialIndexStore = new SpatialIndexStore(new File(flatsPlugin.getDataFolder(), Flats.FLATS_INDEX_FILE),
+                                                       flatsPlugin.getLogger());
+        this.snapshot = IndexSnapshot.build(0, Map.of(), spatialIndexType);
     }
 
     /**
      * Loads all flats into the cache by clearing the current data and reloading it from the configuration.
      * <p>
      * This method ensures that the cached flat data is synchronized with the data stored in the configuration source.
-     * It also rebuilds the spatial index for efficient location-based queries.
+     * It also rebuilds the spatial index and the chunk occupancy for efficient location-based queries.
+     * The previously loaded flats stay visible to readers until the reloaded flats are completely indexed.
+     * <p>
+     * If journaling is enabled, the changes recorded in the {@link MutationJournal} are replayed on top of
+     * the flats loaded from storage, and all changes of the loaded flats are recorded from then on.
+     * <p>
+     * The spatial index is restored from the {@link SpatialIndexStore} if it was persisted for exactly
+     * the loaded flats. Otherwise, it is built from scratch and persisted again, see {@link #saveIndex()}.
+     * The duration of loading the flats, replaying the journal and restoring or building the index is logged.
      */
-    public void loadAll() {
-        allFlats.clear();
-        spatialIndex.clear();
-
-        Map<String, Flat> loadedFlats = config.loadFlats();
-        allFlats.putAll(loadedFlats);
-
+    public synchronized void loadAll() {
+        long start = System.nanoTime();
+        Map<String, Flat> loadedFlats = storage.loadFlats();
+        long loaded = System.nanoTime();
+        deletedFlats = new HashSet<>();
+        if (journal != null) {
+            Set<String> storedFlats = new HashSet<>(loadedFlats.keySet());
+            journal.replay(loadedFlats);
+            storedFlats.removeAll(loadedFlats.keySet());
+            deletedFlats.addAll(storedFlats);
+            for (Flat flat : snapshot.flats().values()) {
+                flat.removeListener(journal);
+            }
+        }
+        PlayerFlatsIndex loadedPlayerFlatsIndex = new PlayerFlatsIndex();
         for (Flat flat : loadedFlats.values()) {
-            spatialIndex.addFlat(flat);
+            loadedPlayerFlatsIndex.addFlat(flat);
+            if (journal != null) {
+                flat.addListener(journal);
+            }
+        }
+        long replayed = System.nanoTime();
+        SpatialIndex restoredIndex = spatialIndexStore.load(loadedFlats, spatialIndexType);
+        IndexSnapshot loadedSnapshot = restoredIndex == null ?
+                IndexSnapshot.build(snapshot.generation() + 1, loadedFlats, spatialIndexType) :
+                IndexSnapshot.withIndex(snapshot.generation() + 1, loadedFlats, restoredIndex);
+        long indexed = System.nanoTime();
+        flatsPlugin.getLogger().log(Level.INFO, () -> "Loaded " + loadedFlats.size() + " flats in " +
+                                                      toMillis(indexed - start) + " ms (storage " +
+                                                      toMillis(loaded - start) + " ms, journal " +
+                                                      toMillis(replayed - loaded) + " ms, " +
+                                                      (restoredIndex == null ? "building" : "restoring") +
+                                                      " index " + toMillis(indexed - replayed) + " ms)");
+        playerFlatsIndex = loadedPlayerFlatsIndex;
+        snapshot = loadedSnapshot;
+        localityCache.clear();
+        if (restoredIndex == null) {
+            saveIndex();
         }
     }
 
+    /**
+     * Persists the spatial index of the current flats next to them, so the next startup can restore it
+     * instead of building it again.
+     * <p>
+     * The areas of all flats are captured together with the index they were indexed by, which is consistent
+     * as both only change while holding the lock of this cache. The index file is written on the I/O thread
+     * of the {@link de.nvclas.flats.storage.SavePipeline}.
+     */
+    public synchronized void saveIndex() {
+        IndexSnapshot current = snapshot;
+        Map<String, List<Area>> areas = new HashMap<>(current.flats().size() * 4 / 3 + 1);
+        for (Flat flat : current.flats().values()) {
+            areas.put(flat.getName(), List.copyOf(flat.getAreas()));
+        }
+        flatsPlugin.getSavePipeline()
+                .execute(() -> spatialIndexStore.save(areas, current.spatialIndex(), spatialIndexType));
+    }
+
     /**
      * Saves all flats managed by this cache to the underlying configuration.
      *
@@ -64,12 +185,30 @@ public class FlatsCache {
      * allowing changes to be safely stored and restored in future sessions.
      *
      * <p>
-     * Utilizes the associated {@link FlatsConfig} instance to handle the persistence.
+     * Utilizes the associated {@link FlatsStorage} instance to handle the persistence. Only flats modified
+     * since the last save are written, and nothing is written if no flat changed.
+     * This method may be called from any thread.
      *
      * @throws IllegalStateException if an error occurs during the save process.
      */
     public void saveAll() {
-        config.saveFlats(allFlats);
+        storage.saveBatch(captureChanges());
+    }
+
+    /**
+     * Captures the changes of all flats since the last save and marks the flats as saved.
+     * <p>
+     * Only the modified flats are copied, which makes this cheap enough to call on the main thread.
+     * The names of the flats deleted since the last capture are handed over as well, so storages can
+     * delete them without listing the flats they hold.
+     * The returned batch is meant to be written asynchronously by a {@link de.nvclas.flats.storage.SavePipeline}.
+     *
+     * @return The captured changes. Never {@code null}.
+     */
+    public synchronized @NotNull SaveBatch captureChanges() {
+        SaveBatch batch = SaveBatch.capture(snapshot.flats(), deletedFlats);
+        deletedFlats = new HashSet<>();
+        return batch;
     }
 
     /**
@@ -82,7 +221,7 @@ public class FlatsCache {
      * @return an unmodifiable {@link List} of flat names. Never {@code null}.
      */
     public @NotNull List<String> getAllFlatNames() {
-        return List.copyOf(allFlats.keySet());
+        return List.copyOf(snapshot.flats().keySet());
     }
 
     /**
@@ -95,7 +234,7 @@ public class FlatsCache {
      * @return an unmodifiable {@link List} containing all {@link Flat} instances in the cache.
      */
     public @NotNull List<Flat> getAllFlats() {
-        return List.copyOf(allFlats.values());
+        return List.copyOf(snapshot.flats().values());
     }
 
     /**
@@ -112,7 +251,7 @@ public class FlatsCache {
      */
     public @NotNull List<Area> getAllAreas() {
         List<Area> allAreas = new ArrayList<>();
-        for (Flat flat : allFlats.values()) {
+        for (Flat flat : snapshot.flats().values()) {
             allAreas.addAll(flat.getAreas());
         }
         return allAreas;
@@ -127,10 +266,7 @@ public class FlatsCache {
      * @return The {@link Flat} with the given name, or {@code null} if no such flat exists.
      */
     public @Nullable Flat getFlat(@NotNull String name) {
-        if (!existsFlat(name)) {
-            return null;
-        }
-        return Objects.requireNonNull(allFlats.get(name));
+        return snapshot.flats().get(name);
     }
 
     /**
@@ -151,71 +287,265 @@ public class FlatsCache {
      * <p>
      * The method uses a spatial index to efficiently find the flat that contains the location.
      * This provides significant performance improvements over checking all flats, especially
-     * when there are many flats in the system.
+     * when there are many flats in the system. Locations in chunks without any flat are rejected
+     * by the {@link ChunkOccupancy} before the index is consulted.
      *
      * @param location the {@link Location} to find a flat for. Must not be {@code null}.
      * @return the {@link Flat} containing the specified location, or {@code null} if no flat contains the location.
      */
     public @Nullable Flat getFlatByLocation(@NotNull Location location) {
-        return spatialIndex.getFlatAtLocation(location);
+        IndexedArea indexedArea = snapshot.findArea(location);
+        return indexedArea == null ? null : indexedArea.flat();
     }
 
     /**
-     * Retrieves the number of flats owned by the specified player.
+     * Retrieves the {@link Flat} that contains the provided {@link Location} on behalf of an {@link Entity}.
      * <p>
-     * Ownership is determined by checking if the given player is marked as
-     * the owner of any flats in the cache.
+     * The area the entity was last resolved to is checked first, so repeated lookups of an entity
+     * staying inside the same area do not consult the spatial index at all. Use this for events
+     * caused by players, which tend to stay inside the same flat.
+     *
+     * @param entity   the {@link Entity} the lookup is performed for. Must not be {@code null}.
+     * @param location the {@link Location} to find a flat for. Must not be {@code null}.
+     * @return the {@link Flat} containing the specified location, or {@code null} if no flat contains the location.
+     */
+    public @Nullable Flat getFlatByLocation(@NotNull Entity entity, @NotNull Location location) {
+        IndexSnapshot current = snapshot;
+        IndexedArea indexedArea = localityCache.get(entity, location, current.generation());
+        if (indexedArea != null) {
+            return indexedArea.flat();
+        }
+        indexedArea = current.findArea(location);
+        if (indexedArea == null) {
+            return null;
+        }
+        localityCache.put(entity, indexedArea, current.generation());
+        return indexedArea.flat();
+    }
+
+    /**
+     * Retrieves the {@link Area} that contains the provided {@link Location}.
      * <p>
-     * This implementation uses direct iteration for better performance compared to stream operations.
+     * Like {@link #getFlatByLocation(Location)}, this uses the spatial index and only tests
+     * the areas near the location.
+     *
+     * @param location the {@link Location} to find an area for. Must not be {@code null}.
+     * @return the {@link Area} containing the specified location, or {@code null} if no area contains the location.
+     */
+    public @Nullable Area getAreaByLocation(@NotNull Location location) {
+        IndexedArea indexedArea = snapshot.findArea(location);
+        return indexedArea == null ? null : indexedArea.area();
+    }
+
+    /**
+     * Retrieves all {@link Area}s of the given {@link World} that share at least one block with the given box.
+     * <p>
+     * Only areas near the box are considered, so the cost scales with the number of nearby areas
+     * instead of with the total number of flats.
+     *
+     * @param world the {@link World} to search in. Must not be {@code null}.
+     * @param box   the {@link BlockBox} to search. Must not be {@code null}.
+     * @return a new {@link List} of the intersecting areas. Never {@code null}.
+     */
+    public @NotNull List<Area> getAreasIntersecting(@NotNull World world, @NotNull BlockBox box) {
+        return snapshot.spatialIndex().getAreasIntersecting(world, box);
+    }
+
+    /**
+     * Retrieves all {@link Flat}s with at least one {@link Area} sharing a block with the given box.
+     *
+     * @param world the {@link World} to search in. Must not be {@code null}.
+     * @param box   the {@link BlockBox} to search. Must not be {@code null}.
+     * @return a new {@link List} of the intersecting flats without duplicates. Never {@code null}.
+     */
+    public @NotNull List<Flat> getFlatsIntersecting(@NotNull World world, @NotNull BlockBox box) {
+        return toFlats(snapshot.spatialIndex().getEntriesIntersecting(world, box));
+    }
+
+    /**
+     * Retrieves all {@link Area}s whose closest block lies within the given distance of a {@link Location}.
+     *
+     * @param location the center of the search. Must not be {@code null}.
+     * @param radius   the maximum distance in blocks.
+     * @return a new {@link List} of the areas within the radius. Never {@code null}.
+     */
+    public @NotNull List<Area> getAreasWithinRadius(@NotNull Location location, double radius) {
+        return snapshot.spatialIndex().getAreasWithinRadius(location, radius);
+    }
+
+    /**
+     * Resolves the {@link Flat}s a collection of blocks of a single {@link World} belong to.
+     * <p>
+     * This is meant for events affecting many blocks at once, such as explosions or pistons.
+     * The bounding box of all blocks is queried first, so blocks nowhere near a flat cost
+     * a single index query. Otherwise the candidate areas are narrowed down once per
+     * section of 16x16x16 blocks, and each block is only tested against the areas of its section.
+     *
+     * @param world  the {@link World} all blocks are located in. Must not be {@code null}.
+     * @param blocks the blocks to resolve. Must not be {@code null}.
+     * @return a new {@link Map} from each block located in a flat to that flat. Blocks outside
+     * any flat are not contained. Never {@code null}.
+     */
+    public @NotNull Map<Block, Flat> getFlatsByBlocks(@NotNull World world, @NotNull Collection<Block> blocks) {
+        Map<Block, Flat> flatsByBlock = new HashMap<>();
+        if (blocks.isEmpty()) {
+            return flatsByBlock;
+        }
+
+        List<IndexedArea> candidates = snapshot.spatialIndex().getEntriesIntersecting(world, getBoundingBox(blocks));
+        if (candidates.isEmpty()) {
+            return flatsByBlock;
+        }
+
+        Long2ObjectMap<List<IndexedArea>> sectionCandidates = new Long2ObjectOpenHashMap<>();
+        for (Block block : blocks) {
+            int x = block.getX();
+            int y = block.getY();
+            int z = block.getZ();
+            List<IndexedArea> entries = sectionCandidates.computeIfAbsent(packSection(x, y, z),
+                                                                          k -> filterBySection(candidates, x, y, z));
+            for (IndexedArea entry : entries) {
+                if (entry.area().contains(x, y, z)) {
+                    flatsByBlock.put(block, entry.flat());
+                    break;
+                }
+            }
+        }
+        return flatsByBlock;
+    }
+
+    /**
+     * Retrieves up to {@code count} {@link Flat}s of the location's world, ordered by their distance to the
+     * given {@link Location}.
+     * <p>
+     * The distance of a flat is the distance to its closest {@link Area}. The search radius starts small
+     * and is doubled until enough flats are found, so usually only the surroundings of the location are queried.
+     *
+     * @param location the location to measure from. Must not be {@code null}.
+     * @param count    the maximum number of flats to return.
+     * @return a new {@link List} of the nearest flats, closest first. Never {@code null}.
+     */
+    public @NotNull List<Flat> getNearestFlats(@NotNull Location location, int count) {
+        IndexSnapshot current = snapshot;
+        int flatCount = current.flats().size();
+        if (count <= 0 || flatCount == 0) {
+            return new ArrayList<>();
+        }
+        Map<Flat, Double> distances = new HashMap<>();
+        double radius = INITIAL_SEARCH_RADIUS;
+        while (true) {
+            distances.clear();
+            for (IndexedArea entry : current.spatialIndex().getEntriesWithinRadius(location, radius)) {
+                distances.merge(entry.flat(), entry.area().distanceSquared(location), Math::min);
+            }
+            if (distances.size() >= count || distances.size() == flatCount || radius >= MAX_SEARCH_RADIUS) {
+                break;
+            }
+            radius *= 2;
+        }
+        List<Flat> nearestFlats = new ArrayList<>(distances.keySet());
+        nearestFlats.sort(Comparator.comparingDouble(distances::get));
+        return nearestFlats.size() > count ? new ArrayList<>(nearestFlats.subList(0, count)) : nearestFlats;
+    }
+
+    /**
+     * Retrieves the number of flats owned by the specified player.
+     * <p>
+     * The count is read from the maintained owner index and does not depend on the total number of flats.
      *
      * @param player The {@link OfflinePlayer} whose owned flats are to be counted. Must not be {@code null}.
      * @return The number of flats owned by the specified player.
      */
     public int getOwnedFlatsCount(@NotNull OfflinePlayer player) {
-        int count = 0;
-        for (Flat flat : allFlats.values()) {
-            if (flat.isOwner(player)) {
-                count++;
-            }
-        }
-        return count;
+        return playerFlatsIndex.getOwnedFlatsCount(player.getUniqueId());
+    }
+
+    /**
+     * Retrieves the flats owned by the specified player.
+     *
+     * @param player The {@link OfflinePlayer} whose owned flats are to be retrieved. Must not be {@code null}.
+     * @return A new {@link List} of the owned flats in the order they were claimed. Never {@code null}.
+     */
+    public @NotNull List<Flat> getOwnedFlats(@NotNull OfflinePlayer player) {
+        return playerFlatsIndex.getOwnedFlats(player.getUniqueId());
+    }
+
+    /**
+     * Retrieves the flats the specified player is trusted in.
+     *
+     * @param player The {@link OfflinePlayer} whose trusted flats are to be retrieved. Must not be {@code null}.
+     * @return A new {@link List} of the flats the player is trusted in. Never {@code null}.
+     */
+    public @NotNull List<Flat> getTrustedFlats(@NotNull OfflinePlayer player) {
+        return playerFlatsIndex.getTrustedFlats(player.getUniqueId());
     }
 
     /**
      * Creates a new flat with the specified name and area.
      *
      * <p>
-     * The created flat is stored in the internal cache and added to the spatial index.
+     * The created flat is stored in the internal cache and a new snapshot including it is published.
      * If a flat with the same name already exists, an exception is thrown.
      *
      * @param name the name of the flat to be created, must not be null
      * @param area the area of the flat to be created, must not be null
      * @throws IllegalStateException if a flat with the specified name already exists
      */
-    public void create(@NotNull String name, @NotNull Area area) throws IllegalStateException {
+    public synchronized void create(@NotNull String name, @NotNull Area area) throws IllegalStateException {
         if (existsFlat(name)) {
             throw new IllegalStateException("A flat with this name already exists.");
         }
         Flat newFlat = new Flat(name, area);
-        allFlats.put(name, newFlat);
-        spatialIndex.addFlat(newFlat);
+        playerFlatsIndex.addFlat(newFlat);
+        if (journal != null) {
+            journal.recordCreated(name, area);
+            newFlat.addListener(journal);
+        }
+        snapshot = snapshot.withFlat(newFlat);
+    }
+
+    /**
+     * Adds an area to the existing flat with the specified name.
+     *
+     * <p>
+     * The area is added to the flat and a new snapshot including it is published, so it is
+     * considered by location-based queries from then on. The flat is shared with the previous snapshot,
+     * so readers of that snapshot already see the area in {@link Flat#getAreas()} while their index does not
+     * contain it yet.
+     *
+     * @param name the name of the flat to extend, must not be null
+     * @param area the area to add to the flat, must not be null
+     * @throws IllegalStateException if no flat with the specified name exists
+     */
+    public synchronized void addArea(@NotNull String name, @NotNull Area area) throws IllegalStateException {
+        Flat flat = getFlat(name);
+        if (flat == null) {
+            throw new IllegalStateException("No flat exists with the given name: " + name);
+        }
+        flat.addArea(area);
+        snapshot = snapshot.withArea(flat, area);
     }
 
     /**
      * Deletes the specified flat by its name.
      *
-     * <p>Removes the flat from the underlying cache and spatial index if it exists.
+     * <p>Removes the flat from the underlying cache and publishes a new snapshot without it.
      *
      * @param name the name of the flat to delete; must not be {@code null}.
      * @throws IllegalStateException if no flat with the specified name exists.
      */
-    public void delete(@NotNull String name) throws IllegalStateException {
-        if (!existsFlat(name)) {
+    public synchronized void delete(@NotNull String name) throws IllegalStateException {
+        Flat flat = getFlat(name);
+        if (flat == null) {
             throw new IllegalStateException("No flat exists with the given name: " + name);
         }
-        Flat flat = allFlats.get(name);
-        spatialIndex.removeFlat(flat);
-        allFlats.remove(name);
+        playerFlatsIndex.removeFlat(flat);
+        if (journal != null) {
+            flat.removeListener(journal);
+            journal.recordDeleted(name);
+        }
+        deletedFlats.add(name);
+        snapshot = snapshot.withoutFlat(flat);
     }
 
     /**
@@ -225,7 +555,73 @@ public class FlatsCache {
      * @return {@code true} if a flat with the given name exists, {@code false} otherwise.
      */
     public boolean existsFlat(@NotNull String name) {
-        return allFlats.containsKey(name);
+        return snapshot.flats().containsKey(name);
+    }
+
+    private static @NotNull BlockBox getBoundingBox(@NotNull Collection<Block> blocks) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (Block block : blocks) {
+            minX = Math.min(minX, block.getX());
+            minY = Math.min(minY, block.getY());
+            minZ = Math.min(minZ, block.getZ());
+            maxX = Math.max(maxX, block.getX());
+            maxY = Math.max(maxY, block.getY());
+            maxZ = Math.max(maxZ, block.getZ());
+        }
+        return new BlockBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    private static @NotNull List<IndexedArea> filterBySection(@NotNull List<IndexedArea> candidates,
+                                                              int x, int y, int z) {
+        int minX = x >> SECTION_SHIFT << SECTION_SHIFT;
+        int minY = y >> SECTION_SHIFT << SECTION_SHIFT;
+        int minZ = z >> SECTION_SHIFT << SECTION_SHIFT;
+        int size = (1 << SECTION_SHIFT) - 1;
+        BlockBox section = new BlockBox(minX, minY, minZ, minX + size, minY + size, minZ + size);
+        List<IndexedArea> entries = new ArrayList<>();
+        for (IndexedArea candidate : candidates) {
+            if (candidate.area().intersects(section)) {
+                entries.add(candidate);
+            }
+        }
+        return entries;
+    }
+
+    private static long packSection(int x, int y, int z) {
+        long sectionX = (x >> SECTION_SHIFT) & 0x3FFFFFL;
+        long sectionZ = (z >> SECTION_SHIFT) & 0x3FFFFFL;
+        long sectionY = (y >> SECTION_SHIFT) & 0x3FFL;
+        return sectionX << 32 | sectionZ << 10 | sectionY;
+    }
+
+    private static @NotNull List<Flat> toFlats(@NotNull List<IndexedArea> entries) {
+        LinkedHashSet<Flat> flats = new LinkedHashSet<>();
+        for (IndexedArea entry : entries) {
+            flats.add(entry.flat());
+        }
+        return new ArrayList<>(flats);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static @NotNull SpatialIndexType resolveSpatialIndexType(Flats flatsPlugin) {
+        String configValue = flatsPlugin.getSettingsConfig().getSpatialIndex();
+        SpatialIndexType type = SpatialIndexType.fromConfigValue(configValue);
+        if (type == null) {
+            flatsPlugin.getLogger()
+                    .log(Level.WARNING,
+                         () -> "Unknown spatialIndex '" + configValue + "', falling back to " +
+                               SpatialIndexType.GRID_3D.getConfigValue());
+            return SpatialIndexType.GRID_3D;
+        }
+        return type;
     }
 
 }
@@ -0,0 +1,715 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A {@link SpatialIndex} that uses a grid-based mapping system per world to efficiently manage the
+ * association between spatial boundaries and {@link Flat} objects. Grid cells are addressed by their
+ * coordinates packed into a primitive {@code long}, so lookups do not allocate.
+ * <p>
+ * Each cell holds the {@link IndexedArea}s overlapping it rather than whole flats, so a lookup only
+ * tests the areas of the queried cell, no matter how many other areas their flats consist of.
+ * <p>
+ * Cells are either columns spanning the whole height of the world ({@link SpatialIndexType#GRID})
+ * or cubes the size of a chunk section ({@link SpatialIndexType#GRID_3D}). The latter keeps lookups
+ * constant for flats that are stacked on top of each other, as each cell only holds the flats of
+ * its own section.
+ * <p>
+ * Every cell is classified when areas are added: a cell lying entirely inside a single area is
+ * answered directly by that area, only cells shared by several areas or covered partially fall back
+ * to testing the bounds of each candidate. Cells without any area are not stored at all.
+ * <p>
+ * A {@link #copy()} shares the grids, cells and memberships of this index. They are held in
+ * {@link SegmentedLong2ObjectMap}s and {@link SegmentedMap}s whose segments, like the cells, are copied on the
+ * first modification of the copy, so a change only copies the segments and cells it touches.
+ */
+public class GridSpatialIndex implements SpatialIndex {
+
+    /**
+     * The size of each grid cell in blocks, expressed as a power of two.
+     * <p>
+     * This value determines the resolution of the spatial grid used by the {@link GridSpatialIndex}
+     * to index and look up flats. A shift of {@code 4} results in cells of 16 blocks, matching
+     * the size of a chunk section. Smaller values result in finer granularity of grid cells,
+     * potentially increasing memory usage but improving query precision.
+     */
+    private static final int GRID_SHIFT = 4;
+
+    private static final int HORIZONTAL_BITS = 27;
+    private static final int VERTICAL_BITS = 10;
+    private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+    private static final long VERTICAL_MASK = (1L << VERTICAL_BITS) - 1;
+
+    /**
+     * A mapping of world UUIDs to the grid of that world.
+     * <p>
+     * Each grid maps packed cell coordinates, as produced by {@link #packCell(int, int, int)}, to
+     * the {@link Cell} holding the {@link IndexedArea}s that intersect with those cells. Keeping one
+     * grid per world ensures that flats of different worlds never share a cell.
+     */
+    private final Map<UUID, SegmentedLong2ObjectMap<Cell>> worldGrids;
+
+    /**
+     * The grids created or copied by this index, which may be modified in place. All other grids are
+     * shared with the index this one was copied from.
+     */
+    private final Set<SegmentedLong2ObjectMap<Cell>> ownedGrids = new ReferenceOpenHashSet<>();
+
+    /**
+     * A mapping of each indexed {@link Flat} to the cells occupied by its areas.
+     * <p>
+     * This reverse membership allows a flat to be removed by touching only its own cells
+     * instead of every cell of the grid. The lists are replaced rather than modified, so they can be shared
+     * with copies of this index.
+     */
+    private final SegmentedMap<Flat, List<AreaCells>> flatCells;
+
+    /**
+     * Whether cells are additionally partitioned along the Y axis.
+     */
+    private final boolean partitionVertically;
+
+    /**
+     * Identifies the cells this index created and may modify. Cells keep this token rather than the index
+     * itself, so a shared cell does not keep an outdated index and all of its grids reachable.
+     */
+    private final Object ownerToken = new Object();
+
+    /**
+     * Constructs a new, empty {@code GridSpatialIndex}.
+     *
+     * @param partitionVertically {@code true} to use cells the size of a chunk section,
+     *                            {@code false} to use cells spanning the whole height of the world.
+     */
+    public GridSpatialIndex(boolean partitionVertically) {
+        this.partitionVertically = partitionVertically;
+        this.worldGrids = new HashMap<>();
+        this.flatCells = SegmentedMap.byIdentity();
+    }
+
+    private GridSpatialIndex(GridSpatialIndex source) {
+        this.partitionVertically = source.partitionVertically;
+        this.worldGrids = new HashMap<>(source.worldGrids);
+        this.flatCells = source.flatCells.copy();
+    }
+
+    /**
+     * Adds the specified {@link Flat} to the spatial index.
+     * <p>
+     * The provided flat and its associated areas are integrated into the grid structure
+     * to enable efficient location-based queries.
+     *
+     * @param flat The {@link Flat} to add. Must not be null.
+     */
+    @Override
+    public void addFlat(@NotNull Flat flat) {
+        for (Area area : flat.getAreas()) {
+            addAreaToGrid(area, flat);
+        }
+    }
+
+    /**
+     * Adds all specified {@link Flat}s to the spatial index at once.
+     * <p>
+     * Instead of looking up the cell of every overlapped cell one at a time, the cells of all areas are
+     * collected per world and sorted by their packed key. Each cell is then created with the exact number
+     * of its entries and inserted into the grid once, which avoids growing cells.
+     *
+     * @param flats The {@link Flat}s to add. Must not be null.
+     */
+    @Override
+    public void addFlats(@NotNull Collection<Flat> flats) {
+        Map<UUID, CellEntries> worldEntries = new HashMap<>();
+        for (Flat flat : flats) {
+            for (Area area : flat.getAreas()) {
+                IndexedArea entry = new IndexedArea(area, flat);
+                CellEntries cellEntries = worldEntries.computeIfAbsent(area.getWorldId(), k -> new CellEntries());
+                long[] cells = forEachCell(area, (cellKey, covers) -> cellEntries.add(cellKey, entry, covers));
+                addMembership(flat, new AreaCells(area.getWorldId(), entry, cells));
+            }
+        }
+        worldEntries.forEach((worldId, cellEntries) -> {
+            int[] order = cellEntries.sortByCell();
+            cellEntries.insertInto(this, getWritableGrid(worldId), order);
+        });
+    }
+
+    /**
+     * Adds a single {@link Area} of an already indexed {@link Flat} to the spatial index.
+     *
+     * @param flat The {@link Flat} the area belongs to. Must not be null.
+     * @param area The {@link Area} to add. Must not be null.
+     */
+    @Override
+    public void addArea(@NotNull Flat flat, @NotNull Area area) {
+        addAreaToGrid(area, flat);
+    }
+
+    /**
+     * Removes the specified {@link Flat} from the spatial index.
+     * <p>
+     * Only the cells recorded for the flat's areas are visited, so the cost of this method
+     * depends on the size of the flat rather than on the size of the index.
+     *
+     * @param flat The {@link Flat} to be removed. Must not be null.
+     */
+    @Override
+    public void removeFlat(@NotNull Flat flat) {
+        List<AreaCells> memberships = flatCells.remove(flat);
+        if (memberships == null) {
+            return;
+        }
+        for (AreaCells membership : memberships) {
+            if (!worldGrids.containsKey(membership.worldId())) {
+                continue;
+            }
+            SegmentedLong2ObjectMap<Cell> grid = getWritableGrid(membership.worldId());
+            for (long cellKey : membership.cells()) {
+                Cell cell = grid.get(cellKey);
+                if (cell != null && cell.contains(membership.entry())) {
+                    cell = getWritableCell(grid, cellKey, 0);
+                    cell.remove(membership.entry());
+                    if (cell.isEmpty()) {
+                        grid.remove(cellKey);
+                    }
+                }
+            }
+            if (grid.isEmpty()) {
+                worldGrids.remove(membership.worldId());
+                ownedGrids.remove(grid);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the grid, effectively clearing the spatial index.
+     * <p>
+     * After invoking this method, the index will be empty, and any previously added
+     * flats will no longer be tracked.
+     */
+    @Override
+    public void clear() {
+        worldGrids.clear();
+        ownedGrids.clear();
+        flatCells.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The grid of each world is copied on its first modification, which only copies its array of segments.
+     * A segment of the grid, a cell and a segment of the memberships are copied on their first modification
+     * as well.
+     */
+    @Override
+    public @NotNull GridSpatialIndex copy() {
+        return new GridSpatialIndex(this);
+    }
+
+    /**
+     * Retrieves the {@link IndexedArea} that contains the specified {@link Location}, if any.
+     * <p>
+     * This method searches the grid cell of the location's world. If the cell lies entirely inside
+     * a single area, that area is returned without any further checks. Otherwise, only the areas
+     * overlapping that cell are evaluated to determine whether the given {@link Location} lies within their bounds.
+     *
+     * @param location The {@link Location} to find the {@link IndexedArea} for. Must not be null.
+     * @return The {@link IndexedArea} that contains the specified {@link Location}, or {@code null} if none is found.
+     */
+    @Override
+    public @Nullable IndexedArea getAreaAtLocation(@NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+        SegmentedLong2ObjectMap<Cell> grid = worldGrids.get(world.getUID());
+        if (grid == null) {
+            return null;
+        }
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        Cell cell = grid.get(packCell(x >> GRID_SHIFT, toGridY(y), z >> GRID_SHIFT));
+        if (cell == null) {
+            return null;
+        }
+        if (cell.covering != null) {
+            return cell.covering;
+        }
+        return cell.find(x, y, z);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the cells overlapping the box are visited. If the box spans more cells than the grid
+     * of the world contains, all cells of the world are scanned instead.
+     */
+    @Override
+    public @NotNull List<IndexedArea> getEntriesIntersecting(@NotNull World world, @NotNull BlockBox box) {
+        List<IndexedArea> entries = new ArrayList<>();
+        SegmentedLong2ObjectMap<Cell> grid = worldGrids.get(world.getUID());
+        if (grid == null) {
+            return entries;
+        }
+
+        int minGridX = box.minX() >> GRID_SHIFT;
+        int maxGridX = box.maxX() >> GRID_SHIFT;
+        int minGridY = toGridY(box.minY());
+        int maxGridY = toGridY(box.maxY());
+        int minGridZ = box.minZ() >> GRID_SHIFT;
+        int maxGridZ = box.maxZ() >> GRID_SHIFT;
+        long cellCount = (maxGridX - minGridX + 1L) * (maxGridY - minGridY + 1L) * (maxGridZ - minGridZ + 1L);
+
+        Set<IndexedArea> visitedEntries = new ReferenceOpenHashSet<>();
+        if (cellCount > grid.size()) {
+            for (Long2ObjectMap.Entry<Cell> cellEntry : grid) {
+                cellEntry.getValue().collectIntersecting(box, visitedEntries, entries);
+            }
+            return entries;
+        }
+
+        for (int gridX = minGridX; gridX <= maxGridX; gridX++) {
+            for (int gridY = minGridY; gridY <= maxGridY; gridY++) {
+                for (int gridZ = minGridZ; gridZ <= maxGridZ; gridZ++) {
+                    Cell cell = grid.get(packCell(gridX, gridY, gridZ));
+                    if (cell != null) {
+                        cell.collectIntersecting(box, visitedEntries, entries);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For each world, every cell is written with its packed key, whether it is covered and the ordinals
+     * of its entries.
+     */
+    @Override
+    public void write(@NotNull DataOutput out, @NotNull Reference2IntMap<Area> ordinals) throws IOException {
+        out.writeInt(worldGrids.size());
+        for (Map.Entry<UUID, SegmentedLong2ObjectMap<Cell>> worldGrid : worldGrids.entrySet()) {
+            out.writeLong(worldGrid.getKey().getMostSignificantBits());
+            out.writeLong(worldGrid.getKey().getLeastSignificantBits());
+            out.writeInt(worldGrid.getValue().size());
+            for (Long2ObjectMap.Entry<Cell> cellEntry : worldGrid.getValue()) {
+                Cell cell = cellEntry.getValue();
+                out.writeLong(cellEntry.getLongKey());
+                out.writeBoolean(cell.covering != null);
+                out.writeInt(cell.size);
+                for (int i = 0; i < cell.size; i++) {
+                    out.writeInt(ordinals.getInt(cell.entries[i].area()));
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cells are inserted as they were written, so no area has to be split into cells or classified again.
+     * The cells of each flat are collected along the way to allow removing flats afterward.
+     */
+    @Override
+    public void restore(@NotNull ByteBuffer in, @NotNull IndexedArea[] entries) {
+        LongArrayList[] entryCells = new LongArrayList[entries.length];
+        UUID[] entryWorlds = new UUID[entries.length];
+        int worldCount = in.getInt();
+        for (int w = 0; w < worldCount; w++) {
+            UUID worldId = new UUID(in.getLong(), in.getLong());
+            int cellCount = in.getInt();
+            SegmentedLong2ObjectMap<Cell> grid = getWritableGrid(worldId);
+            for (int c = 0; c < cellCount; c++) {
+                long cellKey = in.getLong();
+                boolean covered = in.get() != 0;
+                int size = in.getInt();
+                Cell cell = new Cell(ownerToken, size);
+                for (int i = 0; i < size; i++) {
+                    int ordinal = in.getInt();
+                    cell.add(entries[ordinal], covered);
+                    if (entryCells[ordinal] == null) {
+                        entryCells[ordinal] = new LongArrayList();
+                        entryWorlds[ordinal] = worldId;
+                    }
+                    entryCells[ordinal].add(cellKey);
+                }
+                grid.put(cellKey, cell);
+            }
+        }
+        for (int ordinal = 0; ordinal < entries.length; ordinal++) {
+            if (entryCells[ordinal] != null) {
+                IndexedArea entry = entries[ordinal];
+                addMembership(entry.flat(),
+                              new AreaCells(entryWorlds[ordinal], entry, entryCells[ordinal].toLongArray()));
+            }
+        }
+    }
+
+    /**
+     * Adds an {@link Area} of a {@link Flat} to the spatial grid structure.
+     * <p>
+     * Updates the grid of the area's world to associate the area with all grid cells
+     * it intersects, classifies the cells it covers entirely, and records these cells
+     * as membership of the flat.
+     *
+     * @param area the area to be added to the grid, representing a region of the flat
+     * @param flat the flat associated with the area being added
+     */
+    private void addAreaToGrid(Area area, Flat flat) {
+        SegmentedLong2ObjectMap<Cell> grid = getWritableGrid(area.getWorldId());
+        IndexedArea entry = new IndexedArea(area, flat);
+        long[] cells = forEachCell(area, (cellKey, covers) -> getWritableCell(grid, cellKey, 1).add(entry, covers));
+        addMembership(flat, new AreaCells(area.getWorldId(), entry, cells));
+    }
+
+    /**
+     * Retrieves the grid of a world that may be modified by this index, creating it if it does not exist
+     * and copying it if it is shared with another index.
+     *
+     * @param worldId the UUID of the world
+     * @return the grid owned by this index
+     */
+    private SegmentedLong2ObjectMap<Cell> getWritableGrid(UUID worldId) {
+        SegmentedLong2ObjectMap<Cell> grid = worldGrids.get(worldId);
+        if (grid == null || !ownedGrids.contains(grid)) {
+            grid = grid == null ? new SegmentedLong2ObjectMap<>() : grid.copy();
+            worldGrids.put(worldId, grid);
+            ownedGrids.add(grid);
+        }
+        return grid;
+    }
+
+    /**
+     * Retrieves a cell of a writable grid that may be modified by this index, creating it if it does not exist
+     * and copying it if it is shared with another index.
+     *
+     * @param grid     the grid owned by this index
+     * @param cellKey  the packed key of the cell
+     * @param capacity the number of entries that are about to be added to the cell
+     * @return the cell owned by this index
+     */
+    private Cell getWritableCell(SegmentedLong2ObjectMap<Cell> grid, long cellKey, int capacity) {
+        Cell cell = grid.get(cellKey);
+        if (cell == null) {
+            cell = new Cell(ownerToken, capacity);
+            grid.put(cellKey, cell);
+        } else if (cell.owner != ownerToken) {
+            cell = cell.copy(ownerToken, capacity);
+            grid.put(cellKey, cell);
+        }
+        return cell;
+    }
+
+    /**
+     * Records the cells of an area as membership of its flat, replacing the list of memberships.
+     */
+    private void addMembership(Flat flat, AreaCells membership) {
+        List<AreaCells> memberships = flatCells.get(flat);
+        List<AreaCells> updated = new ArrayList<>(memberships == null ? 1 : memberships.size() + 1);
+        if (memberships != null) {
+            updated.addAll(memberships);
+        }
+        updated.add(membership);
+        flatCells.put(flat, updated);
+    }
+
+    /**
+     * Passes every grid cell intersected by the specified {@link Area} to a consumer, together with
+     * whether the area covers the cell entirely.
+     *
+     * @param area     the area whose cells to visit
+     * @param consumer the consumer receiving the packed key of each cell
+     * @return the packed keys of all visited cells
+     */
+    private long[] forEachCell(Area area, CellConsumer consumer) {
+        int minGridX = area.getMinX() >> GRID_SHIFT;
+        int maxGridX = area.getMaxX() >> GRID_SHIFT;
+        int minGridY = toGridY(area.getMinY());
+        int maxGridY = toGridY(area.getMaxY());
+        int minGridZ = area.getMinZ() >> GRID_SHIFT;
+        int maxGridZ = area.getMaxZ() >> GRID_SHIFT;
+
+        LongList cells = new LongArrayList();
+        for (int gridX = minGridX; gridX <= maxGridX; gridX++) {
+            for (int gridY = minGridY; gridY <= maxGridY; gridY++) {
+                for (int gridZ = minGridZ; gridZ <= maxGridZ; gridZ++) {
+                    long cellKey = packCell(gridX, gridY, gridZ);
+                    consumer.accept(cellKey, coversCell(area, gridX, gridY, gridZ));
+                    cells.add(cellKey);
+                }
+            }
+        }
+        return cells.toLongArray();
+    }
+
+    /**
+     * Checks whether the specified {@link Area} contains every block of a grid cell.
+     * <p>
+     * Cells spanning the whole height of the world are never considered covered.
+     *
+     * @param area  the area to check
+     * @param gridX the X coordinate of the grid cell
+     * @param gridY the Y coordinate of the grid cell
+     * @param gridZ the Z coordinate of the grid cell
+     * @return {@code true} if the cell lies entirely inside the area; {@code false} otherwise
+     */
+    private boolean coversCell(Area area, int gridX, int gridY, int gridZ) {
+        if (!partitionVertically) {
+            return false;
+        }
+        int cellSize = 1 << GRID_SHIFT;
+        int minX = gridX << GRID_SHIFT;
+        int minY = gridY << GRID_SHIFT;
+        int minZ = gridZ << GRID_SHIFT;
+        return area.contains(minX, minY, minZ) &&
+               area.contains(minX + cellSize - 1, minY + cellSize - 1, minZ + cellSize - 1);
+    }
+
+    /**
+     * Converts a block Y coordinate into the Y coordinate of its grid cell.
+     * <p>
+     * If the index does not partition vertically, all blocks share the cell layer {@code 0}.
+     *
+     * @param blockY the Y coordinate of the block
+     * @return the Y coordinate of the grid cell containing the block
+     */
+    private int toGridY(int blockY) {
+        return partitionVertically ? blockY >> GRID_SHIFT : 0;
+    }
+
+    /**
+     * Packs the coordinates of a grid cell into a single {@code long}.
+     * <p>
+     * The X and Z coordinates occupy 27 bits each and the Y coordinate the lowest 10 bits,
+     * which covers the full world border horizontally and every possible section vertically.
+     * This allows cells to be used as keys of a primitive map without boxing.
+     *
+     * @param gridX the X coordinate of the grid cell
+     * @param gridY the Y coordinate of the grid cell
+     * @param gridZ the Z coordinate of the grid cell
+     * @return the packed cell key
+     */
+    private static long packCell(int gridX, int gridY, int gridZ) {
+        return ((gridX & HORIZONTAL_MASK) << (HORIZONTAL_BITS + VERTICAL_BITS)) |
+               ((gridZ & HORIZONTAL_MASK) << VERTICAL_BITS) | (gridY & VERTICAL_MASK);
+    }
+
+    /**
+     * The cells occupied by a single area within the grid of its world.
+     *
+     * @param worldId the UUID of the world the cells belong to
+     * @param entry   the entry stored in each of the cells
+     * @param cells   the packed keys of the occupied cells
+     */
+    private record AreaCells(UUID worldId, IndexedArea entry, long[] cells) {
+
+    }
+
+    /**
+     * Receives the cells visited by {@link #forEachCell(Area, CellConsumer)}.
+     */
+    @FunctionalInterface
+    private interface CellConsumer {
+
+        void accept(long cellKey, boolean covers);
+    }
+
+    /**
+     * The cells of all areas of a single world collected by {@link #addFlats(Collection)}, stored as parallel
+     * lists of one element per overlapped cell.
+     */
+    private static final class CellEntries {
+
+        private final LongArrayList cellKeys = new LongArrayList();
+        private final ObjectArrayList<IndexedArea> entries = new ObjectArrayList<>();
+        private final BooleanArrayList covers = new BooleanArrayList();
+
+        private void add(long cellKey, IndexedArea entry, boolean coversCell) {
+            cellKeys.add(cellKey);
+            entries.add(entry);
+            covers.add(coversCell);
+        }
+
+        /**
+         * Sorts the collected elements by the packed keys of their cells.
+         *
+         * @return the indices of the elements in sorted order
+         */
+        private int[] sortByCell() {
+            long[] keys = cellKeys.elements();
+            int[] order = new int[cellKeys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            IntArrays.quickSort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+            return order;
+        }
+
+        /**
+         * Inserts one {@link Cell} per distinct key of the sorted elements, sized to hold all of its entries.
+         * Cells that already exist in the grid are extended instead.
+         */
+        private void insertInto(GridSpatialIndex index, SegmentedLong2ObjectMap<Cell> grid, int[] order) {
+            long[] keys = cellKeys.elements();
+            int start = 0;
+            while (start < order.length) {
+                long cellKey = keys[order[start]];
+                int end = start + 1;
+                while (end < order.length && keys[order[end]] == cellKey) {
+                    end++;
+                }
+                Cell cell = index.getWritableCell(grid, cellKey, end - start);
+                for (int i = start; i < end; i++) {
+                    cell.add(entries.get(order[i]), covers.getBoolean(order[i]));
+                }
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * A single grid cell holding the entries overlapping it.
+     * <p>
+     * The bounds of the entries are copied into a single {@code int} array, six consecutive values
+     * per entry in the order minX, minY, minZ, maxX, maxY, maxZ. A lookup therefore scans one
+     * contiguous array instead of dereferencing every area, and tests each entry with a single
+     * sign check of the combined distances to its bounds rather than six separate branches.
+     * <p>
+     * A cell is covered if it holds exactly one entry that contains all of its blocks. Once a cell
+     * is shared by several entries it stays mixed until it is emptied, which only costs the bounds
+     * checks of a lookup, as areas of flats do not overlap in practice.
+     */
+    private static final class Cell {
+
+        private static final int STRIDE = 6;
+
+        /**
+         * The token of the index that created this cell and may modify it.
+         */
+        private final Object owner;
+        private IndexedArea[] entries;
+        private int[] bounds;
+        private int size;
+        private @Nullable IndexedArea covering;
+
+        private Cell(Object owner, int capacity) {
+            this.owner = owner;
+            entries = new IndexedArea[Math.max(1, capacity)];
+            bounds = new int[entries.length * STRIDE];
+        }
+
+        /**
+         * Copies this cell for another index, with room for the specified number of additional entries.
+         */
+        private Cell copy(Object newOwner, int additionalCapacity) {
+            Cell cell = new Cell(newOwner, size + additionalCapacity);
+            System.arraycopy(entries, 0, cell.entries, 0, size);
+            System.arraycopy(bounds, 0, cell.bounds, 0, size * STRIDE);
+            cell.size = size;
+            cell.covering = covering;
+            return cell;
+        }
+
+        private void add(IndexedArea entry, boolean covers) {
+            covering = size == 0 && covers ? entry : null;
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                bounds = Arrays.copyOf(bounds, size * 2 * STRIDE);
+            }
+            Area area = entry.area();
+            int offset = size * STRIDE;
+            bounds[offset] = area.getMinX();
+            bounds[offset + 1] = area.getMinY();
+            bounds[offset + 2] = area.getMinZ();
+            bounds[offset + 3] = area.getMaxX();
+            bounds[offset + 4] = area.getMaxY();
+            bounds[offset + 5] = area.getMaxZ();
+            entries[size++] = entry;
+        }
+
+        /**
+         * Removes an entry by moving the last entry into its slot, the order of entries is irrelevant
+         * since areas do not overlap.
+         */
+        private boolean remove(IndexedArea entry) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i] == entry) {
+                    if (covering == entry) {
+                        covering = null;
+                    }
+                    int last = --size;
+                    entries[i] = entries[last];
+                    entries[last] = null;
+                    System.arraycopy(bounds, last * STRIDE, bounds, i * STRIDE, STRIDE);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean contains(IndexedArea entry) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i] == entry) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private @Nullable IndexedArea find(int x, int y, int z) {
+            int[] cellBounds = bounds;
+            for (int i = 0, offset = 0; i < size; i++, offset += STRIDE) {
+                // all distances to the bounds are non-negative exactly if the block is inside
+                int distances = (x - cellBounds[offset]) | (y - cellBounds[offset + 1]) |
+                                (z - cellBounds[offset + 2]) | (cellBounds[offset + 3] - x) |
+                                (cellBounds[offset + 4] - y) | (cellBounds[offset + 5] - z);
+                if (distances >= 0) {
+                    return entries[i];
+                }
+            }
+            return null;
+        }
+
+        private void collectIntersecting(BlockBox box, Set<IndexedArea> visitedEntries, List<IndexedArea> result) {
+            for (int i = 0, offset = 0; i < size; i++, offset += STRIDE) {
+                if (box.intersects(bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3],
+                                   bounds[offset + 4], bounds[offset + 5]) && visitedEntries.add(entries[i])) {
+                    result.add(entries[i]);
+                }
+            }
+        }
+    }
+}
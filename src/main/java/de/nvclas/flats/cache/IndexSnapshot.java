@@ -0,0 +1,173 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable view of all flats together with the {@link SpatialIndex} and {@link ChunkOccupancy} built from them.
+ * <p>
+ * A snapshot is never modified after it has been created. Every change of the flats or their areas derives
+ * a new snapshot with the next generation, which {@link FlatsCache} then publishes with a single volatile
+ * write. Readers on any thread query whichever snapshot they obtained without locking; a reader that
+ * started before a change simply finishes on the previous generation.
+ * <p>
+ * Deriving a snapshot applies the change to copies of the mapping of flats, the index and the occupancy, which
+ * share all parts the change does not touch with this snapshot. The mapping of flats is a {@link SegmentedMap},
+ * so a change costs about the square root of the number of flats instead of their number.
+ * <p>
+ * The {@link Flat}s themselves are mutable and shared between generations: a flat read through an older
+ * snapshot reflects its latest state, even though the index of that snapshot only contains the areas it had
+ * when the snapshot was created.
+ */
+final class IndexSnapshot {
+
+    private final long generation;
+    private final SegmentedMap<String, Flat> flats;
+    private final SpatialIndex spatialIndex;
+    private final ChunkOccupancy chunkOccupancy;
+
+    private IndexSnapshot(long generation, SegmentedMap<String, Flat> flats, SpatialIndex spatialIndex,
+                          ChunkOccupancy chunkOccupancy) {
+        this.generation = generation;
+        this.flats = flats;
+        this.spatialIndex = spatialIndex;
+        this.chunkOccupancy = chunkOccupancy;
+    }
+
+    /**
+     * Builds a snapshot of the specified flats. The spatial index is built in bulk, see
+     * {@link SpatialIndex#addFlats(java.util.Collection)}.
+     *
+     * @param generation The generation of the new snapshot.
+     * @param flats      The flats to include, mapped by their names. Must not be null.
+     * @param type       The type of spatial index to build. Must not be null.
+     * @return The new snapshot. Never null.
+     */
+    static @NotNull IndexSnapshot build(long generation, @NotNull Map<String, Flat> flats,
+                                        @NotNull SpatialIndexType type) {
+        SpatialIndex spatialIndex = type.createIndex();
+        spatialIndex.addFlats(flats.values());
+        return withIndex(generation, flats, spatialIndex);
+    }
+
+    /**
+     * Creates a snapshot of the specified flats using a spatial index that already contains all of their areas,
+     * for example one restored by the {@link SpatialIndexStore}. Only the {@link ChunkOccupancy} is built.
+     *
+     * @param generation   The generation of the new snapshot.
+     * @param flats        The flats to include, mapped by their names. Must not be null.
+     * @param spatialIndex The spatial index of all areas of the flats. Must not be null.
+     * @return The new snapshot. Never null.
+     */
+    static @NotNull IndexSnapshot withIndex(long generation, @NotNull Map<String, Flat> flats,
+                                            @NotNull SpatialIndex spatialIndex) {
+        ChunkOccupancy chunkOccupancy = new ChunkOccupancy();
+        for (Flat flat : flats.values()) {
+            for (Area area : flat.getAreas()) {
+                chunkOccupancy.addArea(area);
+            }
+        }
+        SegmentedMap<String, Flat> flatsByName = SegmentedMap.byEquality();
+        flatsByName.putAll(flats);
+        return new IndexSnapshot(generation, flatsByName, spatialIndex, chunkOccupancy);
+    }
+
+    /**
+     * Derives the next snapshot, which additionally contains the specified flat and all of its areas.
+     *
+     * @param flat The flat to add. Must not be null and must not be part of this snapshot.
+     * @return The new snapshot with the next generation. Never null.
+     */
+    @NotNull IndexSnapshot withFlat(@NotNull Flat flat) {
+        SegmentedMap<String, Flat> nextFlats = flats.copy();
+        nextFlats.put(flat.getName(), flat);
+        SpatialIndex nextIndex = spatialIndex.copy();
+        nextIndex.addFlat(flat);
+        ChunkOccupancy nextOccupancy = chunkOccupancy.copy();
+        for (Area area : flat.getAreas()) {
+            nextOccupancy.addArea(area);
+        }
+        return new IndexSnapshot(generation + 1, nextFlats, nextIndex, nextOccupancy);
+    }
+
+    /**
+     * Derives the next snapshot, in which the specified area is indexed as part of the specified flat.
+     * <p>
+     * The mapping of flats is shared with this snapshot, as the flat is already part of it.
+     *
+     * @param flat The flat the area has been added to. Must not be null and must be part of this snapshot.
+     * @param area The area to index. Must not be null.
+     * @return The new snapshot with the next generation. Never null.
+     */
+    @NotNull IndexSnapshot withArea(@NotNull Flat flat, @NotNull Area area) {
+        SpatialIndex nextIndex = spatialIndex.copy();
+        nextIndex.addArea(flat, area);
+        ChunkOccupancy nextOccupancy = chunkOccupancy.copy();
+        nextOccupancy.addArea(area);
+        return new IndexSnapshot(generation + 1, flats, nextIndex, nextOccupancy);
+    }
+
+    /**
+     * Derives the next snapshot, which no longer contains the specified flat and its areas.
+     *
+     * @param flat The flat to remove. Must not be null and must be part of this snapshot.
+     * @return The new snapshot with the next generation. Never null.
+     */
+    @NotNull IndexSnapshot withoutFlat(@NotNull Flat flat) {
+        SegmentedMap<String, Flat> nextFlats = flats.copy();
+        nextFlats.remove(flat.getName());
+        SpatialIndex nextIndex = spatialIndex.copy();
+        nextIndex.removeFlat(flat);
+        ChunkOccupancy nextOccupancy = chunkOccupancy.copy();
+        for (Area area : flat.getAreas()) {
+            nextOccupancy.removeArea(area);
+        }
+        return new IndexSnapshot(generation + 1, nextFlats, nextIndex, nextOccupancy);
+    }
+
+    /**
+     * @return The generation of this snapshot, increasing with every change.
+     */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * @return An unmodifiable mapping of flat names to flats. Never null.
+     */
+    @NotNull Map<String, Flat> flats() {
+        return Collections.unmodifiableMap(flats);
+    }
+
+    /**
+     * @return The spatial index of all areas of the flats, only read after creating the snapshot. Never null.
+     */
+    @NotNull SpatialIndex spatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * @return The chunks overlapped by the areas of the flats, only read after creating the snapshot. Never null.
+     */
+    @NotNull ChunkOccupancy chunkOccupancy() {
+        return chunkOccupancy;
+    }
+
+    /**
+     * Retrieves the {@link IndexedArea} containing the specified {@link Location}, if any.
+     * <p>
+     * Locations in chunks without any flat are rejected by the {@link ChunkOccupancy} before the index is consulted.
+     *
+     * @param location The {@link Location} to look up. Must not be null.
+     * @return The {@link IndexedArea} containing the location, or {@code null} if none does.
+     */
+    @Nullable IndexedArea findArea(@NotNull Location location) {
+        return chunkOccupancy.isOccupied(location) ? spatialIndex.getAreaAtLocation(location) : null;
+    }
+}
@@ -0,0 +1,17 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+
+/**
+ * An {@link Area} stored in a {@link SpatialIndex} together with the {@link Flat} it belongs to.
+ * <p>
+ * Indexing areas instead of flats allows lookups to test only the areas that actually overlap
+ * the queried region, while the back-reference resolves the owning flat without another lookup.
+ *
+ * @param area the indexed area
+ * @param flat the flat the area belongs to
+ */
+public record IndexedArea(Area area, Flat flat) {
+
+}
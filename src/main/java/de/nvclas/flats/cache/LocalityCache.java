@@ -0,0 +1,82 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the {@link IndexedArea} each {@link Entity} was last resolved to.
+ * <p>
+ * Players tend to stay inside the same flat for a long time, so most of their lookups hit the area
+ * of the previous lookup again. Checking the remembered integer bounds first answers those lookups
+ * without consulting the {@link SpatialIndex}.
+ * <p>
+ * Each remembered area is tagged with the generation of the index it was resolved from. Once the
+ * flats change, the generation is advanced and all remembered areas become stale at once.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LocalityCache {
+
+    private final Map<Entity, Hint> hints = new WeakHashMap<>();
+
+    /**
+     * Retrieves the area last remembered for the specified {@link Entity}, if it still contains the location.
+     *
+     * @param entity     The {@link Entity} performing the lookup. Must not be null.
+     * @param location   The {@link Location} to look up. Must not be null.
+     * @param generation The current generation of the index.
+     * @return The remembered {@link IndexedArea}, or {@code null} if none is remembered, it is stale,
+     * or it does not contain the location.
+     */
+    public synchronized @Nullable IndexedArea get(@NotNull Entity entity, @NotNull Location location, long generation) {
+        Hint hint = hints.get(entity);
+        if (hint == null || hint.generation() != generation) {
+            return null;
+        }
+        World world = location.getWorld();
+        if (world == null || !hint.worldId().equals(world.getUID())) {
+            return null;
+        }
+        return hint.contains(location.getBlockX(), location.getBlockY(), location.getBlockZ()) ? hint.entry() : null;
+    }
+
+    /**
+     * Remembers the area the specified {@link Entity} was resolved to.
+     *
+     * @param entity     The {@link Entity} that performed the lookup. Must not be null.
+     * @param entry      The {@link IndexedArea} the lookup resolved to. Must not be null.
+     * @param generation The generation of the index the area was resolved from.
+     */
+    public synchronized void put(@NotNull Entity entity, @NotNull IndexedArea entry, long generation) {
+        Area area = entry.area();
+        hints.put(entity, new Hint(generation, area.getWorldId(), area.getMinX(), area.getMinY(), area.getMinZ(),
+                                   area.getMaxX(), area.getMaxY(), area.getMaxZ(), entry));
+    }
+
+    /**
+     * Forgets the remembered areas of all entities.
+     */
+    public synchronized void clear() {
+        hints.clear();
+    }
+
+    /**
+     * An area remembered for an entity, with its bounds copied for a quick containment check.
+     */
+    @SuppressWarnings("java:S107") // bounds are stored flat to avoid dereferencing the area
+    private record Hint(long generation, UUID worldId, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                        IndexedArea entry) {
+
+        private boolean contains(int x, int y, int z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Flat;
+import de.nvclas.flats.volumes.FlatListener;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Maintains reverse indexes from player UUIDs to the {@link Flat}s they own or are trusted in.
+ * <p>
+ * The index registers itself as the {@link FlatListener} of every added flat, so it stays in sync
+ * with ownership and trust changes made through {@link Flat#setOwner}, {@link Flat#addTrusted} and
+ * {@link Flat#removeTrusted}. Questions like "how many flats does this player own" are answered
+ * with a single lookup instead of a scan of all flats.
+ * <p>
+ * This class is thread-safe, flats may change on any thread.
+ */
+public class PlayerFlatsIndex implements FlatListener {
+
+    private final Map<UUID, Set<Flat>> ownedFlats = new HashMap<>();
+    private final Map<UUID, Set<Flat>> trustedFlats = new HashMap<>();
+
+    /**
+     * Adds the owner and trusted players of the specified {@link Flat} to the index and starts
+     * listening to its changes.
+     *
+     * @param flat The {@link Flat} to add. Must not be null.
+     */
+    public synchronized void addFlat(@NotNull Flat flat) {
+        flat.addListener(this);
+        if (flat.getOwner() != null) {
+            add(ownedFlats, flat.getOwner(), flat);
+        }
+        for (UUID playerId : flat.getTrusted()) {
+            add(trustedFlats, playerId, flat);
+        }
+    }
+
+    /**
+     * Removes the owner and trusted players of the specified {@link Flat} from the index and stops
+     * listening to its changes.
+     *
+     * @param flat The {@link Flat} to remove. Must not be null.
+     */
+    public synchronized void removeFlat(@NotNull Flat flat) {
+        flat.removeListener(this);
+        if (flat.getOwner() != null) {
+            remove(ownedFlats, flat.getOwner(), flat);
+        }
+        for (UUID playerId : flat.getTrusted()) {
+            remove(trustedFlats, playerId, flat);
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     * <p>
+     * Flats that were added before are not detached, callers are expected to discard them.
+     */
+    public synchronized void clear() {
+        ownedFlats.clear();
+        trustedFlats.clear();
+    }
+
+    /**
+     * Retrieves the number of flats owned by the player with the specified UUID.
+     *
+     * @param playerId The UUID of the player. Must not be null.
+     * @return The number of owned flats.
+     */
+    public synchronized int getOwnedFlatsCount(@NotNull UUID playerId) {
+        Set<Flat> flats = ownedFlats.get(playerId);
+        return flats == null ? 0 : flats.size();
+    }
+
+    /**
+     * Retrieves the flats owned by the player with the specified UUID.
+     *
+     * @param playerId The UUID of the player. Must not be null.
+     * @return A new {@link List} of the owned flats in the order they were claimed. Never null.
+     */
+    public synchronized @NotNull List<Flat> getOwnedFlats(@NotNull UUID playerId) {
+        return new ArrayList<>(ownedFlats.getOrDefault(playerId, Set.of()));
+    }
+
+    /**
+     * Retrieves the flats the player with the specified UUID is trusted in.
+     *
+     * @param playerId The UUID of the player. Must not be null.
+     * @return A new {@link List} of the flats the player is trusted in. Never null.
+     */
+    public synchronized @NotNull List<Flat> getTrustedFlats(@NotNull UUID playerId) {
+        return new ArrayList<>(trustedFlats.getOrDefault(playerId, Set.of()));
+    }
+
+    @Override
+    public synchronized void onOwnerChanged(@NotNull Flat flat, @Nullable UUID previousOwner, @Nullable UUID newOwner) {
+        if (previousOwner != null) {
+            remove(ownedFlats, previousOwner, flat);
+        }
+        if (newOwner != null) {
+            add(ownedFlats, newOwner, flat);
+        }
+    }
+
+    @Override
+    public synchronized void onTrustedAdded(@NotNull Flat flat, @NotNull UUID playerId) {
+        add(trustedFlats, playerId, flat);
+    }
+
+    @Override
+    public synchronized void onTrustedRemoved(@NotNull Flat flat, @NotNull UUID playerId) {
+        remove(trustedFlats, playerId, flat);
+    }
+
+    private static void add(Map<UUID, Set<Flat>> index, UUID playerId, Flat flat) {
+        index.computeIfAbsent(playerId, k -> new ReferenceLinkedOpenHashSet<>()).add(flat);
+    }
+
+    private static void remove(Map<UUID, Set<Flat>> index, UUID playerId, Flat flat) {
+        Set<Flat> flats = index.get(playerId);
+        if (flats != null && flats.remove(flat) && flats.isEmpty()) {
+            index.remove(playerId);
+        }
+    }
+}
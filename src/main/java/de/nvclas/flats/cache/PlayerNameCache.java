@@ -0,0 +1,63 @@
+package de.nvclas.flats.cache;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resolves the names of players known only by their UUID, such as the owners and trusted players of flats.
+ * <p>
+ * Flats keep raw UUIDs, so no {@link OfflinePlayer} has to be looked up while loading. Names are
+ * resolved lazily when a command displays them. Online players are answered directly; the names of
+ * offline players are kept in a bounded cache that evicts the least recently used entries, because
+ * looking them up may read player data from disk.
+ * <p>
+ * This class is not thread-safe and is meant to be used from the main server thread.
+ */
+public class PlayerNameCache {
+
+    /**
+     * The maximum number of offline player names kept in the cache.
+     */
+    private static final int MAX_SIZE = 1024;
+
+    private final Map<UUID, String> names = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * Retrieves the name of the player with the specified UUID.
+     *
+     * @param playerId The UUID of the player. Must not be null.
+     * @return The last known name of the player, or the UUID as a string if the server has never seen
+     * a player with this UUID. Never null.
+     */
+    public @NotNull String getName(@NotNull UUID playerId) {
+        Player onlinePlayer = Bukkit.getPlayer(playerId);
+        if (onlinePlayer != null) {
+            names.put(playerId, onlinePlayer.getName());
+            return onlinePlayer.getName();
+        }
+        return names.computeIfAbsent(playerId, PlayerNameCache::lookupName);
+    }
+
+    /**
+     * Removes all cached names.
+     */
+    public void clear() {
+        names.clear();
+    }
+
+    private static String lookupName(UUID playerId) {
+        String name = Bukkit.getOfflinePlayer(playerId).getName();
+        return name == null ? playerId.toString() : name;
+    }
+}
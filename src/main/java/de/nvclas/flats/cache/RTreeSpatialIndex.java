@@ -0,0 +1,606 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link SpatialIndex} that keeps the bounds of all {@link Area}s of a world in a packed R-tree.
+ * <p>
+ * Each area is stored exactly once, regardless of its size, so the memory used by this index grows
+ * linearly with the number of areas instead of with their footprint. The tree is bulk loaded using
+ * the Sort-Tile-Recursive algorithm, which suits the read-heavy access pattern of flats well.
+ * <p>
+ * Modifications do not rebuild the tree. A removed entry only clears its own slot, which is located by
+ * descending the nodes containing its bounds; the bounds of the nodes above stay valid, as they still
+ * enclose all remaining entries. Added entries are kept in a small map next to the tree that is
+ * scanned by every query. The tree is only packed again once this map or the number of cleared slots
+ * grows too large, which keeps the amortized cost of a modification logarithmic.
+ * <p>
+ * A {@link #copy()} shares the trees of this index. The tree of a world is copied on the first modification
+ * of the copy, which shares its packed bounds, as those are never modified, and only copies the array of
+ * pages of its slots. Pages are copied on their first modification as well, and the added entries and the
+ * entries of each flat are kept in {@link SegmentedMap}s, so a change costs about the square root of the
+ * number of entries instead of their number.
+ */
+public class RTreeSpatialIndex implements SpatialIndex {
+
+    /**
+     * The maximum number of children of each node of the tree.
+     */
+    private static final int NODE_CAPACITY = 16;
+
+    /**
+     * A mapping of world UUIDs to the tree of that world.
+     */
+    private final Map<UUID, WorldTree> worldTrees;
+
+    /**
+     * A mapping of each indexed {@link Flat} to the entries of its areas. The lists are replaced rather than
+     * modified, so they can be shared with copies of this index.
+     */
+    private final SegmentedMap<Flat, List<IndexedArea>> flatEntries;
+
+    /**
+     * Identifies the trees this index created and may modify. Trees keep this token rather than the index
+     * itself, so a shared tree does not keep an outdated index and all of its trees reachable.
+     */
+    private final Object ownerToken = new Object();
+
+    /**
+     * Constructs a new, empty {@code RTreeSpatialIndex}.
+     */
+    public RTreeSpatialIndex() {
+        worldTrees = new HashMap<>();
+        flatEntries = SegmentedMap.byIdentity();
+    }
+
+    private RTreeSpatialIndex(RTreeSpatialIndex source) {
+        worldTrees = new HashMap<>(source.worldTrees);
+        flatEntries = source.flatEntries.copy();
+    }
+
+    @Override
+    public void addFlat(@NotNull Flat flat) {
+        for (Area area : flat.getAreas()) {
+            addArea(flat, area);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The trees of all worlds are packed right away, so the first queries do not have to scan the added entries.
+     */
+    @Override
+    public void addFlats(@NotNull Collection<Flat> flats) {
+        for (Flat flat : flats) {
+            for (Area area : flat.getAreas()) {
+                addEntry(new IndexedArea(area, flat), false);
+            }
+        }
+        for (WorldTree worldTree : worldTrees.values()) {
+            if (worldTree.owner == ownerToken) {
+                worldTree.pack();
+            }
+        }
+    }
+
+    @Override
+    public void addArea(@NotNull Flat flat, @NotNull Area area) {
+        addEntry(new IndexedArea(area, flat), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the entries of the flat are touched, see {@link RTreeSpatialIndex}.
+     */
+    @Override
+    public void removeFlat(@NotNull Flat flat) {
+        List<IndexedArea> entries = flatEntries.remove(flat);
+        if (entries == null) {
+            return;
+        }
+        for (IndexedArea entry : entries) {
+            UUID worldId = entry.area().getWorldId();
+            if (worldTrees.containsKey(worldId)) {
+                WorldTree worldTree = getWritableTree(worldId);
+                worldTree.remove(entry);
+                if (worldTree.isEmpty()) {
+                    worldTrees.remove(worldId);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        worldTrees.clear();
+        flatEntries.clear();
+    }
+
+    @Override
+    public @NotNull RTreeSpatialIndex copy() {
+        return new RTreeSpatialIndex(this);
+    }
+
+    @Override
+    public @Nullable IndexedArea getAreaAtLocation(@NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+        WorldTree worldTree = worldTrees.get(world.getUID());
+        if (worldTree == null) {
+            return null;
+        }
+        return worldTree.findContaining(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    @Override
+    public @NotNull List<IndexedArea> getEntriesIntersecting(@NotNull World world, @NotNull BlockBox box) {
+        List<IndexedArea> entries = new ArrayList<>();
+        WorldTree worldTree = worldTrees.get(world.getUID());
+        if (worldTree != null) {
+            worldTree.collectIntersecting(box, entries);
+        }
+        return entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For each world, the ordinals of the remaining entries of the packed tree are written in its order,
+     * followed by the entries added since it was packed.
+     */
+    @Override
+    public void write(@NotNull DataOutput out, @NotNull Reference2IntMap<Area> ordinals) throws IOException {
+        out.writeInt(worldTrees.size());
+        for (Map.Entry<UUID, WorldTree> worldTree : worldTrees.entrySet()) {
+            out.writeLong(worldTree.getKey().getMostSignificantBits());
+            out.writeLong(worldTree.getKey().getLeastSignificantBits());
+            List<IndexedArea> entries = worldTree.getValue().getEntries();
+            out.writeInt(entries.size());
+            for (IndexedArea entry : entries) {
+                out.writeInt(ordinals.getInt(entry.area()));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The entries are packed in the order they were written, so they do not have to be sorted again.
+     */
+    @Override
+    public void restore(@NotNull ByteBuffer in, @NotNull IndexedArea[] entries) {
+        int worldCount = in.getInt();
+        for (int w = 0; w < worldCount; w++) {
+            UUID worldId = new UUID(in.getLong(), in.getLong());
+            IndexedArea[] sortedEntries = new IndexedArea[in.getInt()];
+            for (int i = 0; i < sortedEntries.length; i++) {
+                sortedEntries[i] = entries[in.getInt()];
+                addFlatEntry(sortedEntries[i]);
+            }
+            worldTrees.put(worldId, new WorldTree(ownerToken, sortedEntries));
+        }
+    }
+
+    private void addEntry(IndexedArea entry, boolean packIfNeeded) {
+        getWritableTree(entry.area().getWorldId()).add(entry, packIfNeeded);
+        addFlatEntry(entry);
+    }
+
+    private void addFlatEntry(IndexedArea entry) {
+        List<IndexedArea> entries = flatEntries.get(entry.flat());
+        List<IndexedArea> updated = new ArrayList<>(entries == null ? 1 : entries.size() + 1);
+        if (entries != null) {
+            updated.addAll(entries);
+        }
+        updated.add(entry);
+        flatEntries.put(entry.flat(), updated);
+    }
+
+    /**
+     * Retrieves the tree of a world that may be modified by this index, creating it if it does not exist
+     * and copying it if it is shared with another index.
+     */
+    private WorldTree getWritableTree(UUID worldId) {
+        WorldTree worldTree = worldTrees.get(worldId);
+        if (worldTree == null) {
+            worldTree = new WorldTree(ownerToken, new IndexedArea[0]);
+            worldTrees.put(worldId, worldTree);
+        } else if (worldTree.owner != ownerToken) {
+            worldTree = worldTree.copy(ownerToken);
+            worldTrees.put(worldId, worldTree);
+        }
+        return worldTree;
+    }
+
+    /**
+     * Holds the entries of a single world: those packed into the tree, by the slot of their leaf, and
+     * those added since it was packed.
+     */
+    private static final class WorldTree {
+
+        /**
+         * The token of the index that created this tree and may modify it.
+         */
+        private final Object owner;
+        private PackedTree tree;
+
+        /**
+         * The entries of the packed tree by slot. Slots of removed entries are {@code null}.
+         */
+        private Slots slots;
+        private int occupiedSlots;
+
+        /**
+         * The entries added since the tree was packed, by their area.
+         */
+        private SegmentedMap<Area, IndexedArea> pending;
+
+        /**
+         * Creates a world tree from entries that are already in the order of a packed tree.
+         */
+        private WorldTree(Object owner, IndexedArea[] sortedEntries) {
+            this.owner = owner;
+            slots = new Slots(sortedEntries);
+            occupiedSlots = sortedEntries.length;
+            tree = new PackedTree(sortedEntries);
+            pending = SegmentedMap.byIdentity();
+        }
+
+        private WorldTree(Object owner, WorldTree source) {
+            this.owner = owner;
+            slots = source.slots.copy();
+            occupiedSlots = source.occupiedSlots;
+            tree = source.tree;
+            pending = source.pending.copy();
+        }
+
+        /**
+         * Copies this tree for another index. The packed tree is shared, as it is never modified.
+         */
+        private WorldTree copy(Object newOwner) {
+            return new WorldTree(newOwner, this);
+        }
+
+        private void add(IndexedArea entry, boolean packIfNeeded) {
+            pending.put(entry.area(), entry);
+            if (packIfNeeded && pending.size() > Math.max(NODE_CAPACITY, occupiedSlots >> 3)) {
+                pack();
+            }
+        }
+
+        private void remove(IndexedArea entry) {
+            if (pending.get(entry.area()) == entry) {
+                pending.remove(entry.area());
+                return;
+            }
+            int slot = tree.indexOf(slots, entry);
+            if (slot < 0) {
+                return;
+            }
+            slots.clear(slot);
+            occupiedSlots--;
+            if (occupiedSlots < slots.length() / 2) {
+                pack();
+            }
+        }
+
+        /**
+         * Packs all entries into a new tree, dropping the cleared slots.
+         */
+        private void pack() {
+            if (pending.isEmpty() && occupiedSlots == slots.length()) {
+                return;
+            }
+            IndexedArea[] entries = getEntries().toArray(new IndexedArea[0]);
+            PackedTree.sortTileRecursive(entries);
+            slots = new Slots(entries);
+            occupiedSlots = entries.length;
+            tree = new PackedTree(entries);
+            pending = SegmentedMap.byIdentity();
+        }
+
+        private boolean isEmpty() {
+            return occupiedSlots == 0 && pending.isEmpty();
+        }
+
+        /**
+         * Returns all entries, those of the packed tree in its order first.
+         */
+        private List<IndexedArea> getEntries() {
+            List<IndexedArea> entries = new ArrayList<>(occupiedSlots + pending.size());
+            for (int slot = 0; slot < slots.length(); slot++) {
+                IndexedArea entry = slots.get(slot);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            entries.addAll(pending.values());
+            return entries;
+        }
+
+        private @Nullable IndexedArea findContaining(int x, int y, int z) {
+            IndexedArea entry = tree.findContaining(slots, x, y, z);
+            if (entry != null) {
+                return entry;
+            }
+            for (IndexedArea pendingEntry : pending.values()) {
+                if (pendingEntry.area().contains(x, y, z)) {
+                    return pendingEntry;
+                }
+            }
+            return null;
+        }
+
+        private void collectIntersecting(BlockBox box, List<IndexedArea> entries) {
+            tree.collectIntersecting(slots, box, entries);
+            for (IndexedArea pendingEntry : pending.values()) {
+                if (pendingEntry.area().intersects(box)) {
+                    entries.add(pendingEntry);
+                }
+            }
+        }
+    }
+
+    /**
+     * An immutable R-tree packed into flat arrays.
+     * <p>
+     * Level {@code 0} holds the bounds of the entries, every further level holds the bounds of nodes
+     * grouping {@link #NODE_CAPACITY} consecutive elements of the level below. Bounds are stored as
+     * six consecutive {@code int}s per element: minX, minY, minZ, maxX, maxY, maxZ.
+     * <p>
+     * The entries themselves are passed to each query as {@link Slots}, so removing an entry only clears its slot.
+     */
+    private static final class PackedTree {
+
+        private static final int STRIDE = 6;
+
+        private final int[][] levels;
+
+        /**
+         * Creates a tree from entries that are already sorted, see {@link #sortTileRecursive(IndexedArea[])}.
+         */
+        private PackedTree(IndexedArea[] entries) {
+            List<int[]> levelList = new ArrayList<>();
+            int[] level = new int[entries.length * STRIDE];
+            for (int i = 0; i < entries.length; i++) {
+                Area area = entries[i].area();
+                int offset = i * STRIDE;
+                level[offset] = area.getMinX();
+                level[offset + 1] = area.getMinY();
+                level[offset + 2] = area.getMinZ();
+                level[offset + 3] = area.getMaxX();
+                level[offset + 4] = area.getMaxY();
+                level[offset + 5] = area.getMaxZ();
+            }
+            levelList.add(level);
+
+            while (level.length / STRIDE > NODE_CAPACITY) {
+                level = buildParentLevel(level);
+                levelList.add(level);
+            }
+            this.levels = levelList.toArray(new int[0][]);
+        }
+
+        private static int[] buildParentLevel(int[] children) {
+            int childCount = children.length / STRIDE;
+            int parentCount = (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int[] parents = new int[parentCount * STRIDE];
+            for (int parent = 0; parent < parentCount; parent++) {
+                int offset = parent * STRIDE;
+                Arrays.fill(parents, offset, offset + 3, Integer.MAX_VALUE);
+                Arrays.fill(parents, offset + 3, offset + STRIDE, Integer.MIN_VALUE);
+                int end = Math.min(childCount, (parent + 1) * NODE_CAPACITY);
+                for (int child = parent * NODE_CAPACITY; child < end; child++) {
+                    int childOffset = child * STRIDE;
+                    for (int axis = 0; axis < 3; axis++) {
+                        parents[offset + axis] = Math.min(parents[offset + axis], children[childOffset + axis]);
+                        parents[offset + axis + 3] = Math.max(parents[offset + axis + 3],
+                                                              children[childOffset + axis + 3]);
+                    }
+                }
+            }
+            return parents;
+        }
+
+        /**
+         * Orders the entries so that consecutive runs of {@link #NODE_CAPACITY} entries are spatially close.
+         * <p>
+         * The entries are sorted by X and cut into slabs, each slab is sorted by Z and cut into runs,
+         * and each run is finally sorted by Y.
+         */
+        private static void sortTileRecursive(IndexedArea[] entries) {
+            int leafCount = (entries.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int slices = Math.max(1, (int) Math.ceil(Math.cbrt(leafCount)));
+            int slabSize = slices * slices * NODE_CAPACITY;
+            int runSize = slices * NODE_CAPACITY;
+
+            Arrays.sort(entries, Comparator.comparingInt(entry -> entry.area().getMinX() + entry.area().getMaxX()));
+            for (int slab = 0; slab < entries.length; slab += slabSize) {
+                int slabEnd = Math.min(entries.length, slab + slabSize);
+                Arrays.sort(entries, slab, slabEnd,
+                            Comparator.comparingInt(entry -> entry.area().getMinZ() + entry.area().getMaxZ()));
+                for (int run = slab; run < slabEnd; run += runSize) {
+                    Arrays.sort(entries, run, Math.min(slabEnd, run + runSize),
+                                Comparator.comparingInt(entry -> entry.area().getMinY() + entry.area().getMaxY()));
+                }
+            }
+        }
+
+        /**
+         * Locates the slot of an entry by descending only the nodes whose bounds contain the bounds of its area.
+         *
+         * @return the slot of the entry, or {@code -1} if it is not part of the tree
+         */
+        private int indexOf(Slots slots, IndexedArea entry) {
+            int top = levels.length - 1;
+            for (int node = 0; node < levels[top].length / STRIDE; node++) {
+                int slot = indexOf(slots, top, node, entry.area(), entry);
+                if (slot >= 0) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOf(Slots slots, int level, int index, Area area, IndexedArea entry) {
+            int[] bounds = levels[level];
+            int offset = index * STRIDE;
+            if (area.getMinX() < bounds[offset] || area.getMinY() < bounds[offset + 1] ||
+                area.getMinZ() < bounds[offset + 2] || area.getMaxX() > bounds[offset + 3] ||
+                area.getMaxY() > bounds[offset + 4] || area.getMaxZ() > bounds[offset + 5]) {
+                return -1;
+            }
+            if (level == 0) {
+                return slots.get(index) == entry ? index : -1;
+            }
+            int end = Math.min(levels[level - 1].length / STRIDE, (index + 1) * NODE_CAPACITY);
+            for (int child = index * NODE_CAPACITY; child < end; child++) {
+                int slot = indexOf(slots, level - 1, child, area, entry);
+                if (slot >= 0) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private @Nullable IndexedArea findContaining(Slots slots, int x, int y, int z) {
+            int top = levels.length - 1;
+            for (int node = 0; node < levels[top].length / STRIDE; node++) {
+                IndexedArea entry = findContaining(slots, top, node, x, y, z);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private @Nullable IndexedArea findContaining(Slots slots, int level, int index, int x, int y, int z) {
+            int[] bounds = levels[level];
+            int offset = index * STRIDE;
+            if (x < bounds[offset] || y < bounds[offset + 1] || z < bounds[offset + 2] || x > bounds[offset + 3] ||
+                y > bounds[offset + 4] || z > bounds[offset + 5]) {
+                return null;
+            }
+            if (level == 0) {
+                return slots.get(index);
+            }
+            int end = Math.min(levels[level - 1].length / STRIDE, (index + 1) * NODE_CAPACITY);
+            for (int child = index * NODE_CAPACITY; child < end; child++) {
+                IndexedArea entry = findContaining(slots, level - 1, child, x, y, z);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private void collectIntersecting(Slots slots, BlockBox box, List<IndexedArea> entries) {
+            int top = levels.length - 1;
+            for (int node = 0; node < levels[top].length / STRIDE; node++) {
+                collectIntersecting(slots, top, node, box, entries);
+            }
+        }
+
+        private void collectIntersecting(Slots slots, int level, int index, BlockBox box,
+                                         List<IndexedArea> entries) {
+            int[] bounds = levels[level];
+            int offset = index * STRIDE;
+            if (!box.intersects(bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3],
+                                bounds[offset + 4], bounds[offset + 5])) {
+                return;
+            }
+            if (level == 0) {
+                IndexedArea entry = slots.get(index);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+                return;
+            }
+            int end = Math.min(levels[level - 1].length / STRIDE, (index + 1) * NODE_CAPACITY);
+            for (int child = index * NODE_CAPACITY; child < end; child++) {
+                collectIntersecting(slots, level - 1, child, box, entries);
+            }
+        }
+    }
+
+    /**
+     * The entries of a packed tree by slot, split into pages of a fixed size.
+     * <p>
+     * A {@link #copy()} only copies the array of pages. A page is copied on the first slot cleared through
+     * the copy, so clearing a slot of a copy costs the number of pages and the size of a page.
+     */
+    private static final class Slots {
+
+        private static final int PAGE_SHIFT = 10;
+        private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+        private final IndexedArea[][] pages;
+
+        /**
+         * Whether each page was created or copied by this instance and may be modified in place.
+         */
+        private final boolean[] ownedPages;
+        private final int length;
+
+        private Slots(IndexedArea[] entries) {
+            length = entries.length;
+            pages = new IndexedArea[(length + PAGE_SIZE - 1) >> PAGE_SHIFT][];
+            ownedPages = new boolean[pages.length];
+            for (int page = 0; page < pages.length; page++) {
+                int start = page << PAGE_SHIFT;
+                pages[page] = Arrays.copyOfRange(entries, start, Math.min(length, start + PAGE_SIZE));
+                ownedPages[page] = true;
+            }
+        }
+
+        private Slots(Slots source) {
+            length = source.length;
+            pages = source.pages.clone();
+            ownedPages = new boolean[pages.length];
+        }
+
+        private Slots copy() {
+            return new Slots(this);
+        }
+
+        private int length() {
+            return length;
+        }
+
+        private @Nullable IndexedArea get(int slot) {
+            return pages[slot >> PAGE_SHIFT][slot & (PAGE_SIZE - 1)];
+        }
+
+        private void clear(int slot) {
+            int page = slot >> PAGE_SHIFT;
+            if (!ownedPages[page]) {
+                pages[page] = pages[page].clone();
+                ownedPages[page] = true;
+            }
+            pages[page][slot & (PAGE_SIZE - 1)] = null;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package de.nvclas.flats.cache;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from primitive {@code long} keys to objects that shares its contents with its copies.
+ * <p>
+ * The keys are spread over a power of two of segments by the high bits of their hash, each segment being
+ * a small hash map. A {@link #copy()} only copies the array of segments, and a segment is copied on its
+ * first modification through the copy. The number of segments grows with the square root of the size, so
+ * copying the map and modifying a single key costs about the square root of the size instead of the size.
+ * <p>
+ * This class is not thread-safe. As with the indexes built on it, a map is only read once it has been
+ * copied, and all changes are applied to the copy.
+ *
+ * @param <V> the type of the values
+ */
+final class SegmentedLong2ObjectMap<V> implements Iterable<Long2ObjectMap.Entry<V>> {
+
+    private static final int MIN_SEGMENT_BITS = 4;
+    private static final int MAX_SEGMENT_BITS = 16;
+
+    private Segment<V>[] segments;
+    private int segmentBits;
+    private int size;
+
+    /**
+     * Identifies the segments this map created and may modify. Segments keep this token rather than the map
+     * itself, so a shared segment does not keep an outdated map and all of its segments reachable.
+     */
+    private final Object ownerToken = new Object();
+
+    /**
+     * Constructs a new, empty map.
+     */
+    SegmentedLong2ObjectMap() {
+        segmentBits = MIN_SEGMENT_BITS;
+        segments = newSegments(segmentBits);
+    }
+
+    private SegmentedLong2ObjectMap(SegmentedLong2ObjectMap<V> source) {
+        segmentBits = source.segmentBits;
+        segments = source.segments.clone();
+        size = source.size;
+    }
+
+    /**
+     * Creates a copy of this map that can be modified without affecting this map.
+     *
+     * @return A new map with the same mappings. Never null.
+     */
+    @NotNull SegmentedLong2ObjectMap<V> copy() {
+        return new SegmentedLong2ObjectMap<>(this);
+    }
+
+    @Nullable V get(long key) {
+        Segment<V> segment = segments[segmentOf(key)];
+        return segment == null ? null : segment.map.get(key);
+    }
+
+    @Nullable V put(long key, @NotNull V value) {
+        V previous = getWritableSegment(segmentOf(key)).map.put(key, value);
+        if (previous == null) {
+            size++;
+            growIfNeeded();
+        }
+        return previous;
+    }
+
+    @Nullable V remove(long key) {
+        int index = segmentOf(key);
+        Segment<V> segment = segments[index];
+        if (segment == null || !segment.map.containsKey(key)) {
+            return null;
+        }
+        segment = getWritableSegment(index);
+        V previous = segment.map.remove(key);
+        size--;
+        if (segment.map.isEmpty()) {
+            segments[index] = null;
+        }
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        segmentBits = MIN_SEGMENT_BITS;
+        segments = newSegments(segmentBits);
+        size = 0;
+    }
+
+    /**
+     * Iterates over all mappings. The returned entries may be reused by the iterator.
+     */
+    @Override
+    public @NotNull Iterator<Long2ObjectMap.Entry<V>> iterator() {
+        return new Iterator<>() {
+            private int nextSegment;
+            private Iterator<Long2ObjectMap.Entry<V>> current = advance();
+
+            private Iterator<Long2ObjectMap.Entry<V>> advance() {
+                while (nextSegment < segments.length) {
+                    Segment<V> segment = segments[nextSegment++];
+                    if (segment != null) {
+                        return segment.map.long2ObjectEntrySet().fastIterator();
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                while (current != null && !current.hasNext()) {
+                    current = advance();
+                }
+                return current != null;
+            }
+
+            @Override
+            public Long2ObjectMap.Entry<V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    private int segmentOf(long key) {
+        return (int) (HashCommon.mix(key) >>> (Long.SIZE - segmentBits));
+    }
+
+    private Segment<V> getWritableSegment(int index) {
+        Segment<V> segment = segments[index];
+        if (segment == null) {
+            segment = new Segment<>(ownerToken, new Long2ObjectOpenHashMap<>());
+            segments[index] = segment;
+        } else if (segment.owner != ownerToken) {
+            segment = new Segment<>(ownerToken, segment.map.clone());
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Doubles the number of segments once the size exceeds their square. As the size has to quadruple
+     * between two redistributions, the amortized cost per insertion stays constant.
+     */
+    private void growIfNeeded() {
+        if (segmentBits >= MAX_SEGMENT_BITS || size <= 1L << (2 * segmentBits)) {
+            return;
+        }
+        Segment<V>[] oldSegments = segments;
+        segmentBits++;
+        segments = newSegments(segmentBits);
+        for (Segment<V> segment : oldSegments) {
+            if (segment == null) {
+                continue;
+            }
+            for (Long2ObjectMap.Entry<V> entry : segment.map.long2ObjectEntrySet()) {
+                getWritableSegment(segmentOf(entry.getLongKey())).map.put(entry.getLongKey(), entry.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Segment<V>[] newSegments(int segmentBits) {
+        return (Segment<V>[]) new Segment[1 << segmentBits];
+    }
+
+    /**
+     * A part of the mappings, together with the token of the map that created it and may modify it.
+     */
+    private record Segment<V>(Object owner, Long2ObjectOpenHashMap<V> map) {
+
+    }
+}
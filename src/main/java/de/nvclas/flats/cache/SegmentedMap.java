@@ -0,0 +1,301 @@
+package de.nvclas.flats.cache;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A map that shares its contents with its copies, the object counterpart of {@link SegmentedLong2ObjectMap}.
+ * <p>
+ * Copying the map and modifying a single key costs about the square root of the size instead of the size.
+ * Keys are compared either by {@link Object#equals(Object)} or by identity, see {@link #byEquality()} and
+ * {@link #byIdentity()}. The views of the map are unmodifiable, changes are only made through
+ * {@link #put(Object, Object)} and {@link #remove(Object)}.
+ * <p>
+ * This class is not thread-safe. A map is only read once it has been copied, and all changes are applied
+ * to the copy.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class SegmentedMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int MIN_SEGMENT_BITS = 4;
+    private static final int MAX_SEGMENT_BITS = 16;
+
+    private static final Hash.Strategy<Object> EQUALITY = new Hash.Strategy<>() {
+        @Override
+        public int hashCode(Object o) {
+            return Objects.hashCode(o);
+        }
+
+        @Override
+        public boolean equals(Object a, Object b) {
+            return Objects.equals(a, b);
+        }
+    };
+
+    private static final Hash.Strategy<Object> IDENTITY = new Hash.Strategy<>() {
+        @Override
+        public int hashCode(Object o) {
+            return System.identityHashCode(o);
+        }
+
+        @Override
+        public boolean equals(Object a, Object b) {
+            return a == b;
+        }
+    };
+
+    private final Hash.Strategy<Object> strategy;
+    private Segment<K, V>[] segments;
+    private int segmentBits;
+    private int size;
+
+    /**
+     * Identifies the segments this map created and may modify. Segments keep this token rather than the map
+     * itself, so a shared segment does not keep an outdated map and all of its segments reachable.
+     */
+    private final Object ownerToken = new Object();
+
+    private SegmentedMap(Hash.Strategy<Object> strategy) {
+        this.strategy = strategy;
+        segmentBits = MIN_SEGMENT_BITS;
+        segments = newSegments(segmentBits);
+    }
+
+    private SegmentedMap(SegmentedMap<K, V> source) {
+        strategy = source.strategy;
+        segmentBits = source.segmentBits;
+        segments = source.segments.clone();
+        size = source.size;
+    }
+
+    /**
+     * @return A new, empty map comparing its keys by {@link Object#equals(Object)}. Never null.
+     */
+    static <K, V> @NotNull SegmentedMap<K, V> byEquality() {
+        return new SegmentedMap<>(EQUALITY);
+    }
+
+    /**
+     * @return A new, empty map comparing its keys by identity. Never null.
+     */
+    static <K, V> @NotNull SegmentedMap<K, V> byIdentity() {
+        return new SegmentedMap<>(IDENTITY);
+    }
+
+    /**
+     * Creates a copy of this map that can be modified without affecting this map.
+     *
+     * @return A new map with the same mappings. Never null.
+     */
+    @NotNull SegmentedMap<K, V> copy() {
+        return new SegmentedMap<>(this);
+    }
+
+    @Override
+    public @Nullable V get(Object key) {
+        Segment<K, V> segment = segments[segmentOf(key)];
+        return segment == null ? null : segment.map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Segment<K, V> segment = segments[segmentOf(key)];
+        return segment != null && segment.map.containsKey(key);
+    }
+
+    @Override
+    public @Nullable V put(K key, V value) {
+        Segment<K, V> segment = getWritableSegment(segmentOf(key));
+        boolean added = !segment.map.containsKey(key);
+        V previous = segment.map.put(key, value);
+        if (added) {
+            size++;
+            growIfNeeded();
+        }
+        return previous;
+    }
+
+    @Override
+    public @Nullable V remove(Object key) {
+        int index = segmentOf(key);
+        Segment<K, V> segment = segments[index];
+        if (segment == null || !segment.map.containsKey(key)) {
+            return null;
+        }
+        segment = getWritableSegment(index);
+        V previous = segment.map.remove(key);
+        size--;
+        if (segment.map.isEmpty()) {
+            segments[index] = null;
+        }
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        segmentBits = MIN_SEGMENT_BITS;
+        segments = newSegments(segmentBits);
+        size = 0;
+    }
+
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new SegmentIterator<>(segment -> segment.map.keySet().iterator());
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public @NotNull Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new SegmentIterator<>(segment -> segment.map.values().iterator());
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new SegmentIterator<>(
+                        segment -> Collections.unmodifiableMap(segment.map).entrySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int segmentOf(Object key) {
+        return HashCommon.mix(strategy.hashCode(key)) >>> (Integer.SIZE - segmentBits);
+    }
+
+    private Segment<K, V> getWritableSegment(int index) {
+        Segment<K, V> segment = segments[index];
+        if (segment == null) {
+            segment = new Segment<>(ownerToken, new Object2ObjectOpenCustomHashMap<>(strategy));
+            segments[index] = segment;
+        } else if (segment.owner != ownerToken) {
+            segment = new Segment<>(ownerToken, segment.map.clone());
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Doubles the number of segments once the size exceeds their square, see {@link SegmentedLong2ObjectMap}.
+     */
+    private void growIfNeeded() {
+        if (segmentBits >= MAX_SEGMENT_BITS || size <= 1L << (2 * segmentBits)) {
+            return;
+        }
+        Segment<K, V>[] oldSegments = segments;
+        segmentBits++;
+        segments = newSegments(segmentBits);
+        for (Segment<K, V> segment : oldSegments) {
+            if (segment == null) {
+                continue;
+            }
+            for (Map.Entry<K, V> entry : segment.map.entrySet()) {
+                getWritableSegment(segmentOf(entry.getKey())).map.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int segmentBits) {
+        return (Segment<K, V>[]) new Segment[1 << segmentBits];
+    }
+
+    /**
+     * A part of the mappings, together with the token of the map that created it and may modify it.
+     */
+    private record Segment<K, V>(Object owner, Object2ObjectOpenCustomHashMap<K, V> map) {
+
+    }
+
+    /**
+     * Iterates over the elements of all segments in turn, without allowing them to be removed.
+     */
+    private final class SegmentIterator<T> implements Iterator<T> {
+
+        private final Function<Segment<K, V>, Iterator<T>> elements;
+        private final Segment<K, V>[] iteratedSegments = segments;
+        private int nextSegment;
+        private @Nullable Iterator<T> current;
+
+        private SegmentIterator(Function<Segment<K, V>, Iterator<T>> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (nextSegment == iteratedSegments.length) {
+                    return false;
+                }
+                Segment<K, V> segment = iteratedSegments[nextSegment++];
+                current = segment == null ? null : elements.apply(segment);
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
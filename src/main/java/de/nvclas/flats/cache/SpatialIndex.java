@@ -1,146 +1,196 @@
 package de.nvclas.flats.cache;
 
 import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
 import de.nvclas.flats.volumes.Flat;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents a spatial index that organizes and queries {@link Flat} objects based on their
  * spatial locations and areas.
  * <p>
- * This class uses a grid-based mapping system to efficiently manage the association
- * between spatial boundaries and {@link Flat} objects.
+ * Implementations differ in how they partition space, see {@link SpatialIndexType} for the
+ * available backends. All implementations keep the flats of different worlds apart.
+ * <p>
+ * Implementations are not thread-safe. Once an index has been built it is only read, which allows
+ * {@link IndexSnapshot}s to share it between threads. Changes are applied to a {@link #copy()} instead,
+ * which becomes the index of the next snapshot.
  */
-public class SpatialIndex {
+public interface SpatialIndex {
 
     /**
-     * The size of each grid cell in blocks.
+     * Adds the specified {@link Flat} to the spatial index.
      * <p>
-     * This value determines the resolution of the spatial grid used by the {@link SpatialIndex}
-     * to index and look up flats. Smaller values result in finer granularity of grid cells,
-     * potentially increasing memory usage but improving query precision.
+     * The provided flat and its associated areas are integrated into the index
+     * to enable efficient location-based queries.
+     *
+     * @param flat The {@link Flat} to add. Must not be null.
      */
-    private static final int GRID_SIZE = 16;
+    void addFlat(@NotNull Flat flat);
 
     /**
-     * A mapping of grid cell coordinates, represented by {@link GridKey}, to
-     * the list of {@link Flat} objects that intersect with those cells.
+     * Adds all specified {@link Flat}s to the spatial index at once.
      * <p>
-     * This grid-based structure is used to efficiently query and manage flats
-     * within specific spatial boundaries.
+     * This is used to build a new index on startup. Implementations may override it to build their
+     * structure in bulk instead of inserting the areas one at a time.
+     *
+     * @param flats The {@link Flat}s to add. Must not be null.
      */
-    private final Map<GridKey, List<Flat>> gridMap = new HashMap<>();
+    default void addFlats(@NotNull Collection<Flat> flats) {
+        for (Flat flat : flats) {
+            addFlat(flat);
+        }
+    }
 
     /**
-     * Adds the specified {@link Flat} to the spatial index.
+     * Adds a single {@link Area} of a {@link Flat} to the spatial index.
      * <p>
-     * The provided flat and its associated areas are integrated into the grid structure
-     * to enable efficient location-based queries.
+     * This is used when an area is added to a flat that is already indexed.
      *
-     * @param flat The {@link Flat} to add. Must not be null.
+     * @param flat The {@link Flat} the area belongs to. Must not be null.
+     * @param area The {@link Area} to add. Must not be null.
      */
-    public void addFlat(@NotNull Flat flat) {
-        for (Area area : flat.getAreas()) {
-            addAreaToGrid(area, flat);
-        }
-    }
+    void addArea(@NotNull Flat flat, @NotNull Area area);
 
     /**
      * Removes the specified {@link Flat} from the spatial index.
      * <p>
-     * This method ensures that the given {@link Flat} is no longer associated with
-     * any grid cells in the index.
+     * This method ensures that the given {@link Flat} and all its areas are no longer
+     * tracked by the index.
      *
      * @param flat The {@link Flat} to be removed. Must not be null.
      */
-    public void removeFlat(@NotNull Flat flat) {
-        for (List<Flat> flats : gridMap.values()) {
-            flats.remove(flat);
-        }
-
-        gridMap.entrySet().removeIf(entry -> entry.getValue().isEmpty());
-    }
+    void removeFlat(@NotNull Flat flat);
 
     /**
-     * Removes all entries from the grid, effectively clearing the spatial index.
+     * Removes all entries from the index, effectively clearing the spatial index.
      * <p>
      * After invoking this method, the index will be empty, and any previously added
      * flats will no longer be tracked.
      */
-    public void clear() {
-        gridMap.clear();
-    }
+    void clear();
 
     /**
-     * Retrieves the {@link Flat} that contains the specified {@link Location}, if any.
+     * Creates a copy of this index that can be modified without affecting this index.
      * <p>
-     * This method searches through the grid cells and evaluates candidate flats
-     * to determine whether the given {@link Location} lies within their bounds.
+     * Implementations share the unmodified parts of their structure with this index and only copy
+     * what the copy modifies. Copying an index and applying a single change is therefore much cheaper
+     * than building the index again.
+     *
+     * @return A new index containing the same flats. Never null.
+     */
+    @NotNull SpatialIndex copy();
+
+    /**
+     * Retrieves the {@link IndexedArea} that contains the specified {@link Location}, if any.
+     * <p>
+     * Only areas overlapping the queried location are tested, other areas of the same flat are skipped.
+     *
+     * @param location The {@link Location} to find the area for. Must not be null.
+     * @return The {@link IndexedArea} that contains the specified {@link Location}, or {@code null} if none is found.
+     */
+    @Nullable IndexedArea getAreaAtLocation(@NotNull Location location);
+
+    /**
+     * Retrieves the {@link Flat} that contains the specified {@link Location}, if any.
      *
      * @param location The {@link Location} to find the {@link Flat} for. Must not be null.
      * @return The {@link Flat} that contains the specified {@link Location}, or {@code null} if none is found.
      */
-    public @Nullable Flat getFlatAtLocation(@NotNull Location location) {
-        GridKey key = getGridKey(location);
-        List<Flat> candidates = gridMap.getOrDefault(key, List.of());
-
-        for (Flat flat : candidates) {
-            if (flat.isWithinBounds(location)) {
-                return flat;
-            }
-        }
+    default @Nullable Flat getFlatAtLocation(@NotNull Location location) {
+        IndexedArea indexedArea = getAreaAtLocation(location);
+        return indexedArea == null ? null : indexedArea.flat();
+    }
 
-        return null;
+    /**
+     * Retrieves the {@link IndexedArea}s of all areas of the given {@link World} that share at least one block
+     * with the given box.
+     *
+     * @param world The {@link World} to search in. Must not be null.
+     * @param box   The {@link BlockBox} to search. Must not be null.
+     * @return A new {@link List} of the intersecting entries without duplicates. Never null.
+     */
+    @NotNull List<IndexedArea> getEntriesIntersecting(@NotNull World world, @NotNull BlockBox box);
+
+    /**
+     * Retrieves all {@link Area}s of the given {@link World} that share at least one block with the given box.
+     *
+     * @param world The {@link World} to search in. Must not be null.
+     * @param box   The {@link BlockBox} to search. Must not be null.
+     * @return A new {@link List} of the intersecting areas without duplicates. Never null.
+     */
+    default @NotNull List<Area> getAreasIntersecting(@NotNull World world, @NotNull BlockBox box) {
+        return toAreas(getEntriesIntersecting(world, box));
     }
 
     /**
-     * Adds an {@link Area} of a {@link Flat} to the spatial grid structure.
-     * <p>
-     * Updates the underlying grid to associate the specified flat with all grid cells
-     * that the area intersects.
+     * Retrieves the {@link IndexedArea}s of all areas whose closest block lies within the given distance
+     * of a {@link Location}.
      *
-     * @param area the area to be added to the grid, representing a region of the flat
-     * @param flat the flat associated with the area being added
+     * @param location The center of the search. Must not be null and must reference a world.
+     * @param radius   The maximum distance in blocks.
+     * @return A new {@link List} of the entries within the radius without duplicates. Never null.
      */
-    private void addAreaToGrid(Area area, Flat flat) {
-        int minGridX = (int) Math.floor(area.getMinX() / GRID_SIZE);
-        int maxGridX = (int) Math.floor(area.getMaxX() / GRID_SIZE);
-        int minGridZ = (int) Math.floor(area.getMinZ() / GRID_SIZE);
-        int maxGridZ = (int) Math.floor(area.getMaxZ() / GRID_SIZE);
-
-        for (int gridX = minGridX; gridX <= maxGridX; gridX++) {
-            for (int gridZ = minGridZ; gridZ <= maxGridZ; gridZ++) {
-                GridKey key = new GridKey(gridX, gridZ);
-                gridMap.computeIfAbsent(key, k -> new ArrayList<>()).add(flat);
-            }
+    default @NotNull List<IndexedArea> getEntriesWithinRadius(@NotNull Location location, double radius) {
+        World world = location.getWorld();
+        if (world == null) {
+            return new ArrayList<>();
         }
+        double radiusSquared = radius * radius;
+        List<IndexedArea> entries = getEntriesIntersecting(world, BlockBox.around(location, radius));
+        entries.removeIf(entry -> entry.area().distanceSquared(location) > radiusSquared);
+        return entries;
     }
 
     /**
-     * Computes the {@link GridKey} corresponding to the grid cell that contains the specified {@link Location}.
-     * <p>
-     * This is used to map a {@link Location} to its respective grid cell based on spatial division.
+     * Retrieves all {@link Area}s whose closest block lies within the given distance of a {@link Location}.
      *
-     * @param location The {@link Location} for which the grid key is to be generated. Must not be null.
-     * @return A {@link GridKey} representing the grid cell coordinates for the specified {@link Location}.
+     * @param location The center of the search. Must not be null and must reference a world.
+     * @param radius   The maximum distance in blocks.
+     * @return A new {@link List} of the areas within the radius without duplicates. Never null.
      */
-    private GridKey getGridKey(Location location) {
-        int gridX = (int) Math.floor((double) location.getBlockX() / GRID_SIZE);
-        int gridZ = (int) Math.floor((double) location.getBlockZ() / GRID_SIZE);
-        return new GridKey(gridX, gridZ);
+    default @NotNull List<Area> getAreasWithinRadius(@NotNull Location location, double radius) {
+        return toAreas(getEntriesWithinRadius(location, radius));
+    }
+
+    private static @NotNull List<Area> toAreas(@NotNull List<IndexedArea> entries) {
+        List<Area> areas = new ArrayList<>(entries.size());
+        for (IndexedArea entry : entries) {
+            areas.add(entry.area());
+        }
+        return areas;
     }
 
     /**
-     * A key for the grid map, representing a grid cell's coordinates.
+     * Writes the structure of this index, so it can be restored later without building it again.
+     * <p>
+     * Areas are not written themselves but referenced by their ordinal, see {@link SpatialIndexStore}.
+     *
+     * @param out      The output to write to. Must not be null.
+     * @param ordinals A mapping of every indexed {@link Area} to its ordinal. Must not be null.
+     * @throws IOException If writing to the output fails.
      */
-    private record GridKey(int x, int z) {
+    void write(@NotNull DataOutput out, @NotNull Reference2IntMap<Area> ordinals) throws IOException;
 
-    }
+    /**
+     * Restores the structure previously written by {@link #write(DataOutput, Reference2IntMap)} into this
+     * empty index.
+     *
+     * @param in      The buffer to read from, positioned at the start of the structure. Must not be null.
+     * @param entries The entries of the index by the ordinals of their areas. Must not be null.
+     * @throws java.nio.BufferUnderflowException If the buffer ends before the structure is complete.
+     * @throws IndexOutOfBoundsException         If the structure references an unknown ordinal.
+     */
+    void restore(@NotNull ByteBuffer in, @NotNull IndexedArea[] entries);
 }
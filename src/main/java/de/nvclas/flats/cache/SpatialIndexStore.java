@@ -0,0 +1,263 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists a built {@link SpatialIndex} next to the flats, so it does not have to be built again on startup.
+ * <p>
+ * The file starts with a header of {@link #MAGIC}, {@link #VERSION}, the {@link SpatialIndexType} and a content
+ * hash of all indexed areas. It is followed by a table resolving the ordinal of every area to the name of its
+ * flat and its position within the flat, the structure written by {@link SpatialIndex#write}, and a CRC32 of all
+ * preceding bytes.
+ * <p>
+ * Loading reads the whole file into a heap buffer rather than mapping it, so the file is closed right away and
+ * the next save can replace it. The index is only restored if the type and the content hash match the loaded
+ * flats, so cells do not have to be computed and trees do not have to be sorted again. Otherwise, the caller
+ * builds the index from scratch and writes it again.
+ */
+final class SpatialIndexStore {
+
+    /**
+     * The first four bytes of every index file, {@code FLIX} in ASCII.
+     */
+    static final int MAGIC = 0x464C4958;
+
+    /**
+     * The version of the index file format.
+     */
+    static final short VERSION = 2;
+
+    private final File file;
+    private final Logger logger;
+
+    SpatialIndexStore(@NotNull File file, @NotNull Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Restores the persisted index of the specified flats.
+     *
+     * @param flats The loaded flats, mapped by their names. Must not be null.
+     * @param type  The type of the index to restore. Must not be null.
+     * @return The restored index, or {@code null} if there is no persisted index or it does not match the flats.
+     */
+    @Nullable SpatialIndex load(@NotNull Map<String, Flat> flats, @NotNull SpatialIndexType type) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (!hasValidChecksum(buffer) || buffer.getInt() != MAGIC || buffer.getShort() != VERSION ||
+                !type.getConfigValue().equals(readString(buffer)) || buffer.getLong() != contentHash(flats)) {
+                logger.log(Level.INFO, () -> "Spatial index in " + file.getName() + " is outdated and is rebuilt");
+                return null;
+            }
+            IndexedArea[] entries = readEntries(buffer, flats);
+            if (entries == null) {
+                logger.log(Level.INFO, () -> "Spatial index in " + file.getName() + " is outdated and is rebuilt");
+                return null;
+            }
+            SpatialIndex index = type.createIndex();
+            index.restore(buffer, entries);
+            return index;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            logger.log(Level.WARNING, e, () -> "Failed to restore the spatial index from " + file.getName());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the specified index of the given areas to the index file.
+     * <p>
+     * The areas must be exactly those the index was built from. The file is written to a temporary file first,
+     * which then replaces the index file in a single atomic move.
+     *
+     * @param areas The areas of all indexed flats, mapped by flat name. Must not be null.
+     * @param index The index built from the areas. Must not be null.
+     * @param type  The type of the index. Must not be null.
+     * @return {@code true} if the file was written; {@code false} if writing failed.
+     */
+    boolean save(@NotNull Map<String, List<Area>> areas, @NotNull SpatialIndex index,
+                 @NotNull SpatialIndexType type) {
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(file.getName() + ".tmp");
+        long hash = 0;
+        int areaCount = 0;
+        Reference2IntMap<Area> ordinals = new Reference2IntOpenHashMap<>();
+        for (Map.Entry<String, List<Area>> flatAreas : areas.entrySet()) {
+            hash += hashAreas(flatAreas.getKey(), flatAreas.getValue());
+            for (Area area : flatAreas.getValue()) {
+                ordinals.put(area, areaCount++);
+            }
+        }
+
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+                CheckedOutputStream checkedOut = new CheckedOutputStream(new BufferedOutputStream(fileOut),
+                                                                         new CRC32());
+                DataOutputStream out = new DataOutputStream(checkedOut);
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                writeString(out, type.getConfigValue());
+                out.writeLong(mixCount(hash, areas.size()));
+
+                out.writeInt(areas.size());
+                out.writeInt(areaCount);
+                for (Map.Entry<String, List<Area>> flatAreas : areas.entrySet()) {
+                    writeString(out, flatAreas.getKey());
+                    out.writeInt(flatAreas.getValue().size());
+                }
+                index.write(out, ordinals);
+
+                out.flush();
+                out.writeInt((int) checkedOut.getChecksum().getValue());
+                out.flush();
+                fileOut.getFD().sync();
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e, () -> "Failed to save the spatial index to " + file.getName());
+            return false;
+        }
+    }
+
+    /**
+     * Calculates the content hash of the specified flats.
+     * <p>
+     * The hash covers the UTF-8 bytes of the name of each flat and the world, bounds and position of each of its areas. It does not
+     * depend on the iteration order of the flats.
+     *
+     * @param flats The flats, mapped by their names. Must not be null.
+     * @return The content hash.
+     */
+    static long contentHash(@NotNull Map<String, Flat> flats) {
+        long hash = 0;
+        for (Flat flat : flats.values()) {
+            hash += hashAreas(flat.getName(), flat.getAreas());
+        }
+        return mixCount(hash, flats.size());
+    }
+
+    private static long hashAreas(String flatName, List<Area> areas) {
+        long nameHash = hashName(flatName);
+        long hash = 0;
+        for (int position = 0; position < areas.size(); position++) {
+            Area area = areas.get(position);
+            long areaHash = HashCommon.mix(nameHash ^ position);
+            areaHash = HashCommon.mix(areaHash ^ area.getWorldId().getMostSignificantBits());
+            areaHash = HashCommon.mix(areaHash ^ area.getWorldId().getLeastSignificantBits());
+            areaHash = HashCommon.mix(areaHash ^ pack(area.getMinX(), area.getMinY()));
+            areaHash = HashCommon.mix(areaHash ^ pack(area.getMinZ(), area.getMaxX()));
+            areaHash = HashCommon.mix(areaHash ^ pack(area.getMaxY(), area.getMaxZ()));
+            hash += areaHash;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of a flat name to 64 bits, folding eight bytes at a time.
+     */
+    private static long hashName(String flatName) {
+        byte[] bytes = flatName.getBytes(StandardCharsets.UTF_8);
+        long hash = HashCommon.mix(bytes.length);
+        long word = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            word = (word << 8) | (bytes[i] & 0xFF);
+            if ((i & 7) == 7 || i == bytes.length - 1) {
+                hash = HashCommon.mix(hash ^ word);
+                word = 0;
+            }
+        }
+        return hash;
+    }
+
+    private static long mixCount(long hash, int flatCount) {
+        return HashCommon.mix(hash ^ flatCount);
+    }
+
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Resolves the ordinals of the index file to the areas of the loaded flats.
+     *
+     * @return The entries by ordinal, or {@code null} if a flat or area of the file does not exist.
+     */
+    private static IndexedArea @Nullable [] readEntries(ByteBuffer buffer, Map<String, Flat> flats) {
+        int flatCount = buffer.getInt();
+        IndexedArea[] entries = new IndexedArea[buffer.getInt()];
+        if (flatCount != flats.size()) {
+            return null;
+        }
+        int ordinal = 0;
+        for (int f = 0; f < flatCount; f++) {
+            Flat flat = flats.get(readString(buffer));
+            int areaCount = buffer.getInt();
+            if (flat == null || flat.getAreas().size() != areaCount) {
+                return null;
+            }
+            for (Area area : flat.getAreas()) {
+                entries[ordinal++] = new IndexedArea(area, flat);
+            }
+        }
+        return ordinal == entries.length ? entries : null;
+    }
+
+    private static boolean hasValidChecksum(ByteBuffer buffer) {
+        if (buffer.limit() < Integer.BYTES) {
+            return false;
+        }
+        int checksumPosition = buffer.limit() - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, checksumPosition));
+        if ((int) crc.getValue() != buffer.getInt(checksumPosition)) {
+            return false;
+        }
+        buffer.limit(checksumPosition);
+        return true;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
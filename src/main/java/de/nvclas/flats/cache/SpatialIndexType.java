@@ -0,0 +1,52 @@
+package de.nvclas.flats.cache;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Represents the available backends of the {@link SpatialIndex}.
+ * Each enumerated value corresponds to a value of the {@code spatialIndex} setting.
+ */
+@Getter
+public enum SpatialIndexType {
+    GRID("grid"),
+    GRID_3D("grid3d"),
+    RTREE("rtree");
+
+    private final String configValue;
+
+    SpatialIndexType(String configValue) {
+        this.configValue = configValue;
+    }
+
+    /**
+     * Creates a new, empty {@link SpatialIndex} of this type.
+     *
+     * @return A new {@link SpatialIndex} instance. Never null.
+     */
+    public @NotNull SpatialIndex createIndex() {
+        return switch (this) {
+            case GRID -> new GridSpatialIndex(false);
+            case GRID_3D -> new GridSpatialIndex(true);
+            case RTREE -> new RTreeSpatialIndex();
+        };
+    }
+
+    /**
+     * Resolves the {@link SpatialIndexType} matching the given setting value.
+     * <p>
+     * The comparison ignores case. If no type matches, {@code null} is returned.
+     *
+     * @param configValue The value of the {@code spatialIndex} setting. Must not be null.
+     * @return The matching {@link SpatialIndexType}, or {@code null} if the value is unknown.
+     */
+    public static @Nullable SpatialIndexType fromConfigValue(@NotNull String configValue) {
+        for (SpatialIndexType type : values()) {
+            if (type.configValue.equalsIgnoreCase(configValue)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
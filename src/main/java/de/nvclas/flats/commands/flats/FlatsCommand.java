@@ -3,8 +3,10 @@ package de.nvclas.flats.commands.flats;
 import de.nvclas.flats.Flats;
 import de.nvclas.flats.commands.flats.subcommands.AddSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.ClaimSubCommand;
+import de.nvclas.flats.commands.flats.subcommands.ExportSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.InfoSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.ListSubCommand;
+import de.nvclas.flats.commands.flats.subcommands.MigrateSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.RemoveSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.SelectSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.ShowSubCommand;
@@ -13,6 +15,7 @@ import de.nvclas.flats.commands.flats.subcommands.UnclaimSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.UntrustSubCommand;
 import de.nvclas.flats.commands.flats.subcommands.UpdateSubCommand;
 import de.nvclas.flats.config.SettingsConfig;
+import de.nvclas.flats.storage.StorageType;
 import de.nvclas.flats.util.I18n;
 import de.nvclas.flats.util.Permissions;
 import org.bukkit.Bukkit;
@@ -118,6 +121,8 @@ public class FlatsCommand implements CommandExecutor, TabCompleter {
 
     private void sendAdminHelpMessages(Player player) {
         player.sendMessage(I18n.translate("help.update"));
+        player.sendMessage(I18n.translate("help.migrate"));
+        player.sendMessage(I18n.translate("help.export"));
     }
 
 
@@ -158,6 +163,11 @@ public class FlatsCommand implements CommandExecutor, TabCompleter {
             return getOnlinePlayerCompletions();
         }
 
+        if (FlatsSubCommand.MIGRATE.getSubCommandName().equalsIgnoreCase(subCommand) &&
+            Permissions.hasAdminPermission(player)) {
+            return getMigrateTargetCompletions(input);
+        }
+
         return List.of();
     }
 
@@ -170,6 +180,14 @@ public class FlatsCommand implements CommandExecutor, TabCompleter {
                 .toList();
     }
 
+    private List<String> getMigrateTargetCompletions(String input) {
+        String lowerInput = input.toLowerCase();
+        return MigrateSubCommand.TARGETS.stream()
+                .map(StorageType::getConfigValue)
+                .filter(target -> target.startsWith(lowerInput))
+                .toList();
+    }
+
     private List<String> getOnlinePlayerCompletions() {
         return Bukkit.getOnlinePlayers().stream().map(Player::getName).toList();
     }
@@ -182,7 +200,7 @@ public class FlatsCommand implements CommandExecutor, TabCompleter {
             case "claim", "unclaim" -> Permissions.canClaimFlats(player, settingsConfig);
             case "trust", "untrust" -> Permissions.canTrustPlayers(player, settingsConfig);
             case "show" -> Permissions.canShowFlats(player, settingsConfig);
-            case "update" -> Permissions.hasAdminPermission(player);
+            case "update", "migrate", "export" -> Permissions.hasAdminPermission(player);
             default -> false;
         };
     }
@@ -191,6 +209,8 @@ public class FlatsCommand implements CommandExecutor, TabCompleter {
     private void registerSubCommands() {
         subCommands.put(FlatsSubCommand.SELECT.getSubCommandName(), new SelectSubCommand(flatsPlugin));
         subCommands.put(FlatsSubCommand.UPDATE.getSubCommandName(), new UpdateSubCommand(flatsPlugin));
+        subCommands.put(FlatsSubCommand.MIGRATE.getSubCommandName(), new MigrateSubCommand(flatsPlugin));
+        subCommands.put(FlatsSubCommand.EXPORT.getSubCommandName(), new ExportSubCommand(flatsPlugin));
         subCommands.put(FlatsSubCommand.LIST.getSubCommandName(), new ListSubCommand(flatsPlugin));
         subCommands.put(FlatsSubCommand.INFO.getSubCommandName(), new InfoSubCommand(flatsPlugin));
         subCommands.put(FlatsSubCommand.SHOW.getSubCommandName(), new ShowSubCommand(flatsPlugin));
@@ -18,7 +18,9 @@ public enum FlatsSubCommand {
     INFO("info"),
     LIST("list"),
     SHOW("show"),
-    UPDATE("update");
+    UPDATE("update"),
+    MIGRATE("migrate"),
+    EXPORT("export");
 
     private final String subCommandName;
 
@@ -7,7 +7,9 @@ import de.nvclas.flats.config.SettingsConfig;
 import de.nvclas.flats.util.I18n;
 import de.nvclas.flats.util.Permissions;
 import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
 import de.nvclas.flats.volumes.Selection;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
@@ -45,7 +47,7 @@ public class AddSubCommand implements SubCommand {
             player.sendMessage(Flats.PREFIX + I18n.translate("add.success", flatName));
             return;
         }
-        flatsCache.getExistingFlat(flatName).addArea(area);
+        flatsCache.addArea(flatName, area);
         player.sendMessage(Flats.PREFIX + I18n.translate("add.area_added", flatName));
     }
 
@@ -63,7 +65,12 @@ public class AddSubCommand implements SubCommand {
     }
 
     private boolean doesSelectionIntersect(Player player, Selection selection) {
-        return flatsCache.getAllAreas().stream().filter(selection::intersects).findFirst().map(area -> {
+        World world = selection.getPos1().getWorld();
+        if (world == null) {
+            return false;
+        }
+        BlockBox selectionBox = BlockBox.of(selection.getPos1(), selection.getPos2());
+        return flatsCache.getAreasIntersecting(world, selectionBox).stream().findFirst().map(area -> {
             player.sendMessage(Flats.PREFIX + I18n.translate("error.flat_intersect"));
             player.sendMessage(Flats.PREFIX + I18n.translate("error.flat_intersect.details",
                                                              area.getFlatName(),
@@ -2,6 +2,7 @@ package de.nvclas.flats.commands.flats.subcommands;
 
 import de.nvclas.flats.Flats;
 import de.nvclas.flats.cache.FlatsCache;
+import de.nvclas.flats.cache.PlayerNameCache;
 import de.nvclas.flats.commands.flats.SubCommand;
 import de.nvclas.flats.config.SettingsConfig;
 import de.nvclas.flats.util.I18n;
@@ -14,10 +15,12 @@ public class ClaimSubCommand implements SubCommand {
 
     private final SettingsConfig settingsConfig;
     private final FlatsCache flatsCache;
+    private final PlayerNameCache playerNameCache;
 
     public ClaimSubCommand(Flats flatsPlugin) {
         this.settingsConfig = flatsPlugin.getSettingsConfig();
         this.flatsCache = flatsPlugin.getFlatsCache();
+        this.playerNameCache = flatsPlugin.getPlayerNameCache();
     }
 
     @Override
@@ -36,7 +39,8 @@ public class ClaimSubCommand implements SubCommand {
             return;
         }
         if (flat.hasOwner()) {
-            player.sendMessage(Flats.PREFIX + I18n.translate("claim.already_owned_by", flat.getOwner().getName()));
+            player.sendMessage(Flats.PREFIX + I18n.translate("claim.already_owned_by",
+                                                             playerNameCache.getName(flat.getOwner())));
             return;
         }
         if (!Permissions.hasAdminPermission(player) &&
@@ -45,7 +49,7 @@ public class ClaimSubCommand implements SubCommand {
                                                              settingsConfig.getMaxClaimableFlats()));
             return;
         }
-        flat.setOwner(player);
+        flat.setOwner(player.getUniqueId());
         player.sendMessage(Flats.PREFIX + I18n.translate("claim.success"));
     }
 }
@@ -0,0 +1,64 @@
+package de.nvclas.flats.commands.flats.subcommands;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.commands.flats.SubCommand;
+import de.nvclas.flats.config.FlatsConfig;
+import de.nvclas.flats.storage.FlatSnapshot;
+import de.nvclas.flats.storage.SaveBatch;
+import de.nvclas.flats.storage.SavePipeline;
+import de.nvclas.flats.util.I18n;
+import de.nvclas.flats.util.Permissions;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Writes all flats into {@code flats.yml}, so they can be inspected and edited by hand regardless of the
+ * active storage.
+ * <p>
+ * The flats are captured on the main thread and written on the I/O thread of the {@link SavePipeline}.
+ * Flats in {@code flats.yml} that no longer exist are removed.
+ */
+public class ExportSubCommand implements SubCommand {
+
+    private final Flats flatsPlugin;
+
+    public ExportSubCommand(Flats flatsPlugin) {
+        this.flatsPlugin = flatsPlugin;
+    }
+
+    @Override
+    public void execute(@NotNull Player player, @NotNull String @NotNull [] args) {
+        if (!Permissions.hasAdminPermission(player)) {
+            Permissions.showNoPermissionMessage(player);
+            return;
+        }
+        List<Flat> flats = flatsPlugin.getFlatsCache().getAllFlats();
+        if (flats.isEmpty()) {
+            player.sendMessage(Flats.PREFIX + I18n.translate("export.no_flats"));
+            return;
+        }
+        List<FlatSnapshot> snapshots = flats.stream().map(FlatSnapshot::of).toList();
+        SaveBatch batch = SaveBatch.of(snapshots, Set.of());
+        flatsPlugin.getSavePipeline().execute(() -> export(player, batch));
+    }
+
+    private void export(Player player, SaveBatch batch) {
+        FlatsConfig flatsConfig = flatsPlugin.getFlatsStorage() instanceof FlatsConfig activeConfig ? activeConfig :
+                new FlatsConfig(Flats.FLATS_YAML_FILE, flatsPlugin);
+        int count = batch.changedFlats().size();
+        String message;
+        if (flatsConfig.saveBatch(batch)) {
+            flatsPlugin.getLogger().log(Level.INFO, () -> "Exported " + count + " flats to " + Flats.FLATS_YAML_FILE);
+            message = I18n.translate("export.success", count);
+        } else {
+            message = I18n.translate("export.failed");
+        }
+        Bukkit.getScheduler().runTask(flatsPlugin, () -> player.sendMessage(Flats.PREFIX + message));
+    }
+}
@@ -2,24 +2,29 @@ package de.nvclas.flats.commands.flats.subcommands;
 
 import de.nvclas.flats.Flats;
 import de.nvclas.flats.cache.FlatsCache;
+import de.nvclas.flats.cache.PlayerNameCache;
 import de.nvclas.flats.commands.flats.SubCommand;
 import de.nvclas.flats.config.SettingsConfig;
 import de.nvclas.flats.util.I18n;
 import de.nvclas.flats.util.Permissions;
 import de.nvclas.flats.volumes.Area;
 import de.nvclas.flats.volumes.Flat;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Iterator;
+import java.util.UUID;
+
 public class InfoSubCommand implements SubCommand {
 
     private final SettingsConfig settingsConfig;
     private final FlatsCache flatsCache;
+    private final PlayerNameCache playerNameCache;
 
     public InfoSubCommand(Flats flatsPlugin) {
         settingsConfig = flatsPlugin.getSettingsConfig();
         flatsCache = flatsPlugin.getFlatsCache();
+        playerNameCache = flatsPlugin.getPlayerNameCache();
     }
 
     @Override
@@ -29,11 +34,10 @@ public class InfoSubCommand implements SubCommand {
             return;
         }
 
-        for (Area area : flatsCache.getAllAreas()) {
-            if (area.isWithinBounds(player.getLocation())) {
-                sendFlatInfo(player, area);
-                return;
-            }
+        Area area = flatsCache.getAreaByLocation(player.getLocation());
+        if (area != null) {
+            sendFlatInfo(player, area);
+            return;
         }
         player.sendMessage(Flats.PREFIX + I18n.translate("error.not_in_flat"));
     }
@@ -47,11 +51,11 @@ public class InfoSubCommand implements SubCommand {
     }
 
     private void sendOwnerInfo(Player player, Flat flat) {
-        OfflinePlayer owner = flat.getOwner();
+        UUID owner = flat.getOwner();
         if (owner == null) {
             player.sendMessage(Flats.PREFIX + I18n.translate("info.unoccupied"));
         } else {
-            player.sendMessage(Flats.PREFIX + I18n.translate("info.owner", owner.getName()));
+            player.sendMessage(Flats.PREFIX + I18n.translate("info.owner", playerNameCache.getName(owner)));
         }
     }
 
@@ -60,10 +64,11 @@ public class InfoSubCommand implements SubCommand {
             return;
         }
         player.sendMessage(Flats.PREFIX + I18n.translate("info.trusted_header"));
-        for (OfflinePlayer trustedPlayer : flat.getTrusted()) {
-            String messageKey = flat.getTrusted()
-                                        .getLast() == trustedPlayer ? "info.trusted_last" : "info.trusted_item";
-            player.sendMessage(Flats.PREFIX + I18n.translate(messageKey, trustedPlayer.getName()));
+        Iterator<UUID> trustedIds = flat.getTrusted().iterator();
+        while (trustedIds.hasNext()) {
+            String trustedName = playerNameCache.getName(trustedIds.next());
+            String messageKey = trustedIds.hasNext() ? "info.trusted_item" : "info.trusted_last";
+            player.sendMessage(Flats.PREFIX + I18n.translate(messageKey, trustedName));
         }
     }
 }
@@ -2,6 +2,7 @@ package de.nvclas.flats.commands.flats.subcommands;
 
 import de.nvclas.flats.Flats;
 import de.nvclas.flats.cache.FlatsCache;
+import de.nvclas.flats.cache.PlayerNameCache;
 import de.nvclas.flats.commands.flats.SubCommand;
 import de.nvclas.flats.config.SettingsConfig;
 import de.nvclas.flats.util.I18n;
@@ -15,10 +16,12 @@ public class ListSubCommand implements SubCommand {
 
     private final SettingsConfig settingsConfig;
     private final FlatsCache flatsCache;
+    private final PlayerNameCache playerNameCache;
 
     public ListSubCommand(Flats flatsPlugin) {
         this.settingsConfig = flatsPlugin.getSettingsConfig();
         this.flatsCache = flatsPlugin.getFlatsCache();
+        this.playerNameCache = flatsPlugin.getPlayerNameCache();
     }
 
     @Override
@@ -34,10 +37,11 @@ public class ListSubCommand implements SubCommand {
         player.sendMessage(Flats.PREFIX + I18n.translate("list.title"));
         for (Flat flat : flatsCache.getAllFlats()) {
             player.sendMessage(Flats.PREFIX + I18n.translate("info.flat", flat.getName()));
-            if (!flat.hasOwner()) {
+            if (flat.getOwner() == null) {
                 player.sendMessage(Flats.PREFIX + I18n.translate("info.unoccupied"));
             } else {
-                player.sendMessage(Flats.PREFIX + I18n.translate("info.owner", flat.getOwner().getName()));
+                String ownerName = playerNameCache.getName(flat.getOwner());
+                player.sendMessage(Flats.PREFIX + I18n.translate("info.owner", ownerName));
             }
             listAllAreasOfFlat(player, flat);
         }
@@ -0,0 +1,91 @@
+package de.nvclas.flats.commands.flats.subcommands;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.commands.flats.SubCommand;
+import de.nvclas.flats.storage.FlatSnapshot;
+import de.nvclas.flats.storage.FlatsStorage;
+import de.nvclas.flats.storage.SavePipeline;
+import de.nvclas.flats.storage.StorageType;
+import de.nvclas.flats.util.I18n;
+import de.nvclas.flats.util.Permissions;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Copies all flats into another storage, the SQLite database {@code flats.db} by default or the binary
+ * snapshot {@code flats.bin}. The flats in the target storage are replaced.
+ * <p>
+ * The flats are captured from the {@link de.nvclas.flats.cache.FlatsCache} on the main thread, so the copy
+ * contains every change regardless of when the active storage was last written. The target is written on
+ * the I/O thread of the {@link SavePipeline}, so the server does not stall. Migrating into the active
+ * storage is refused, as it already holds the flats of the cache.
+ */
+public class MigrateSubCommand implements SubCommand {
+
+    /**
+     * The storages flats can be migrated to.
+     */
+    public static final List<StorageType> TARGETS = List.of(StorageType.SQLITE, StorageType.BINARY);
+
+    private final Flats flatsPlugin;
+
+    public MigrateSubCommand(Flats flatsPlugin) {
+        this.flatsPlugin = flatsPlugin;
+    }
+
+    @Override
+    public void execute(@NotNull Player player, @NotNull String @NotNull [] args) {
+        if (!Permissions.hasAdminPermission(player)) {
+            Permissions.showNoPermissionMessage(player);
+            return;
+        }
+        StorageType target = args.length < 2 ? StorageType.SQLITE : StorageType.fromConfigValue(args[1]);
+        if (!TARGETS.contains(target)) {
+            player.sendMessage(Flats.PREFIX + I18n.translate("migrate.usage"));
+            return;
+        }
+        if (flatsPlugin.getStorageType() == target) {
+            player.sendMessage(Flats.PREFIX + I18n.translate("migrate.active", getFileName(target)));
+            return;
+        }
+        List<FlatSnapshot> flats = flatsPlugin.getFlatsCache().getAllFlats().stream().map(FlatSnapshot::of).toList();
+        if (flats.isEmpty()) {
+            player.sendMessage(Flats.PREFIX + I18n.translate("migrate.no_flats"));
+            return;
+        }
+        flatsPlugin.getSavePipeline().execute(() -> migrate(player, target, flats));
+    }
+
+    private void migrate(Player player, StorageType target, List<FlatSnapshot> flats) {
+        String fileName = getFileName(target);
+        boolean migrated;
+        try {
+            FlatsStorage storage = flatsPlugin.createFlatsStorage(target);
+            try {
+                migrated = storage.importFlats(flats);
+            } finally {
+                storage.close();
+            }
+        } catch (IllegalStateException e) {
+            flatsPlugin.getLogger().log(Level.SEVERE, "Failed to migrate flats", e);
+            migrated = false;
+        }
+
+        String message;
+        if (migrated) {
+            flatsPlugin.getLogger().log(Level.INFO, () -> "Migrated " + flats.size() + " flats to " + fileName);
+            message = I18n.translate("migrate.success", flats.size(), fileName);
+        } else {
+            message = I18n.translate("migrate.failed", fileName);
+        }
+        Bukkit.getScheduler().runTask(flatsPlugin, () -> player.sendMessage(Flats.PREFIX + message));
+    }
+
+    private static String getFileName(StorageType target) {
+        return target == StorageType.BINARY ? Flats.FLATS_SNAPSHOT_FILE : Flats.FLATS_DATABASE_FILE;
+    }
+}
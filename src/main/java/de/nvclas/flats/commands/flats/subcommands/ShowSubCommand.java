@@ -9,7 +9,9 @@ import de.nvclas.flats.schedulers.CommandDelayScheduler;
 import de.nvclas.flats.util.CommandUtils;
 import de.nvclas.flats.util.I18n;
 import de.nvclas.flats.util.Permissions;
+import de.nvclas.flats.volumes.Area;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
@@ -17,6 +19,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 public class ShowSubCommand implements SubCommand {
@@ -24,6 +27,7 @@ public class ShowSubCommand implements SubCommand {
     private static final byte DEFAULT_SHOW_TIME = 10;
     private static final int MAX_UPDATES_PER_TICK = 100;
     private static final double MAX_DISTANCE = 100.0;
+    private static final int MAX_SHOWN_BLOCKS = 20_000;
     private static final long SCHEDULER_DELAY = 0L;
     private static final long SCHEDULER_PERIOD = 1L;
 
@@ -53,12 +57,9 @@ public class ShowSubCommand implements SubCommand {
                                                                                                           flatsPlugin);
         }
 
-        long flatsAmount = flatsCache.getAllFlats()
-                .stream()
-                .filter(flat -> flat.getAreas()
-                        .stream()
-                        .anyMatch(area -> area.isWithinDistance(player.getLocation(), MAX_DISTANCE)))
-                .count();
+        List<Area> shownAreas = new ArrayList<>();
+        List<Block> blocksToChange = getBlocksToChange(player, shownAreas);
+        long flatsAmount = shownAreas.stream().map(Area::getFlatName).distinct().count();
 
         if (flatsAmount == 0) {
             player.sendMessage(Flats.PREFIX + I18n.translate("show.none"));
@@ -70,7 +71,6 @@ public class ShowSubCommand implements SubCommand {
         } else {
             player.sendMessage(Flats.PREFIX + I18n.translate("show.success.plural", flatsAmount, DEFAULT_SHOW_TIME));
         }
-        List<Block> blocksToChange = getBlocksToChange(player);
         scheduleBlockUpdates(player, blocksToChange);
     }
 
@@ -107,14 +107,23 @@ public class ShowSubCommand implements SubCommand {
                               20L * DEFAULT_SHOW_TIME);
     }
 
-    private @NotNull List<Block> getBlocksToChange(@NotNull Player player) {
-        List<Block> blocksToChange = new ArrayList<>();
+    private @NotNull List<Block> getBlocksToChange(@NotNull Player player, @NotNull List<Area> shownAreas) {
+        Location location = player.getLocation();
+        List<Area> nearbyAreas = flatsCache.getAreasWithinRadius(location, MAX_DISTANCE);
+        nearbyAreas.sort(Comparator.comparingDouble(area -> area.distanceSquared(location)));
 
-        flatsCache.getAllAreas()
-                .stream()
-                .filter(area -> area.isWithinDistance(player.getLocation(), MAX_DISTANCE))
-                .forEach(area -> blocksToChange.addAll(area.getAllOuterBlocks()));
+        // Closest areas first, so the cap on the block changes only cuts off the areas furthest away
+        List<Block> blocksToChange = new ArrayList<>();
+        for (Area area : nearbyAreas) {
+            if (blocksToChange.size() >= MAX_SHOWN_BLOCKS) {
+                break;
+            }
+            shownAreas.add(area);
+            blocksToChange.addAll(area.getAllOuterBlocks());
+        }
 
-        return blocksToChange;
+        return blocksToChange.size() > MAX_SHOWN_BLOCKS
+                ? new ArrayList<>(blocksToChange.subList(0, MAX_SHOWN_BLOCKS))
+                : blocksToChange;
     }
 }
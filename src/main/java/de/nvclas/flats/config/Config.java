@@ -7,7 +7,13 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.logging.Level;
 
 public abstract class Config {
@@ -34,25 +40,30 @@ public abstract class Config {
     }
 
     /**
-     * Saves the current configuration file to disk and reloads it from the storage.
+     * Saves the current configuration file to disk.
      * <p>
      * This method attempts to persist any changes made to the in-memory configuration
-     * data to the physical file associated with this configuration instance. If the
+     * data to the physical file associated with this configuration instance. The data is
+     * written to a temporary file first, which then replaces the file in a single atomic move,
+     * so a crash during the write never leaves a truncated file behind. If the
      * save operation fails due to an {@link IOException}, an error is logged with the
-     * plugin's logger. After attempting to save, the configuration is reloaded from
-     * the file to synchronize the in-memory state with the on-disk data.
+     * plugin's logger. The in-memory configuration already matches what was written,
+     * so it is not reloaded from the file afterward.
      * <p>
      * Note that this method should be called after modifying the configuration to
      * ensure changes are saved and reflect in subsequent operations.
+     *
+     * @return {@code true} if the file was written; {@code false} if saving failed.
      */
-    public void saveConfig() {
+    public boolean saveConfig() {
         try {
-            configFile.save(file);
+            writeAtomically(configFile.saveToString());
+            return true;
         } catch (IOException e) {
             plugin.getLogger()
                     .log(Level.SEVERE, () -> String.format(CONFIG_SAVE_FAILURE, file.getName(), e.getMessage()));
+            return false;
         }
-        configFile = YamlConfiguration.loadConfiguration(file);
     }
 
     /**
@@ -81,6 +92,20 @@ public abstract class Config {
         configFile = YamlConfiguration.loadConfiguration(file);
     }
 
+    private void writeAtomically(String content) throws IOException {
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private void createParentDirectory() {
         File dataFolder = plugin.getDataFolder();
         if (!dataFolder.exists() && !dataFolder.mkdir()) {
@@ -1,9 +1,14 @@
 package de.nvclas.flats.config;
 
+import de.nvclas.flats.storage.FlatSnapshot;
+import de.nvclas.flats.storage.FlatsStorage;
+import de.nvclas.flats.storage.SaveBatch;
+import de.nvclas.flats.util.LocationConverter;
 import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
 import de.nvclas.flats.volumes.Flat;
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
@@ -13,10 +18,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 /**
  * The {@code FlatsConfig} class extends {@link Config} and provides methods to manage
@@ -26,27 +31,48 @@ import java.util.stream.Collectors;
  * <p>
  * This class utilizes keys and utilities defined in the {@link Paths} class for
  * consistent and structured configuration file interactions.
+ * <p>
+ * This is the default {@link FlatsStorage}. Saving and loading are synchronized, so flats may be
+ * saved asynchronously, see {@link de.nvclas.flats.storage.SavePipeline}.
  */
-public class FlatsConfig extends Config {
+public class FlatsConfig extends Config implements FlatsStorage {
+
+    /**
+     * Whether the configuration holds changes that could not be written to disk by the last save.
+     */
+    private boolean unsavedChanges;
 
     public FlatsConfig(String fileName, JavaPlugin plugin) {
         super(fileName, plugin);
     }
 
     /**
-     * Saves a collection of flats to the configuration file by clearing the existing flats data
-     * and persisting each flat.
+     * Writes the changes captured in a {@link SaveBatch} to the configuration file.
      * <p>
-     * This method removes all currently stored flat data in the configuration file and then adds
-     * the provided flats to it. The updated configuration is saved to disk afterward.
+     * The changed flats are serialized and flats stored in the configuration file that are not part
+     * of the batch's flat names are removed. If the batch contains no changes and the previous save
+     * succeeded, the file is not written at all.
      *
-     * @param flats A map containing the flats to be saved, where the key is the flat name,
-     *              and the value is the {@link Flat} instance representing the flat. Must not be null.
+     * @param batch The {@link SaveBatch} to write. Must not be null.
+     * @return {@code true} if the configuration file was written; {@code false} otherwise.
      */
-    public void saveFlats(Map<String, Flat> flats) {
-        getConfigFile().set(Paths.FLATS, null);
-        flats.forEach(this::saveFlat);
-        saveConfig();
+    @Override
+    public synchronized boolean saveBatch(@NotNull SaveBatch batch) {
+        boolean changed = removeDeletedFlats(batch.flatNames());
+        for (FlatSnapshot flat : batch.changedFlats()) {
+            saveFlat(flat);
+            changed = true;
+        }
+        if (!changed && !unsavedChanges) {
+            return false;
+        }
+        unsavedChanges = !saveConfig();
+        return !unsavedChanges;
+    }
+
+    @Override
+    public synchronized boolean hasUnsavedChanges() {
+        return unsavedChanges;
     }
 
     /**
@@ -55,87 +81,167 @@ public class FlatsConfig extends Config {
      * This method retrieves the flat definitions stored under {@link Paths#FLATS} in the configuration file,
      * processes them into {@link Flat} objects, and returns a map associating each flat's name with its corresponding
      * {@link Flat} instance. If no flats are defined or the configuration section is absent, an empty map is returned.
+     * <p>
+     * Loading runs in two stages. The area strings and UUIDs of all flats are parsed and validated in parallel
+     * on the common {@link java.util.concurrent.ForkJoinPool}, which does not access the server. Afterward, the
+     * worlds of the parsed areas are resolved on the calling thread, once per world name, and all warnings are
+     * logged in the order of the flats. The duration of both stages is logged.
      *
      * @return A map containing the loaded flats, where the keys are flat names and the values are their respective
      * {@link Flat} objects. Returns an empty map if no flats are defined or if the configuration section is null.
      */
-    public Map<String, Flat> loadFlats() {
+    @Override
+    public synchronized @NotNull Map<String, Flat> loadFlats() {
         ConfigurationSection flatsSection = getConfigFile().getConfigurationSection(Paths.FLATS);
         if (flatsSection == null) {
             return new HashMap<>();
         }
 
-        return flatsSection.getKeys(false)
-                .stream()
-                .map(this::loadFlat)
-                .filter(Objects::nonNull)
-                .collect(HashMap::new, (map, flat) -> map.put(flat.getName(), flat), HashMap::putAll);
-    }
-
-    private void saveFlat(String flatName, Flat flat) {
-        getConfigFile().set(Paths.getOwnerPath(flatName),
-                            flat.getOwner() == null ? null : flat.getOwner().getUniqueId().toString());
+        long start = System.nanoTime();
+        List<ParsedFlat> parsedFlats = new ArrayList<>(flatsSection.getKeys(false)).parallelStream()
+                .map(this::parseFlat)
+                .toList();
+        long parsed = System.nanoTime();
+
+        Map<String, World> worlds = new HashMap<>();
+        Map<String, Flat> flats = new HashMap<>(parsedFlats.size() * 4 / 3 + 1);
+        for (ParsedFlat parsedFlat : parsedFlats) {
+            Flat flat = resolveFlat(parsedFlat, worlds);
+            if (flat != null) {
+                flats.put(flat.getName(), flat);
+            }
+        }
+        long resolved = System.nanoTime();
 
-        getConfigFile().set(Paths.getAreasPath(flatName),
-                            flat.getAreas().stream().map(Area::getLocationString).toList());
+        plugin.getLogger().log(Level.INFO, () -> "Loaded " + flats.size() + " flats from " + file.getName() +
+                                                 " (parsing " + toMillis(parsed - start) + " ms, resolving worlds " +
+                                                 toMillis(resolved - parsed) + " ms)");
+        return flats;
+    }
 
-        getConfigFile().set(Paths.getTrustedPath(flatName),
-                            flat.getTrusted().stream().map(player -> player.getUniqueId().toString()).toList());
+    private boolean removeDeletedFlats(Set<String> flatNames) {
+        ConfigurationSection flatsSection = getConfigFile().getConfigurationSection(Paths.FLATS);
+        if (flatsSection == null) {
+            return false;
+        }
+        boolean removed = false;
+        for (String flatName : flatsSection.getKeys(false)) {
+            if (!flatNames.contains(flatName)) {
+                flatsSection.set(flatName, null);
+                removed = true;
+            }
+        }
+        return removed;
     }
 
-    private @Nullable Flat loadFlat(String flatName) {
-        OfflinePlayer owner = loadOwner(flatName);
-        List<Area> areas = loadAreas(flatName);
-        if (areas == null) return null;
+    private void saveFlat(FlatSnapshot flat) {
+        getConfigFile().set(Paths.getOwnerPath(flat.name()),
+                            flat.owner() == null ? null : flat.owner().toString());
+
+        getConfigFile().set(Paths.getAreasPath(flat.name()),
+                            flat.areas().stream().map(Area::getLocationString).toList());
 
-        List<OfflinePlayer> trustedPlayers = loadTrustedPlayers(flatName);
+        getConfigFile().set(Paths.getTrustedPath(flat.name()),
+                            flat.trusted().stream().map(UUID::toString).toList());
+    }
 
-        return new Flat(flatName, owner, areas, trustedPlayers);
+    /**
+     * Parses a flat without accessing the server, so it may be called concurrently for different flats.
+     * Warnings are collected instead of logged.
+     */
+    private ParsedFlat parseFlat(String flatName) {
+        List<String> warnings = new ArrayList<>(0);
+        UUID owner = parseOwner(flatName, warnings);
+        List<String> locationStrings = getConfigFile().getStringList(Paths.getAreasPath(flatName));
+        List<ParsedArea> areas = new ArrayList<>(locationStrings.size());
+        for (String locationString : locationStrings) {
+            try {
+                areas.add(new ParsedArea(LocationConverter.getWorldNameFromString(locationString),
+                                         LocationConverter.getBoundsFromString(locationString),
+                                         locationString));
+            } catch (IllegalArgumentException e) {
+                warnings.add(getInvalidAreaWarning(flatName, locationString));
+            }
+        }
+        List<UUID> trustedPlayers = parseTrustedPlayers(flatName, warnings);
+        return new ParsedFlat(flatName, owner, areas, locationStrings.size(), trustedPlayers, warnings);
     }
 
-    private @Nullable OfflinePlayer loadOwner(String flatName) {
+    private @Nullable UUID parseOwner(String flatName, List<String> warnings) {
         String ownerUuid = getConfigFile().getString(Paths.getOwnerPath(flatName));
-        return (ownerUuid != null && !ownerUuid.isEmpty()) ? Bukkit.getOfflinePlayer(UUID.fromString(ownerUuid)) : null;
+        if (ownerUuid == null || ownerUuid.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(ownerUuid);
+        } catch (IllegalArgumentException e) {
+            warnings.add("Flat '" + flatName + "' has an invalid owner '" + ownerUuid + "' and will be unoccupied.");
+            return null;
+        }
     }
 
-    private @Nullable List<Area> loadAreas(String flatName) {
-        List<String> locationStrings = getConfigFile().getStringList(Paths.getAreasPath(flatName));
-        List<Area> areas = locationStrings.stream()
-                .map(locationString -> parseAreaOrNull(locationString, flatName))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toCollection(ArrayList::new));
+    private @NotNull List<UUID> parseTrustedPlayers(String flatName, List<String> warnings) {
+        List<String> trustedUuids = getConfigFile().getStringList(Paths.getTrustedPath(flatName));
+        List<UUID> trustedPlayers = new ArrayList<>(trustedUuids.size());
+        for (String trustedUuid : trustedUuids) {
+            try {
+                trustedPlayers.add(UUID.fromString(trustedUuid));
+            } catch (IllegalArgumentException e) {
+                warnings.add("Flat '" + flatName + "' has an invalid trusted player '" + trustedUuid +
+                             "' which will be ignored.");
+            }
+        }
+        return trustedPlayers;
+    }
+
+    /**
+     * Resolves the worlds of a parsed flat and creates the {@link Flat}, logging all of its warnings.
+     *
+     * @param worlds The worlds resolved so far, mapped by name.
+     */
+    private @Nullable Flat resolveFlat(ParsedFlat parsedFlat, Map<String, World> worlds) {
+        String flatName = parsedFlat.name();
+        parsedFlat.warnings().forEach(this::logWarning);
+        List<Area> areas = new ArrayList<>(parsedFlat.areas().size());
+        for (ParsedArea parsedArea : parsedFlat.areas()) {
+            World world = worlds.computeIfAbsent(parsedArea.worldName(), Bukkit::getWorld);
+            if (world == null) {
+                logWarning(getInvalidAreaWarning(flatName, parsedArea.locationString()));
+            } else {
+                areas.add(new Area(world, parsedArea.bounds(), flatName));
+            }
+        }
 
         if (areas.isEmpty()) {
             logWarning("Flat '" + flatName + "' has no valid areas and will not be loaded.");
             return null;
         }
 
-        if (areas.size() < locationStrings.size()) {
+        Flat flat = new Flat(flatName, parsedFlat.owner(), areas, parsedFlat.trusted());
+        if (areas.size() < parsedFlat.areaStringCount()) {
             logWarning(
                     "!! ANY INVALID AREAS WILL BE REMOVED ON NEXT SAVE, PLEASE BACKUP NOW IF THEY ARE STILL NEEDED !!");
+            flat.markDirty();
         }
-
-        return areas;
+        return flat;
     }
 
-    private @Nullable Area parseAreaOrNull(String locationString, String flatName) {
-        try {
-            return Area.fromString(locationString, flatName);
-        } catch (IllegalArgumentException e) {
-            logWarning("Flat '" + flatName + "' has an invalid area string '" + locationString +
-                       "' and will not be loaded.");
-            return null;
-        }
+    private static String getInvalidAreaWarning(String flatName, String locationString) {
+        return "Flat '" + flatName + "' has an invalid area string '" + locationString + "' and will not be loaded.";
     }
 
-    private @NotNull List<OfflinePlayer> loadTrustedPlayers(String flatName) {
-        List<String> trustedUuids = getConfigFile().getStringList(Paths.getTrustedPath(flatName));
-        return trustedUuids.stream()
-                .map(uuid -> Bukkit.getOfflinePlayer(UUID.fromString(uuid)))
-                .collect(Collectors.toCollection(ArrayList::new));
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
     }
 
     private void logWarning(String message) {
         plugin.getLogger().log(Level.WARNING, () -> message);
     }
+
+    private record ParsedArea(String worldName, BlockBox bounds, String locationString) {
+    }
+
+    private record ParsedFlat(String name, @Nullable UUID owner, List<ParsedArea> areas, int areaStringCount,
+                              List<UUID> trusted, List<String> warnings) {
+    }
 }
@@ -20,6 +20,9 @@ public class Paths {
     public static final String OUTSIDE_GAMEMODE = "outsideFlatGamemode";
     public static final String MAX_CLAIMABLE_FLATS = "maxClaimableFlats";
     public static final String USE_ADVANCED_PERMISSIONS = "useAdvancedPermissions";
+    public static final String SPATIAL_INDEX = "spatialIndex";
+    public static final String STORAGE = "storage";
+    public static final String ENABLE_JOURNAL = "enableJournal";
 
     public static final String FLATS = "flats";
 
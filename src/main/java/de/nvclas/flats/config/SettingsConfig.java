@@ -21,6 +21,9 @@ public class SettingsConfig extends Config {
     private static final boolean DEFAULT_ENABLE_AUTO_GAMEMODE = false;
     private static final String DEFAULT_INSIDE_GAMEMODE = "creative";
     private static final String DEFAULT_OUTSIDE_GAMEMODE = "adventure";
+    private static final String DEFAULT_SPATIAL_INDEX = "grid3d";
+    private static final String DEFAULT_STORAGE = "yaml";
+    private static final boolean DEFAULT_ENABLE_JOURNAL = true;
 
     /**
      * Constructs a new {@code SettingsConfig} instance with the specified file name and plugin reference.
@@ -126,6 +129,41 @@ public class SettingsConfig extends Config {
         return getConfigValue(Paths.OUTSIDE_GAMEMODE, String.class, DEFAULT_OUTSIDE_GAMEMODE);
     }
 
+    /**
+     * Retrieves the configured layout of the spatial index used for location lookups.
+     * <p>
+     * If no specific layout is set in the configuration, a default value is returned.
+     *
+     * @return the spatial index setting as a non-null {@code String}.
+     */
+    @NotNull
+    public String getSpatialIndex() {
+        return getConfigValue(Paths.SPATIAL_INDEX, String.class, DEFAULT_SPATIAL_INDEX);
+    }
+
+    /**
+     * Retrieves the configured backend flats are stored in.
+     * <p>
+     * If no specific backend is set in the configuration, a default value is returned.
+     *
+     * @return the storage setting as a non-null {@code String}.
+     */
+    @NotNull
+    public String getStorage() {
+        return getConfigValue(Paths.STORAGE, String.class, DEFAULT_STORAGE);
+    }
+
+    /**
+     * Checks whether changes of flats are recorded in a journal instead of periodically saving all changed flats.
+     * <p>
+     * If the value is not explicitly set in the configuration, a default value is returned.
+     *
+     * @return {@code true} if the journal is enabled; {@code false} otherwise.
+     */
+    public boolean isJournalEnabled() {
+        return getConfigValue(Paths.ENABLE_JOURNAL, Boolean.class, DEFAULT_ENABLE_JOURNAL);
+    }
+
     private <T> T getConfigValue(String path, Class<T> type, T defaultValue) {
         if (type == String.class) {
             return type.cast(getConfigFile().getString(path, (String) defaultValue));
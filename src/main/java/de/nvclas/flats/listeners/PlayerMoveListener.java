@@ -25,7 +25,7 @@ public class PlayerMoveListener implements Listener {
     public void onPlayerMove(@NotNull PlayerMoveEvent event) {
         Player player = event.getPlayer();
         Flat currentFlat = playerFlats.get(player);
-        Flat newFlat = flatsPlugin.getFlatsCache().getFlatByLocation(event.getTo());
+        Flat newFlat = flatsPlugin.getFlatsCache().getFlatByLocation(player, event.getTo());
 
         if (!Objects.equals(currentFlat, newFlat)) {
             if (currentFlat != null) {
@@ -17,7 +17,7 @@ public class BlockBreakListener implements Listener {
 
     @EventHandler
     public void onBlockBreak(BlockBreakEvent event) {
-        Flat flat = flatsCache.getFlatByLocation(event.getBlock().getLocation());
+        Flat flat = flatsCache.getFlatByLocation(event.getPlayer(), event.getBlock().getLocation());
         EventCancelChecker.cancelEventIfPlayerNotTrustedOrOwner(event, flat, event.getPlayer());
     }
 
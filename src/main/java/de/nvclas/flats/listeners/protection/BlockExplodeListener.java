@@ -8,6 +8,8 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockExplodeEvent;
 
+import java.util.Map;
+
 public class BlockExplodeListener implements Listener {
 
     private final FlatsCache flatsCache;
@@ -18,11 +20,9 @@ public class BlockExplodeListener implements Listener {
 
     @EventHandler
     public void onBlockExplode(BlockExplodeEvent event) {
-        for (Block block : event.blockList()) {
-            Flat flat = flatsCache.getFlatByLocation(block.getLocation());
-            if (flat != null) {
-                event.blockList().remove(block);
-            }
+        Map<Block, Flat> protectedBlocks = flatsCache.getFlatsByBlocks(event.getBlock().getWorld(), event.blockList());
+        if (!protectedBlocks.isEmpty()) {
+            event.blockList().removeIf(protectedBlocks::containsKey);
         }
     }
 
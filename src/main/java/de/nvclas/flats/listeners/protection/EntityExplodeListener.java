@@ -8,6 +8,8 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityExplodeEvent;
 
+import java.util.Map;
+
 public class EntityExplodeListener implements Listener {
 
     private final FlatsCache flatsCache;
@@ -18,11 +20,9 @@ public class EntityExplodeListener implements Listener {
 
     @EventHandler
     public void onEntityExplode(EntityExplodeEvent event) {
-        for (Block block : event.blockList()) {
-            Flat flat = flatsCache.getFlatByLocation(block.getLocation());
-            if (flat != null) {
-                event.blockList().remove(block);
-            }
+        Map<Block, Flat> protectedBlocks = flatsCache.getFlatsByBlocks(event.getEntity().getWorld(), event.blockList());
+        if (!protectedBlocks.isEmpty()) {
+            event.blockList().removeIf(protectedBlocks::containsKey);
         }
     }
 
@@ -20,12 +20,12 @@ public class PlayerInteractListener implements Listener {
     public void onPlayerInteract(PlayerInteractEvent event) {
         Player player = event.getPlayer();
         if (event.getClickedBlock() != null) {
-            Flat flat = flatsCache.getFlatByLocation(event.getClickedBlock().getLocation());
+            Flat flat = flatsCache.getFlatByLocation(player, event.getClickedBlock().getLocation());
             EventCancelChecker.cancelEventIfPlayerNotTrustedOrOwner(event, flat, player);
             return;
         }
         if (event.getInteractionPoint() != null) {
-            Flat flat = flatsCache.getFlatByLocation(event.getInteractionPoint());
+            Flat flat = flatsCache.getFlatByLocation(player, event.getInteractionPoint());
             EventCancelChecker.cancelEventIfPlayerNotTrustedOrOwner(event, flat, player);
         }
     }
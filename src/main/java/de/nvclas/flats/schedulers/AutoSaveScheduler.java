@@ -13,6 +13,9 @@ import java.util.logging.Level;
  * The {@code AutoSaveScheduler} runs a repetitive task at a specified interval to save all data
  * cached by the plugin. It provides methods to start and stop this task. The scheduler only starts
  * if the interval is greater than zero.
+ * <p>
+ * The task runs on the main thread, where it only captures the changed flats. Serializing and
+ * writing them is left to the {@link de.nvclas.flats.storage.SavePipeline}.
  */
 public class AutoSaveScheduler {
 
@@ -30,8 +33,8 @@ public class AutoSaveScheduler {
 
     /**
      * Starts the auto-save scheduler if it is not already running and the auto-save interval is
-     * greater than zero. This method schedules a periodic task to save all flats at the configured
-     * interval asynchronously.
+     * greater than zero. This method schedules a periodic task to save all changed flats at the configured
+     * interval.
      * <p>
      * If the scheduler is already running, it throws an {@link UnsupportedOperationException}.
      * If the auto-save interval is zero or negative, auto-saving is disabled, and a log message is
@@ -57,11 +60,9 @@ public class AutoSaveScheduler {
 
             @Override
             public void run() {
-                flatsPlugin.getLogger().log(Level.CONFIG, () -> "Saving flats...");
-                flatsPlugin.getFlatsCache().saveAll();
-                flatsPlugin.getLogger().log(Level.CONFIG, () -> "Flats saved");
+                flatsPlugin.getSavePipeline().submit(flatsPlugin.getFlatsCache().captureChanges());
             }
-        }.runTaskTimerAsynchronously(flatsPlugin, 0, settingsConfig.getAutoSaveInterval() * 20);
+        }.runTaskTimer(flatsPlugin, 0, settingsConfig.getAutoSaveInterval() * 20);
     }
 
     /**
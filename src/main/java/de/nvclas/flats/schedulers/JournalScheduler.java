@@ -0,0 +1,96 @@
+package de.nvclas.flats.schedulers;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.storage.MutationJournal;
+import de.nvclas.flats.storage.SavePipeline;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Manages the periodic flushing and compaction of the {@link MutationJournal}.
+ * <p>
+ * Every second, the changes recorded since the last flush are appended to the journal file on the I/O thread
+ * of the {@link SavePipeline}. Once the journal has grown past {@link #COMPACTION_THRESHOLD} bytes, the changed
+ * flats are captured instead and written to the storage, after which the journal is cut at the point of the
+ * capture. This replaces the {@link AutoSaveScheduler} while the journal is enabled.
+ */
+public class JournalScheduler {
+
+    /**
+     * The interval in ticks at which recorded changes are flushed to the journal file.
+     */
+    private static final long FLUSH_INTERVAL = 20;
+
+    /**
+     * The size in bytes the journal may grow to before it is compacted.
+     */
+    private static final long COMPACTION_THRESHOLD = 4L * 1024 * 1024;
+
+    private final Flats flatsPlugin;
+    private final MutationJournal journal;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * The journal size at which the next compaction starts. It is raised after each compaction by the
+     * size of the remaining journal, so a failing compaction is not retried every second.
+     */
+    private volatile long nextCompactionSize = COMPACTION_THRESHOLD;
+    private BukkitTask task;
+    private boolean running = false;
+
+    public JournalScheduler(Flats flatsPlugin, MutationJournal journal) {
+        this.flatsPlugin = flatsPlugin;
+        this.journal = journal;
+    }
+
+    /**
+     * Starts flushing and compacting the journal periodically.
+     *
+     * @throws UnsupportedOperationException if the scheduler is already running.
+     */
+    public void start() {
+        if (running) {
+            throw new UnsupportedOperationException("JournalScheduler is already running!");
+        }
+        flatsPlugin.getLogger().log(Level.INFO, () -> "Started JournalScheduler");
+        running = true;
+        task = new BukkitRunnable() {
+
+            @Override
+            public void run() {
+                SavePipeline savePipeline = flatsPlugin.getSavePipeline();
+                if (journal.size() >= nextCompactionSize && compacting.compareAndSet(false, true)) {
+                    compact(savePipeline);
+                } else if (journal.hasPendingRecords()) {
+                    savePipeline.execute(journal::flush);
+                }
+            }
+        }.runTaskTimer(flatsPlugin, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    /**
+     * Stops the currently running task if it is active.
+     * <p>
+     * Changes recorded afterward are only written by an explicit flush, see {@link MutationJournal#close()}.
+     */
+    public void stop() {
+        if (task != null && !task.isCancelled()) {
+            task.cancel();
+        }
+        running = false;
+        task = null;
+    }
+
+    private void compact(SavePipeline savePipeline) {
+        long position = journal.mark();
+        savePipeline.execute(journal::flush);
+        savePipeline.submit(flatsPlugin.getFlatsCache().captureChanges(), () -> journal.truncate(position));
+        savePipeline.execute(() -> {
+            nextCompactionSize = journal.size() + COMPACTION_THRESHOLD;
+            compacting.set(false);
+        });
+    }
+}
@@ -0,0 +1,337 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A {@link FlatsStorage} that keeps all flats in a compact, versioned binary snapshot file.
+ * <p>
+ * The file starts with a header of {@link #MAGIC} and {@link #VERSION}, followed by a string table holding
+ * every flat name and world name once, a table of the referenced worlds and finally the flats. Coordinates are
+ * stored as {@code int}s and UUIDs as their raw 128 bits, and a CRC32 of all preceding bytes ends the file.
+ * Loading reads the whole file into a single buffer in one call and resolves each world only once, so even
+ * very large datasets load without parsing text. The file is not memory-mapped, as a mapping keeps it open
+ * until the buffer is garbage collected, which prevents the next save from replacing it on Windows.
+ * <p>
+ * A snapshot cannot be updated in place, so every save writes the whole file again into a temporary file,
+ * which then replaces the snapshot in a single atomic move. The storage keeps the last saved state of all flats
+ * to do so. YAML remains the human-editable format, flats can be copied from and to {@code flats.yml} with
+ * {@code /flats migrate} and {@code /flats export}.
+ * <p>
+ * Loading and saving are synchronized, so flats may be saved asynchronously, see {@link SavePipeline}.
+ */
+public class BinaryFlatsStorage implements FlatsStorage {
+
+    /**
+     * The first four bytes of every snapshot file, {@code FLTS} in ASCII.
+     */
+    static final int MAGIC = 0x464C5453;
+
+    /**
+     * The version of the snapshot format written by this storage.
+     */
+    static final short VERSION = 1;
+
+    private static final byte NO_OWNER = 0;
+    private static final byte HAS_OWNER = 1;
+
+    private final JavaPlugin plugin;
+    private final File file;
+
+    /**
+     * The last saved state of all flats, keyed by flat name. It is {@code null} until the snapshot file was read.
+     */
+    private @Nullable Map<String, FlatSnapshot> savedFlats;
+
+    /**
+     * Whether {@link #savedFlats} holds changes that could not be written to disk by the last save.
+     */
+    private boolean unsavedChanges;
+
+    /**
+     * Creates a storage for the snapshot file with the specified name in the plugin's data folder.
+     * The file is not read until the flats are loaded or saved.
+     *
+     * @param fileName The name of the snapshot file. Must not be null.
+     * @param plugin   The plugin instance that owns this storage. Must not be null.
+     */
+    public BinaryFlatsStorage(String fileName, JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), fileName);
+        File dataFolder = plugin.getDataFolder();
+        if (!dataFolder.exists() && !dataFolder.mkdirs()) {
+            plugin.getLogger().log(Level.CONFIG, () -> "Failed to create plugin data folder.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException If the snapshot file cannot be read or is damaged.
+     */
+    @Override
+    public synchronized @NotNull Map<String, Flat> loadFlats() {
+        Map<String, Flat> flats = readSnapshot();
+        savedFlats = new HashMap<>(flats.size());
+        for (Flat flat : flats.values()) {
+            savedFlats.put(flat.getName(), FlatSnapshot.of(flat));
+        }
+        unsavedChanges = false;
+        return flats;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The whole snapshot file is written again. If the batch contains no changes and the previous save
+     * succeeded, the file is not written at all.
+     */
+    @Override
+    public synchronized boolean saveBatch(@NotNull SaveBatch batch) {
+        Map<String, FlatSnapshot> flats = getSavedFlats();
+        boolean changed = flats.keySet().retainAll(batch.flatNames());
+        for (FlatSnapshot flat : batch.changedFlats()) {
+            flats.put(flat.name(), flat);
+            changed = true;
+        }
+        if (!changed && !unsavedChanges) {
+            return false;
+        }
+        try {
+            writeSnapshot(flats);
+            unsavedChanges = false;
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, e, () -> "Failed to save flats to " + file.getName());
+            unsavedChanges = true;
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean hasUnsavedChanges() {
+        return unsavedChanges;
+    }
+
+    private Map<String, FlatSnapshot> getSavedFlats() {
+        if (savedFlats == null) {
+            loadFlats();
+        }
+        return savedFlats;
+    }
+
+    private Map<String, Flat> readSnapshot() {
+        if (!file.exists() || file.length() == 0) {
+            return new HashMap<>();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            verifyChecksum(buffer);
+            return readFlats(buffer);
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Failed to load flats from " + file.getName(), e);
+        }
+    }
+
+    private void verifyChecksum(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < Integer.BYTES * 2 || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file.getName() + " is not a flats snapshot");
+        }
+        int checksumPosition = buffer.limit() - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, checksumPosition));
+        if ((int) crc.getValue() != buffer.getInt(checksumPosition)) {
+            throw new IOException(file.getName() + " is damaged, its checksum does not match");
+        }
+        buffer.limit(checksumPosition);
+    }
+
+    private Map<String, Flat> readFlats(ByteBuffer buffer) throws IOException {
+        buffer.getInt();
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of " + file.getName());
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        World[] worlds = new World[buffer.getInt()];
+        String[] worldNames = new String[worlds.length];
+        for (int i = 0; i < worlds.length; i++) {
+            UUID worldId = new UUID(buffer.getLong(), buffer.getLong());
+            worldNames[i] = strings[buffer.getInt()];
+            worlds[i] = resolveWorld(worldId, worldNames[i]);
+        }
+
+        int flatCount = buffer.getInt();
+        Map<String, Flat> flats = new HashMap<>(flatCount * 4 / 3 + 1);
+        boolean invalidAreas = false;
+        for (int i = 0; i < flatCount; i++) {
+            String flatName = strings[buffer.getInt()];
+            UUID owner = buffer.get() == HAS_OWNER ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+
+            int areaCount = buffer.getInt();
+            List<Area> areas = new ArrayList<>(areaCount);
+            for (int a = 0; a < areaCount; a++) {
+                int worldIndex = buffer.getInt();
+                BlockBox bounds = new BlockBox(buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                                               buffer.getInt(), buffer.getInt(), buffer.getInt());
+                if (worlds[worldIndex] == null) {
+                    logWarning("Flat '" + flatName + "' has an area in the unknown world '" + worldNames[worldIndex] +
+                               "' which will not be loaded.");
+                    continue;
+                }
+                areas.add(new Area(worlds[worldIndex], bounds, flatName));
+            }
+
+            int trustedCount = buffer.getInt();
+            List<UUID> trusted = new ArrayList<>(trustedCount);
+            for (int t = 0; t < trustedCount; t++) {
+                trusted.add(new UUID(buffer.getLong(), buffer.getLong()));
+            }
+
+            if (areas.isEmpty()) {
+                logWarning("Flat '" + flatName + "' has no valid areas and will not be loaded.");
+                continue;
+            }
+            Flat flat = new Flat(flatName, owner, areas, trusted);
+            if (areas.size() < areaCount) {
+                flat.markDirty();
+                invalidAreas = true;
+            }
+            flats.put(flatName, flat);
+        }
+        if (invalidAreas) {
+            logWarning("!! ANY INVALID AREAS WILL BE REMOVED ON NEXT SAVE, " +
+                       "PLEASE BACKUP NOW IF THEY ARE STILL NEEDED !!");
+        }
+        return flats;
+    }
+
+    private void writeSnapshot(Map<String, FlatSnapshot> flats) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<UUID, Integer> worlds = new LinkedHashMap<>();
+        List<String> worldNames = new ArrayList<>();
+        for (FlatSnapshot flat : flats.values()) {
+            strings.putIfAbsent(flat.name(), strings.size());
+            for (Area area : flat.areas()) {
+                if (worlds.putIfAbsent(area.getWorldId(), worlds.size()) == null) {
+                    worldNames.add(area.getWorldName());
+                    strings.putIfAbsent(area.getWorldName(), strings.size());
+                }
+            }
+        }
+
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(file.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+            CheckedOutputStream checkedOut = new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+            DataOutputStream out = new DataOutputStream(checkedOut);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(worlds.size());
+            int worldIndex = 0;
+            for (UUID worldId : worlds.keySet()) {
+                writeUuid(out, worldId);
+                out.writeInt(strings.get(worldNames.get(worldIndex++)));
+            }
+
+            out.writeInt(flats.size());
+            for (FlatSnapshot flat : flats.values()) {
+                writeFlat(out, flat, strings, worlds);
+            }
+
+            out.flush();
+            out.writeInt((int) checkedOut.getChecksum().getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeFlat(DataOutputStream out, FlatSnapshot flat, Map<String, Integer> strings,
+                                  Map<UUID, Integer> worlds) throws IOException {
+        out.writeInt(strings.get(flat.name()));
+        if (flat.owner() == null) {
+            out.writeByte(NO_OWNER);
+        } else {
+            out.writeByte(HAS_OWNER);
+            writeUuid(out, flat.owner());
+        }
+
+        out.writeInt(flat.areas().size());
+        for (Area area : flat.areas()) {
+            out.writeInt(worlds.get(area.getWorldId()));
+            out.writeInt(area.getMinX());
+            out.writeInt(area.getMinY());
+            out.writeInt(area.getMinZ());
+            out.writeInt(area.getMaxX());
+            out.writeInt(area.getMaxY());
+            out.writeInt(area.getMaxZ());
+        }
+
+        out.writeInt(flat.trusted().size());
+        for (UUID trusted : flat.trusted()) {
+            writeUuid(out, trusted);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static @Nullable World resolveWorld(UUID worldId, String worldName) {
+        World world = Bukkit.getWorld(worldId);
+        return world != null ? world : Bukkit.getWorld(worldName);
+    }
+
+    private void logWarning(String message) {
+        plugin.getLogger().log(Level.WARNING, () -> message);
+    }
+}
@@ -0,0 +1,35 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An immutable copy of the persistent state of a {@link Flat}.
+ * <p>
+ * Taking a snapshot only copies references, the areas themselves are immutable. This keeps the part
+ * of a save that runs on the main thread cheap, while serializing the snapshot can happen on any thread.
+ *
+ * @param name    the name of the flat
+ * @param owner   the UUID of the owner, or {@code null} if the flat is unoccupied
+ * @param areas   the areas of the flat
+ * @param trusted the UUIDs of the trusted players in the order they were trusted
+ */
+public record FlatSnapshot(@NotNull String name, @Nullable UUID owner, @NotNull List<Area> areas,
+                           @NotNull List<UUID> trusted) {
+
+    /**
+     * Takes a snapshot of the current state of the specified {@link Flat}.
+     *
+     * @param flat The {@link Flat} to take a snapshot of. Must not be null.
+     * @return The snapshot. Never null.
+     */
+    public static @NotNull FlatSnapshot of(@NotNull Flat flat) {
+        return new FlatSnapshot(flat.getName(), flat.getOwner(), List.copyOf(flat.getAreas()),
+                                List.copyOf(flat.getTrusted()));
+    }
+}
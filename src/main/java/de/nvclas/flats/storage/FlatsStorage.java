@@ -0,0 +1,79 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.volumes.Flat;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents a place where flats are persisted between server restarts.
+ * <p>
+ * Implementations differ in how they store flats, see {@link StorageType} for the available backends.
+ * All implementations must allow saving from a thread other than the main thread, see {@link SavePipeline}.
+ */
+public interface FlatsStorage {
+
+    /**
+     * Loads all flats from storage.
+     * <p>
+     * Flats that cannot be restored are skipped and reported in the log. The returned flats are not dirty,
+     * unless parts of them were dropped while loading and have to be written again.
+     *
+     * @return A new mutable map of flat names to the loaded flats. Never null.
+     */
+    @NotNull Map<String, Flat> loadFlats();
+
+    /**
+     * Writes the changes captured in a {@link SaveBatch} to storage.
+     * <p>
+     * The changed flats are written and the deleted flats are removed. Storages that rewrite all flats also
+     * remove any other flat that is not part of the batch's flat names.
+     *
+     * @param batch The {@link SaveBatch} to write. Must not be null.
+     * @return {@code true} if anything was written; {@code false} if nothing changed or writing failed.
+     */
+    boolean saveBatch(@NotNull SaveBatch batch);
+
+    /**
+     * Checks whether changes passed to {@link #saveBatch(SaveBatch)} are still waiting to be written,
+     * because writing them failed.
+     *
+     * @return {@code true} if the storage lags behind the saved batches; {@code false} otherwise.
+     */
+    boolean hasUnsavedChanges();
+
+    /**
+     * Saves the changes of a collection of flats to storage.
+     * <p>
+     * Only flats marked as dirty are written again. No flats are passed as deleted, so only storages that rewrite
+     * all flats remove the flats that are no longer part of the given map, see {@link SaveBatch}.
+     *
+     * @param flats A map containing the flats to be saved, where the key is the flat name,
+     *              and the value is the {@link Flat} instance representing the flat. Must not be null.
+     * @return {@code true} if anything was written; {@code false} otherwise.
+     */
+    default boolean saveFlats(@NotNull Map<String, Flat> flats) {
+        return saveBatch(SaveBatch.capture(flats));
+    }
+
+    /**
+     * Replaces the contents of this storage with the specified flats.
+     * <p>
+     * Every flat is written, and flats in storage that are not part of the given snapshots are removed.
+     * This is used to copy the flats of the cache into another {@link FlatsStorage}.
+     *
+     * @param flats Snapshots of all flats to import. Must not be null.
+     * @return {@code true} if the flats were written; {@code false} if nothing was written or writing failed.
+     */
+    default boolean importFlats(@NotNull List<FlatSnapshot> flats) {
+        return saveBatch(SaveBatch.of(flats, Set.of()));
+    }
+
+    /**
+     * Releases all resources held by this storage. The storage must not be used afterward.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,526 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import de.nvclas.flats.volumes.FlatListener;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of all changes made to flats.
+ * <p>
+ * Every change is encoded as a compact record as soon as it happens and buffered in memory. The buffer is
+ * appended to the journal file by {@link #flush()}, which is meant to run regularly on the I/O thread of the
+ * {@link SavePipeline}, so all changes made in between are written and synced together. The cost of
+ * persisting changes thereby scales with the rate of change instead of with the number of flats.
+ * <p>
+ * On startup the journal is replayed on top of the flats loaded from the {@link FlatsStorage}. Once the changed
+ * flats have been written to the storage, the records up to that point are dropped by {@link #truncate(long)},
+ * which keeps the journal short. Replaying is idempotent, so records that are already part of the storage
+ * do no harm.
+ * <p>
+ * Each record is prefixed with its length and a CRC32 checksum. A record that was only partially written when
+ * the server crashed is detected and discarded along with everything after it.
+ * <p>
+ * All methods are thread-safe. Recording a change never waits for the journal file.
+ */
+public class MutationJournal implements FlatListener {
+
+    private static final byte CREATE = 1;
+    private static final byte ADD_AREA = 2;
+    private static final byte DELETE = 3;
+    private static final byte SET_OWNER = 4;
+    private static final byte ADD_TRUSTED = 5;
+    private static final byte REMOVE_TRUSTED = 6;
+
+    /**
+     * The number of bytes preceding the payload of each record: its length and its checksum.
+     */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * The maximum size of a single record, anything larger is treated as corruption.
+     */
+    private static final int MAX_RECORD_SIZE = 1 << 16;
+
+    private final Path path;
+    private final Logger logger;
+
+    /**
+     * Guards the journal file, so it is never read while records are appended to it.
+     */
+    private final Object fileLock = new Object();
+    private FileChannel channel;
+
+    /**
+     * The records not yet appended to the file. Guarded by {@code this}.
+     */
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /**
+     * The total number of bytes recorded since this journal was opened, including those dropped by
+     * {@link #truncate(long)}. Guarded by {@code this}.
+     */
+    private long recordedBytes;
+
+    /**
+     * The number of bytes dropped from the start of the journal since it was opened.
+     */
+    private volatile long truncatedBytes;
+
+    /**
+     * Opens the journal at the specified file, creating it if it does not exist.
+     *
+     * @param file   The journal file. Must not be null.
+     * @param logger The logger to report problems to. Must not be null.
+     * @throws UncheckedIOException If the journal file cannot be opened.
+     */
+    public MutationJournal(@NotNull File file, @NotNull Logger logger) {
+        this.path = file.toPath();
+        this.logger = logger;
+        try {
+            this.channel = openChannel();
+            this.recordedBytes = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Records the creation of a flat with a single area.
+     *
+     * @param name The name of the created flat. Must not be null.
+     * @param area The first area of the flat. Must not be null.
+     */
+    public void recordCreated(@NotNull String name, @NotNull Area area) {
+        append(CREATE, name, out -> writeArea(out, area));
+    }
+
+    /**
+     * Records the deletion of a flat.
+     *
+     * @param name The name of the deleted flat. Must not be null.
+     */
+    public void recordDeleted(@NotNull String name) {
+        append(DELETE, name, out -> {
+        });
+    }
+
+    @Override
+    public void onAreaAdded(@NotNull Flat flat, @NotNull Area area) {
+        append(ADD_AREA, flat.getName(), out -> writeArea(out, area));
+    }
+
+    @Override
+    public void onOwnerChanged(@NotNull Flat flat, @Nullable UUID previousOwner, @Nullable UUID newOwner) {
+        append(SET_OWNER, flat.getName(), out -> {
+            out.writeBoolean(newOwner != null);
+            if (newOwner != null) {
+                writeUuid(out, newOwner);
+            }
+        });
+    }
+
+    @Override
+    public void onTrustedAdded(@NotNull Flat flat, @NotNull UUID playerId) {
+        append(ADD_TRUSTED, flat.getName(), out -> writeUuid(out, playerId));
+    }
+
+    @Override
+    public void onTrustedRemoved(@NotNull Flat flat, @NotNull UUID playerId) {
+        append(REMOVE_TRUSTED, flat.getName(), out -> writeUuid(out, playerId));
+    }
+
+    /**
+     * Retrieves the position after the last recorded change.
+     * <p>
+     * Passing the position to {@link #truncate(long)} drops all changes recorded so far.
+     *
+     * @return The current position of this journal.
+     */
+    public synchronized long mark() {
+        return recordedBytes;
+    }
+
+    /**
+     * Checks whether there are recorded changes that have not been flushed yet.
+     *
+     * @return {@code true} if {@link #flush()} would write anything; {@code false} otherwise.
+     */
+    public synchronized boolean hasPendingRecords() {
+        return buffer.size() > 0;
+    }
+
+    /**
+     * Retrieves the number of bytes the journal holds, including records not flushed yet.
+     *
+     * @return The size of the journal in bytes.
+     */
+    public synchronized long size() {
+        return recordedBytes - truncatedBytes;
+    }
+
+    /**
+     * Appends all pending records to the journal file and syncs it to disk.
+     *
+     * @return {@code true} if all pending records were written; {@code false} if writing failed.
+     */
+    public boolean flush() {
+        synchronized (fileLock) {
+            byte[] records;
+            synchronized (this) {
+                if (buffer.size() == 0) {
+                    return true;
+                }
+                records = buffer.toByteArray();
+                buffer = new ByteArrayOutputStream();
+            }
+            long previousSize = -1;
+            try {
+                previousSize = channel.size();
+                ByteBuffer data = ByteBuffer.wrap(records);
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(false);
+                return true;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e, () -> "Failed to write journal " + path.getFileName());
+                restore(records, previousSize);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Drops all records before the specified position from the journal.
+     * <p>
+     * This is meant to be called once the changes up to the position have been written to the {@link FlatsStorage}.
+     * The remaining records are copied to a new file, which then replaces the journal file.
+     *
+     * @param position A position obtained from {@link #mark()}.
+     */
+    public void truncate(long position) {
+        synchronized (fileLock) {
+            long offset = position - truncatedBytes;
+            if (offset <= 0 || !flush()) {
+                return;
+            }
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try {
+                try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+                     FileChannel target = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                           StandardOpenOption.TRUNCATE_EXISTING,
+                                                           StandardOpenOption.WRITE)) {
+                    long remaining = source.size() - offset;
+                    long copied = 0;
+                    while (copied < remaining) {
+                        copied += source.transferTo(offset + copied, remaining - copied, target);
+                    }
+                    target.force(false);
+                }
+                channel.close();
+                try {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                truncatedBytes = position;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e, () -> "Failed to compact journal " + path.getFileName());
+            } finally {
+                reopenChannel();
+            }
+        }
+    }
+
+    /**
+     * Applies all records of the journal file to the specified flats.
+     * <p>
+     * Flats changed by a record are marked as dirty, so they are written to the storage with the next save.
+     * Records that cannot be applied, for example because their world no longer exists, are skipped. If the
+     * journal ends with a damaged record, the journal file is cut off before it.
+     *
+     * @param flats A mutable map of flat names to flats, as loaded from the storage. Must not be null.
+     * @return The number of records applied.
+     */
+    public int replay(@NotNull Map<String, Flat> flats) {
+        synchronized (fileLock) {
+            int applied = 0;
+            long validBytes = 0;
+            try (InputStream fileIn = Files.newInputStream(path);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn))) {
+                byte[] payload;
+                while ((payload = readRecord(in)) != null) {
+                    validBytes += HEADER_SIZE + payload.length;
+                    applied += apply(payload, flats) ? 1 : 0;
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e, () -> "Failed to read journal " + path.getFileName());
+            }
+            discardAfter(validBytes);
+
+            byte[] pending;
+            synchronized (this) {
+                pending = buffer.toByteArray();
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(pending))) {
+                byte[] payload;
+                while ((payload = readRecord(in)) != null) {
+                    applied += apply(payload, flats) ? 1 : 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return applied;
+        }
+    }
+
+    /**
+     * Writes all pending records and closes the journal file.
+     */
+    public void close() {
+        synchronized (fileLock) {
+            flush();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e, () -> "Failed to close journal " + path.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Puts records that could not be written back in front of the buffer and cuts off any part of them
+     * that made it into the file, so they are written again completely by the next flush.
+     */
+    private void restore(byte[] records, long previousSize) {
+        try {
+            if (previousSize >= 0 && channel.size() > previousSize) {
+                channel.truncate(previousSize);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e, () -> "Failed to discard partial records of journal " + path.getFileName());
+        }
+        synchronized (this) {
+            ByteArrayOutputStream restored = new ByteArrayOutputStream(records.length + buffer.size());
+            restored.writeBytes(records);
+            restored.writeBytes(buffer.toByteArray());
+            buffer = restored;
+        }
+    }
+
+    private synchronized void append(byte type, String flatName, RecordWriter writer) {
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeByte(type);
+            out.writeUTF(flatName);
+            writer.write(out);
+            byte[] payload = record.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            DataOutputStream bufferOut = new DataOutputStream(buffer);
+            bufferOut.writeInt(payload.length);
+            bufferOut.writeInt((int) crc.getValue());
+            bufferOut.write(payload);
+            recordedBytes += HEADER_SIZE + payload.length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private @Nullable byte[] readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        try {
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                logDamaged();
+                return null;
+            }
+            byte[] payload = in.readNBytes(length);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (payload.length < length || (int) crc.getValue() != checksum) {
+                logDamaged();
+                return null;
+            }
+            return payload;
+        } catch (EOFException e) {
+            logDamaged();
+            return null;
+        }
+    }
+
+    private boolean apply(byte[] payload, Map<String, Flat> flats) {
+        try {
+            return apply(new DataInputStream(new ByteArrayInputStream(payload)), flats);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, () -> "Skipping malformed journal record: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean apply(DataInputStream in, Map<String, Flat> flats) throws IOException {
+        byte type = in.readByte();
+        String flatName = in.readUTF();
+        if (type == CREATE) {
+            Area area = readArea(in, flatName);
+            if (area == null) {
+                return false;
+            }
+            flats.put(flatName, new Flat(flatName, area));
+            return true;
+        }
+        if (type == DELETE) {
+            return flats.remove(flatName) != null;
+        }
+
+        Flat flat = flats.get(flatName);
+        if (flat == null) {
+            return false;
+        }
+        switch (type) {
+            case ADD_AREA -> {
+                Area area = readArea(in, flatName);
+                if (area == null || containsArea(flat, area)) {
+                    return false;
+                }
+                flat.addArea(area);
+            }
+            case SET_OWNER -> flat.setOwner(in.readBoolean() ? readUuid(in) : null);
+            case ADD_TRUSTED -> flat.addTrusted(readUuid(in));
+            case REMOVE_TRUSTED -> flat.removeTrusted(readUuid(in));
+            default -> {
+                logger.log(Level.WARNING, () -> "Skipping journal record of unknown type " + type);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void discardAfter(long validBytes) {
+        try {
+            if (channel.size() > validBytes) {
+                channel.truncate(validBytes);
+                channel.force(false);
+            }
+            synchronized (this) {
+                recordedBytes = truncatedBytes + channel.size() + buffer.size();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e, () -> "Failed to discard damaged records of journal " + path.getFileName());
+        }
+    }
+
+    private @Nullable Area readArea(DataInputStream in, String flatName) throws IOException {
+        UUID worldId = readUuid(in);
+        String worldName = in.readUTF();
+        BlockBox bounds = new BlockBox(in.readInt(), in.readInt(), in.readInt(),
+                                       in.readInt(), in.readInt(), in.readInt());
+
+        World world = Bukkit.getWorld(worldId);
+        if (world == null) {
+            world = Bukkit.getWorld(worldName);
+        }
+        if (world == null) {
+            logger.log(Level.WARNING, () -> "Skipping journaled area of flat '" + flatName +
+                                            "' in the unknown world '" + worldName + "'");
+            return null;
+        }
+        return new Area(world, bounds, flatName);
+    }
+
+    private static void writeArea(DataOutputStream out, Area area) throws IOException {
+        writeUuid(out, area.getWorldId());
+        out.writeUTF(area.getWorldName());
+        out.writeInt(area.getMinX());
+        out.writeInt(area.getMinY());
+        out.writeInt(area.getMinZ());
+        out.writeInt(area.getMaxX());
+        out.writeInt(area.getMaxY());
+        out.writeInt(area.getMaxZ());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static boolean containsArea(Flat flat, Area area) {
+        for (Area existing : flat.getAreas()) {
+            if (existing.getWorldId().equals(area.getWorldId()) && existing.getMinX() == area.getMinX() &&
+                existing.getMinY() == area.getMinY() && existing.getMinZ() == area.getMinZ() &&
+                existing.getMaxX() == area.getMaxX() && existing.getMaxY() == area.getMaxY() &&
+                existing.getMaxZ() == area.getMaxZ()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void reopenChannel() {
+        if (channel.isOpen()) {
+            return;
+        }
+        try {
+            channel = openChannel();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reopen journal " + path.getFileName(), e);
+        }
+    }
+
+    private void logDamaged() {
+        logger.log(Level.WARNING, () -> "Journal " + path.getFileName() + " ends with a damaged record, " +
+                                        "which is discarded along with everything after it");
+    }
+
+    /**
+     * Writes the type-specific part of a record.
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,70 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.volumes.Flat;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes of the flats since the last save, captured at a single point in time.
+ * <p>
+ * Storages that rewrite all flats drop every flat missing from the flat names. Storages that update single
+ * records instead delete exactly the deleted flats, so they never have to list the flats they hold.
+ *
+ * @param flatNames    the names of all flats that exist, flats missing from this set are removed from storage
+ * @param changedFlats snapshots of the flats modified since the last save
+ * @param deletedFlats the names of the flats deleted since the last save. A flat created again under the
+ *                     same name is also part of the changed flats.
+ */
+public record SaveBatch(@NotNull Set<String> flatNames, @NotNull List<FlatSnapshot> changedFlats,
+                        @NotNull Set<String> deletedFlats) {
+
+    /**
+     * Captures the changes of the specified flats and marks them as saved, without any deleted flats.
+     *
+     * @param flats An immutable mapping of flat names to all flats. Must not be null.
+     * @return The captured changes. Never null.
+     * @see #capture(Map, Set)
+     */
+    public static @NotNull SaveBatch capture(@NotNull Map<String, Flat> flats) {
+        return capture(flats, Set.of());
+    }
+
+    /**
+     * Captures the changes of the specified flats and marks them as saved.
+     * <p>
+     * Only the dirty flats are copied, so capturing is cheap enough for the main thread even with many flats.
+     *
+     * @param flats        An immutable mapping of flat names to all flats. Must not be null.
+     * @param deletedFlats The names of the flats deleted since the last save. Must not be null.
+     * @return The captured changes. Never null.
+     */
+    public static @NotNull SaveBatch capture(@NotNull Map<String, Flat> flats, @NotNull Set<String> deletedFlats) {
+        List<FlatSnapshot> changedFlats = new ArrayList<>();
+        for (Flat flat : flats.values()) {
+            if (flat.clearDirty()) {
+                changedFlats.add(FlatSnapshot.of(flat));
+            }
+        }
+        return new SaveBatch(flats.keySet(), changedFlats, deletedFlats);
+    }
+
+    /**
+     * Creates a batch writing all specified flats, regardless of whether they are dirty.
+     *
+     * @param flats        Snapshots of all flats. Must not be null.
+     * @param deletedFlats The names of the flats to delete from storage. Must not be null.
+     * @return A batch writing every flat. Never null.
+     */
+    public static @NotNull SaveBatch of(@NotNull List<FlatSnapshot> flats, @NotNull Set<String> deletedFlats) {
+        Set<String> flatNames = HashSet.newHashSet(flats.size());
+        for (FlatSnapshot flat : flats) {
+            flatNames.add(flat.name());
+        }
+        return new SaveBatch(flatNames, flats, deletedFlats);
+    }
+}
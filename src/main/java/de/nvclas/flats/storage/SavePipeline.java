@@ -0,0 +1,97 @@
+package de.nvclas.flats.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes captured {@link SaveBatch}es to storage on a dedicated I/O thread.
+ * <p>
+ * Saving is split into two phases: the changes are captured on the main thread, which only copies
+ * references of the modified flats, and they are serialized and written here. Batches are written
+ * one after another in the order they were submitted, so a later batch never overtakes an earlier one.
+ */
+public class SavePipeline {
+
+    private final FlatsStorage flatsStorage;
+    private final Logger logger;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Flats Save Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SavePipeline(@NotNull FlatsStorage flatsStorage, @NotNull Logger logger) {
+        this.flatsStorage = flatsStorage;
+        this.logger = logger;
+    }
+
+    /**
+     * Schedules the specified batch to be written on the I/O thread.
+     *
+     * @param batch The {@link SaveBatch} to write. Must not be null.
+     * @throws java.util.concurrent.RejectedExecutionException If the pipeline has already been shut down.
+     */
+    public void submit(@NotNull SaveBatch batch) {
+        executor.execute(() -> write(batch));
+    }
+
+    /**
+     * Schedules the specified batch to be written on the I/O thread and runs a task afterward, but only
+     * if the storage holds all changes saved so far.
+     *
+     * @param batch   The {@link SaveBatch} to write. Must not be null.
+     * @param onSaved The task to run on the I/O thread once the batch has been written. Must not be null.
+     * @throws java.util.concurrent.RejectedExecutionException If the pipeline has already been shut down.
+     */
+    public void submit(@NotNull SaveBatch batch, @NotNull Runnable onSaved) {
+        executor.execute(() -> {
+            if (write(batch) && !flatsStorage.hasUnsavedChanges()) {
+                onSaved.run();
+            }
+        });
+    }
+
+    /**
+     * Schedules the specified task to run on the I/O thread once all batches submitted so far have been written.
+     *
+     * @param task The task to run. Must not be null.
+     * @throws java.util.concurrent.RejectedExecutionException If the pipeline has already been shut down.
+     */
+    public void execute(@NotNull Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Stops accepting new batches and waits until all submitted batches have been written.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout. Must not be null.
+     * @return {@code true} if all batches were written; {@code false} if the timeout elapsed first.
+     */
+    public boolean shutdown(long timeout, @NotNull TimeUnit unit) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean write(SaveBatch batch) {
+        try {
+            if (flatsStorage.saveBatch(batch)) {
+                logger.log(Level.CONFIG, () -> "Saved " + batch.changedFlats().size() + " changed flats");
+            }
+            return true;
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to save flats", e);
+            return false;
+        }
+    }
+}
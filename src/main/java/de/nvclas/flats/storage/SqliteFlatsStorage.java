@@ -0,0 +1,399 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * A {@link FlatsStorage} that keeps flats in an embedded SQLite database file.
+ * <p>
+ * Flats, their areas and their trusted players are stored in separate tables, which are indexed by owner,
+ * world and trusted player. Saving only touches the rows of the changed flats: each row is upserted by its
+ * primary key and rows left over from longer lists are deleted, all within a single transaction per batch.
+ * Deleted flats are removed by name as passed in {@link SaveBatch#deletedFlats()}, so the stored flats are
+ * never listed while saving.
+ * <p>
+ * The SQLite JDBC driver is shipped with the server, so no additional dependency is needed.
+ * Loading and saving are synchronized, so flats may be saved asynchronously, see {@link SavePipeline}.
+ */
+public class SqliteFlatsStorage implements FlatsStorage {
+
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS flats (
+                name  TEXT PRIMARY KEY NOT NULL,
+                owner TEXT
+            )""",
+            "CREATE INDEX IF NOT EXISTS flats_owner ON flats (owner)",
+            """
+            CREATE TABLE IF NOT EXISTS areas (
+                flat_name  TEXT    NOT NULL REFERENCES flats (name) ON DELETE CASCADE,
+                position   INTEGER NOT NULL,
+                world_id   TEXT    NOT NULL,
+                world_name TEXT    NOT NULL,
+                min_x      INTEGER NOT NULL,
+                min_y      INTEGER NOT NULL,
+                min_z      INTEGER NOT NULL,
+                max_x      INTEGER NOT NULL,
+                max_y      INTEGER NOT NULL,
+                max_z      INTEGER NOT NULL,
+                PRIMARY KEY (flat_name, position)
+            )""",
+            "CREATE INDEX IF NOT EXISTS areas_world ON areas (world_id)",
+            """
+            CREATE TABLE IF NOT EXISTS trusted (
+                flat_name TEXT    NOT NULL REFERENCES flats (name) ON DELETE CASCADE,
+                position  INTEGER NOT NULL,
+                player    TEXT    NOT NULL,
+                PRIMARY KEY (flat_name, position)
+            )""",
+            "CREATE INDEX IF NOT EXISTS trusted_player ON trusted (player)"
+    };
+
+    private static final String UPSERT_FLAT = """
+            INSERT INTO flats (name, owner) VALUES (?, ?)
+            ON CONFLICT (name) DO UPDATE SET owner = excluded.owner""";
+    private static final String UPSERT_AREA = """
+            INSERT INTO areas (flat_name, position, world_id, world_name, min_x, min_y, min_z, max_x, max_y, max_z)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (flat_name, position) DO UPDATE SET
+                world_id = excluded.world_id, world_name = excluded.world_name,
+                min_x = excluded.min_x, min_y = excluded.min_y, min_z = excluded.min_z,
+                max_x = excluded.max_x, max_y = excluded.max_y, max_z = excluded.max_z""";
+    private static final String UPSERT_TRUSTED = """
+            INSERT INTO trusted (flat_name, position, player) VALUES (?, ?, ?)
+            ON CONFLICT (flat_name, position) DO UPDATE SET player = excluded.player""";
+    private static final String TRIM_AREAS = "DELETE FROM areas WHERE flat_name = ? AND position >= ?";
+    private static final String TRIM_TRUSTED = "DELETE FROM trusted WHERE flat_name = ? AND position >= ?";
+    private static final String DELETE_FLAT = "DELETE FROM flats WHERE name = ?";
+
+    private static final String SELECT_FLATS = "SELECT name, owner FROM flats";
+    private static final String SELECT_AREAS = """
+            SELECT flat_name, world_id, world_name, min_x, min_y, min_z, max_x, max_y, max_z
+            FROM areas ORDER BY flat_name, position""";
+    private static final String SELECT_TRUSTED = "SELECT flat_name, player FROM trusted ORDER BY flat_name, position";
+
+    private final JavaPlugin plugin;
+    private final File file;
+    private final Connection connection;
+
+    /**
+     * Snapshots of flats whose last write failed, keyed by flat name. They are written again with the next batch,
+     * unless the batch contains a newer snapshot of the same flat.
+     */
+    private final Map<String, FlatSnapshot> unsavedFlats = new LinkedHashMap<>();
+
+    /**
+     * Names of flats that still have to be deleted, either because their last delete failed or because they could
+     * not be loaded. They are deleted with the next batch.
+     */
+    private final Set<String> unsavedDeletions = new HashSet<>();
+
+    /**
+     * Opens the database file with the specified name in the plugin's data folder and creates missing tables.
+     *
+     * @param fileName The name of the database file. Must not be null.
+     * @param plugin   The plugin instance that owns this storage. Must not be null.
+     * @throws IllegalStateException If the database cannot be opened or its tables cannot be created.
+     */
+    public SqliteFlatsStorage(String fileName, JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), fileName);
+        File dataFolder = plugin.getDataFolder();
+        if (!dataFolder.exists() && !dataFolder.mkdirs()) {
+            plugin.getLogger().log(Level.CONFIG, () -> "Failed to create plugin data folder.");
+        }
+        try {
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA foreign_keys = ON");
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = NORMAL");
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to open database " + file.getName(), e);
+        }
+    }
+
+    @Override
+    public synchronized @NotNull Map<String, Flat> loadFlats() {
+        try {
+            Map<String, List<Area>> areas = new HashMap<>();
+            Set<String> invalidAreas = new HashSet<>();
+            loadAreas(areas, invalidAreas);
+            Map<String, List<UUID>> trusted = loadTrustedPlayers();
+
+            Map<String, Flat> flats = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery(SELECT_FLATS)) {
+                while (rows.next()) {
+                    String flatName = rows.getString(1);
+                    List<Area> flatAreas = areas.get(flatName);
+                    if (flatAreas == null) {
+                        logWarning("Flat '" + flatName + "' has no valid areas and will not be loaded.");
+                        unsavedDeletions.add(flatName);
+                        continue;
+                    }
+                    Flat flat = new Flat(flatName, parseOwner(flatName, rows.getString(2)), flatAreas,
+                                         trusted.getOrDefault(flatName, List.of()));
+                    if (invalidAreas.contains(flatName)) {
+                        flat.markDirty();
+                    }
+                    flats.put(flatName, flat);
+                }
+            }
+            if (!invalidAreas.isEmpty()) {
+                logWarning("!! ANY INVALID AREAS WILL BE REMOVED ON NEXT SAVE, " +
+                           "PLEASE BACKUP NOW IF THEY ARE STILL NEEDED !!");
+            }
+            return flats;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load flats from " + file.getName(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Flats whose write failed are kept and written again with the next batch.
+     */
+    @Override
+    public synchronized boolean saveBatch(@NotNull SaveBatch batch) {
+        for (FlatSnapshot flat : batch.changedFlats()) {
+            unsavedFlats.put(flat.name(), flat);
+        }
+        unsavedFlats.keySet().retainAll(batch.flatNames());
+        unsavedDeletions.addAll(batch.deletedFlats());
+        try {
+            connection.setAutoCommit(false);
+            boolean changed = deleteFlats(unsavedDeletions);
+            for (FlatSnapshot flat : unsavedFlats.values()) {
+                saveFlat(flat);
+                changed = true;
+            }
+            connection.commit();
+            unsavedFlats.clear();
+            unsavedDeletions.clear();
+            return changed;
+        } catch (SQLException e) {
+            rollback();
+            plugin.getLogger().log(Level.SEVERE, e, () -> "Failed to save flats to " + file.getName());
+            return false;
+        } finally {
+            restoreAutoCommit();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The flats to remove are determined by listing the stored flats once, as an import is not preceded by
+     * the deletions that led to the imported flats.
+     */
+    @Override
+    public synchronized boolean importFlats(@NotNull List<FlatSnapshot> flats) {
+        SaveBatch batch = SaveBatch.of(flats, Set.of());
+        Set<String> deletedFlats = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(SELECT_FLATS)) {
+            while (rows.next()) {
+                String flatName = rows.getString(1);
+                if (!batch.flatNames().contains(flatName)) {
+                    deletedFlats.add(flatName);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, e, () -> "Failed to list flats in " + file.getName());
+            return false;
+        }
+        return saveBatch(new SaveBatch(batch.flatNames(), flats, deletedFlats));
+    }
+
+    @Override
+    public synchronized boolean hasUnsavedChanges() {
+        return !unsavedFlats.isEmpty() || !unsavedDeletions.isEmpty();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, e, () -> "Failed to close database " + file.getName());
+        }
+    }
+
+    private boolean deleteFlats(Set<String> deletedFlats) throws SQLException {
+        if (deletedFlats.isEmpty()) {
+            return false;
+        }
+        boolean deleted = false;
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_FLAT)) {
+            for (String flatName : deletedFlats) {
+                delete.setString(1, flatName);
+                delete.addBatch();
+            }
+            for (int count : delete.executeBatch()) {
+                deleted |= count != 0;
+            }
+        }
+        return deleted;
+    }
+
+    private void saveFlat(FlatSnapshot flat) throws SQLException {
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_FLAT)) {
+            upsert.setString(1, flat.name());
+            if (flat.owner() == null) {
+                upsert.setNull(2, Types.VARCHAR);
+            } else {
+                upsert.setString(2, flat.owner().toString());
+            }
+            upsert.executeUpdate();
+        }
+
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_AREA)) {
+            for (int position = 0; position < flat.areas().size(); position++) {
+                Area area = flat.areas().get(position);
+                upsert.setString(1, flat.name());
+                upsert.setInt(2, position);
+                upsert.setString(3, area.getWorldId().toString());
+                upsert.setString(4, area.getWorldName());
+                upsert.setInt(5, area.getMinX());
+                upsert.setInt(6, area.getMinY());
+                upsert.setInt(7, area.getMinZ());
+                upsert.setInt(8, area.getMaxX());
+                upsert.setInt(9, area.getMaxY());
+                upsert.setInt(10, area.getMaxZ());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+        trim(TRIM_AREAS, flat.name(), flat.areas().size());
+
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_TRUSTED)) {
+            for (int position = 0; position < flat.trusted().size(); position++) {
+                upsert.setString(1, flat.name());
+                upsert.setInt(2, position);
+                upsert.setString(3, flat.trusted().get(position).toString());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+        trim(TRIM_TRUSTED, flat.name(), flat.trusted().size());
+    }
+
+    private void trim(String sql, String flatName, int size) throws SQLException {
+        try (PreparedStatement trim = connection.prepareStatement(sql)) {
+            trim.setString(1, flatName);
+            trim.setInt(2, size);
+            trim.executeUpdate();
+        }
+    }
+
+    private void loadAreas(Map<String, List<Area>> areas, Set<String> invalidAreas) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(SELECT_AREAS)) {
+            while (rows.next()) {
+                String flatName = rows.getString(1);
+                World world = resolveWorld(rows.getString(2), rows.getString(3));
+                if (world == null) {
+                    logWarning("Flat '" + flatName + "' has an area in the unknown world '" + rows.getString(3) +
+                               "' which will not be loaded.");
+                    invalidAreas.add(flatName);
+                    continue;
+                }
+                BlockBox bounds = new BlockBox(rows.getInt(4), rows.getInt(5), rows.getInt(6),
+                                               rows.getInt(7), rows.getInt(8), rows.getInt(9));
+                areas.computeIfAbsent(flatName, k -> new ArrayList<>()).add(new Area(world, bounds, flatName));
+            }
+        }
+    }
+
+    private Map<String, List<UUID>> loadTrustedPlayers() throws SQLException {
+        Map<String, List<UUID>> trusted = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(SELECT_TRUSTED)) {
+            while (rows.next()) {
+                String flatName = rows.getString(1);
+                String trustedUuid = rows.getString(2);
+                try {
+                    trusted.computeIfAbsent(flatName, k -> new ArrayList<>()).add(UUID.fromString(trustedUuid));
+                } catch (IllegalArgumentException e) {
+                    logWarning("Flat '" + flatName + "' has an invalid trusted player '" + trustedUuid +
+                               "' which will be ignored.");
+                }
+            }
+        }
+        return trusted;
+    }
+
+    private @Nullable UUID parseOwner(String flatName, @Nullable String ownerUuid) {
+        if (ownerUuid == null || ownerUuid.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(ownerUuid);
+        } catch (IllegalArgumentException e) {
+            logWarning("Flat '" + flatName + "' has an invalid owner '" + ownerUuid + "' and will be unoccupied.");
+            return null;
+        }
+    }
+
+    private static @Nullable World resolveWorld(String worldId, String worldName) {
+        try {
+            World world = Bukkit.getWorld(UUID.fromString(worldId));
+            if (world != null) {
+                return world;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // Fall back to the name of the world
+        }
+        return Bukkit.getWorld(worldName);
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, e, () -> "Failed to roll back changes to " + file.getName());
+        }
+    }
+
+    private void restoreAutoCommit() {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, e, () -> "Failed to restore auto-commit on " + file.getName());
+        }
+    }
+
+    private void logWarning(String message) {
+        plugin.getLogger().log(Level.WARNING, () -> message);
+    }
+}
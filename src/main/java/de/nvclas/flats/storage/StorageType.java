@@ -0,0 +1,39 @@
+package de.nvclas.flats.storage;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Represents the available backends of the {@link FlatsStorage}.
+ * Each enumerated value corresponds to a value of the {@code storage} setting.
+ */
+@Getter
+public enum StorageType {
+    YAML("yaml"),
+    SQLITE("sqlite"),
+    BINARY("binary");
+
+    private final String configValue;
+
+    StorageType(String configValue) {
+        this.configValue = configValue;
+    }
+
+    /**
+     * Resolves the {@link StorageType} matching the given setting value.
+     * <p>
+     * The comparison ignores case. If no type matches, {@code null} is returned.
+     *
+     * @param configValue The value of the {@code storage} setting. Must not be null.
+     * @return The matching {@link StorageType}, or {@code null} if the value is unknown.
+     */
+    public static @Nullable StorageType fromConfigValue(@NotNull String configValue) {
+        for (StorageType type : values()) {
+            if (type.configValue.equalsIgnoreCase(configValue)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
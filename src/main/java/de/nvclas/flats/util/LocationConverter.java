@@ -1,16 +1,21 @@
 package de.nvclas.flats.util;
 
+import de.nvclas.flats.volumes.BlockBox;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.regex.Pattern;
+
 /**
  * Utility class for converting {@link Location} objects to and from their string representation.
  */
 @UtilityClass
 public class LocationConverter {
 
+    private static final Pattern SEPARATORS = Pattern.compile("[,:;]");
+
     /**
      * Converts two {@link Location} objects into a string representation.
      * The resulting string includes the world name and the coordinates of both locations
@@ -51,6 +56,51 @@ public class LocationConverter {
         return new Location[]{pos1, pos2};
     }
 
+    /**
+     * Parses the block bounds of a string representation of two {@link Location} objects without resolving
+     * its world. The input string should follow the format {@code worldName:x1,y1,z1;x2,y2,z2}.
+     * <p>
+     * Unlike {@link #getLocationsFromString(String)}, this does not access the server, so it may be called
+     * from any thread. The world can be resolved afterward by its name, see {@link #getWorldNameFromString(String)}.
+     *
+     * @param locationString A non-null {@code String} representing two locations.
+     * @return A non-null {@link BlockBox} spanning both locations, with the minimum corner first.
+     * @throws IllegalArgumentException If the input string is invalid or the coordinates cannot be parsed.
+     */
+    public static @NotNull BlockBox getBoundsFromString(@NotNull String locationString) throws IllegalArgumentException {
+        String[] parts = SEPARATORS.split(locationString);
+        if (parts.length != 7) {
+            throw new IllegalArgumentException("Invalid location string");
+        }
+        try {
+            int x1 = Integer.parseInt(parts[1]);
+            int y1 = Integer.parseInt(parts[2]);
+            int z1 = Integer.parseInt(parts[3]);
+            int x2 = Integer.parseInt(parts[4]);
+            int y2 = Integer.parseInt(parts[5]);
+            int z2 = Integer.parseInt(parts[6]);
+            return new BlockBox(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                                Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid coordinates in location string");
+        }
+    }
+
+    /**
+     * Extracts the world name of a string representation of two {@link Location} objects.
+     *
+     * @param locationString A non-null {@code String} in the format {@code worldName:x1,y1,z1;x2,y2,z2}.
+     * @return The name of the world, which is not checked for existence.
+     * @throws IllegalArgumentException If the input string contains no world name.
+     */
+    public static @NotNull String getWorldNameFromString(@NotNull String locationString) throws IllegalArgumentException {
+        int separator = locationString.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid location string");
+        }
+        return locationString.substring(0, separator);
+    }
+
     private static Location createLocation(String worldName, String x, String y, String z) throws IllegalArgumentException {
         if (Bukkit.getWorld(worldName) == null) {
             throw new IllegalArgumentException("World '" + worldName + "' does not exist");
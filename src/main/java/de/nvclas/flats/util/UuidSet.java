@@ -0,0 +1,157 @@
+package de.nvclas.flats.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * A compact, insertion ordered {@link java.util.Set} of {@link UUID}s.
+ * <p>
+ * The UUIDs are stored as pairs of {@code long}s in a single array, so a membership test compares
+ * primitive values without calling {@link UUID#equals} or dereferencing any object. This is tailored
+ * to the small sets of players trusted in a flat, where a linear scan over a few cache lines is faster
+ * than hashing.
+ */
+public class UuidSet extends AbstractSet<UUID> {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * The most and least significant bits of each UUID, stored at {@code 2 * i} and {@code 2 * i + 1}.
+     */
+    private long[] bits = EMPTY;
+    private int size;
+    private int modCount;
+
+    public UuidSet() {
+    }
+
+    public UuidSet(@NotNull Collection<UUID> uuids) {
+        bits = new long[uuids.size() * 2];
+        addAll(uuids);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof UUID uuid && indexOf(uuid) >= 0;
+    }
+
+    @Override
+    public boolean add(@NotNull UUID uuid) {
+        if (indexOf(uuid) >= 0) {
+            return false;
+        }
+        if (size * 2 == bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(4, bits.length * 2));
+        }
+        bits[size * 2] = uuid.getMostSignificantBits();
+        bits[size * 2 + 1] = uuid.getLeastSignificantBits();
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof UUID uuid)) {
+            return false;
+        }
+        int index = indexOf(uuid);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Retrieves the UUID that was added last.
+     *
+     * @return The last UUID of this set.
+     * @throws NoSuchElementException If this set is empty.
+     */
+    public @NotNull UUID getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return get(size - 1);
+    }
+
+    @Override
+    public @NotNull Iterator<UUID> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public UUID next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return get(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    private int indexOf(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        for (int i = 0; i < size; i++) {
+            if (bits[i * 2] == most && bits[i * 2 + 1] == least) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private UUID get(int index) {
+        return new UUID(bits[index * 2], bits[index * 2 + 1]);
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(bits, (index + 1) * 2, bits, index * 2, (size - index - 1) * 2);
+        size--;
+        modCount++;
+    }
+}
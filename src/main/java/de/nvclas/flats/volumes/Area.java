@@ -2,49 +2,61 @@ package de.nvclas.flats.volumes;
 
 import de.nvclas.flats.util.LocationConverter;
 import lombok.Getter;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
 
 /**
  * Represents a three-dimensional area defined by two corner points and a designated name.
  * This class provides functionality for area creation, boundary checks, and interacting
  * with its outer block structure.
+ * <p>
+ * An area only stores its inclusive block bounds as {@code int}s together with the identity of its world.
+ * The corner {@link Location}s and the string representation are created on demand, which keeps areas
+ * small and lets boundary checks compare block coordinates without any conversions.
  */
 @Getter
 public class Area {
 
-    private final Location pos1;
-    private final Location pos2;
+    private final UUID worldId;
+    private final String worldName;
     private final String flatName;
-    private final String locationString;
 
-    private final double minX;
-    private final double maxX;
-    private final double minY;
-    private final double maxY;
-    private final double minZ;
-    private final double maxZ;
+    private final int minX;
+    private final int maxX;
+    private final int minY;
+    private final int maxY;
+    private final int minZ;
+    private final int maxZ;
 
     /**
      * Constructs a new {@code Area} with the specified corner positions and flat name.
      * <p>
      * This constructor initializes an area defined by two corner points and associates it
-     * with a specific flat. It also pre-calculates and caches the minimum and maximum
-     * coordinate values for each dimension (X, Y, Z) to optimize boundary checks.
+     * with a specific flat. Only the world of the first corner and the minimum and maximum
+     * block coordinates of each dimension (X, Y, Z) are kept.
      *
-     * @param pos1     The first corner position of the area. Must not be null.
+     * @param pos1     The first corner position of the area. Must not be null and must reference a world.
      * @param pos2     The second corner position of the area. Must not be null.
      * @param flatName The name of the flat this area belongs to. Must not be null.
+     * @throws IllegalArgumentException If the first corner has no world reference.
      */
-    public Area(Location pos1, Location pos2, String flatName) {
-        this.pos1 = pos1;
-        this.pos2 = pos2;
+    public Area(Location pos1, Location pos2, String flatName) throws IllegalArgumentException {
+        World world = pos1.getWorld();
+        if (world == null) {
+            throw new IllegalArgumentException("First position has no world reference");
+        }
+        this.worldId = world.getUID();
+        this.worldName = world.getName();
         this.flatName = flatName;
-        this.locationString = LocationConverter.getStringFromLocations(pos1, pos2);
 
         this.minX = Math.min(pos1.getBlockX(), pos2.getBlockX());
         this.maxX = Math.max(pos1.getBlockX(), pos2.getBlockX());
@@ -54,6 +66,29 @@ public class Area {
         this.maxZ = Math.max(pos1.getBlockZ(), pos2.getBlockZ());
     }
 
+    /**
+     * Constructs a new {@code Area} in the specified world with the given block bounds.
+     * <p>
+     * Unlike {@link #Area(Location, Location, String)}, no {@link Location}s are needed, which keeps
+     * loading many areas from storage free of intermediate allocations.
+     *
+     * @param world    The world the area is located in. Must not be null.
+     * @param bounds   The inclusive block bounds of the area, with the minimum corner first. Must not be null.
+     * @param flatName The name of the flat this area belongs to. Must not be null.
+     */
+    public Area(@NotNull World world, @NotNull BlockBox bounds, @NotNull String flatName) {
+        this.worldId = world.getUID();
+        this.worldName = world.getName();
+        this.flatName = flatName;
+
+        this.minX = bounds.minX();
+        this.maxX = bounds.maxX();
+        this.minY = bounds.minY();
+        this.maxY = bounds.maxY();
+        this.minZ = bounds.minZ();
+        this.maxZ = bounds.maxZ();
+    }
+
     /**
      * Creates a new {@link Area} instance by parsing location data from a string representation.
      *
@@ -79,12 +114,50 @@ public class Area {
         return new Area(selection.getPos1(), selection.getPos2(), flatName);
     }
 
+    /**
+     * Retrieves the {@link World} this area is located in.
+     *
+     * @return The {@link World} of this area, or {@code null} if the world is not loaded.
+     */
+    public @Nullable World getWorld() {
+        return Bukkit.getWorld(worldId);
+    }
+
+    /**
+     * Creates the {@link Location} of the lowest corner of this area.
+     *
+     * @return A new {@link Location} at the minimum block coordinates of this area.
+     */
+    public @NotNull Location getPos1() {
+        return new Location(getWorld(), minX, minY, minZ);
+    }
+
+    /**
+     * Creates the {@link Location} of the highest corner of this area.
+     *
+     * @return A new {@link Location} at the maximum block coordinates of this area.
+     */
+    public @NotNull Location getPos2() {
+        return new Location(getWorld(), maxX, maxY, maxZ);
+    }
+
+    /**
+     * Creates the string representation of this area as used by {@link LocationConverter}.
+     * <p>
+     * The format is {@code worldName:x1,y1,z1;x2,y2,z2} with the lowest corner first.
+     *
+     * @return The string representation of this area. Never null.
+     */
+    public @NotNull String getLocationString() {
+        return worldName + ":" + minX + "," + minY + "," + minZ + ";" + maxX + "," + maxY + "," + maxZ;
+    }
+
     /**
      * Checks whether the specified {@link Location} is within the bounds defined
      * by the two corners {@code pos1} and {@code pos2} of this {@link Area}.
      * <p>
-     * The method performs a bounding box check across all dimensions (X, Y, Z).
-     * Uses cached boundary values for improved performance.
+     * The method performs a bounding box check across all dimensions (X, Y, Z)
+     * on the block coordinates of the location. The world of the location is not checked.
      *
      * @param location The {@link Location} to check. Must not be null.
      * @return {@code true} if the {@code location} is within the bounds of the area;
@@ -95,6 +168,21 @@ public class Area {
                location.getBlockY() <= maxY && location.getBlockZ() >= minZ && location.getBlockZ() <= maxZ;
     }
 
+    /**
+     * Checks whether the block at the given coordinates is within the bounds of this {@link Area}.
+     * <p>
+     * Unlike {@link #isWithinBounds(Location)}, this does not require a {@link Location} instance,
+     * which avoids allocations when many blocks are tested at once.
+     *
+     * @param x the X block coordinate
+     * @param y the Y block coordinate
+     * @param z the Z block coordinate
+     * @return {@code true} if the block is within the bounds of the area; {@code false} otherwise.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
     /**
      * Checks whether the given {@link Location} is within a specified distance from
      * any of the two positions defining this {@link Area}.
@@ -108,10 +196,37 @@ public class Area {
      * from either {@code pos1} or {@code pos2}; {@code false} otherwise.
      */
     public boolean isWithinDistance(@NotNull Location location, double range) {
-        return (Math.abs(location.getX() - pos1.getX()) <= range && Math.abs(location.getY() - pos1.getY()) <= range &&
-                Math.abs(location.getZ() - pos1.getZ()) <= range) ||
-               (Math.abs(location.getX() - pos2.getX()) <= range && Math.abs(location.getY() - pos2.getY()) <= range &&
-                Math.abs(location.getZ() - pos2.getZ()) <= range);
+        return (Math.abs(location.getX() - minX) <= range && Math.abs(location.getY() - minY) <= range &&
+                Math.abs(location.getZ() - minZ) <= range) ||
+               (Math.abs(location.getX() - maxX) <= range && Math.abs(location.getY() - maxY) <= range &&
+                Math.abs(location.getZ() - maxZ) <= range);
+    }
+
+    /**
+     * Checks whether this {@link Area} shares at least one block with the given {@link BlockBox}.
+     *
+     * @param box The {@link BlockBox} to test against. Must not be null.
+     * @return {@code true} if the area and the box intersect; {@code false} otherwise.
+     */
+    public boolean intersects(@NotNull BlockBox box) {
+        return box.intersects(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Calculates the squared distance between the given {@link Location} and the closest point
+     * of the blocks covered by this {@link Area}.
+     * <p>
+     * Locations inside the area have a distance of {@code 0}. The squared distance is returned
+     * to avoid the square root when comparing distances.
+     *
+     * @param location The {@link Location} to measure from. Must not be null.
+     * @return The squared distance to this area in blocks.
+     */
+    public double distanceSquared(@NotNull Location location) {
+        double dx = Math.max(Math.max(minX - location.getX(), location.getX() - (maxX + 1)), 0);
+        double dy = Math.max(Math.max(minY - location.getY(), location.getY() - (maxY + 1)), 0);
+        double dz = Math.max(Math.max(minZ - location.getZ(), location.getZ() - (maxZ + 1)), 0);
+        return dx * dx + dy * dy + dz * dz;
     }
 
     /**
@@ -125,13 +240,13 @@ public class Area {
      */
     public @NotNull List<Block> getAllOuterBlocks() {
         List<Block> blocks = new ArrayList<>();
+        World world = Objects.requireNonNull(getWorld(), "World of area is not loaded");
 
-        for (int x = (int) minX; x <= (int) maxX; x++) {
-            for (int y = (int) minY; y <= (int) maxY; y++) {
-                for (int z = (int) minZ; z <= (int) maxZ; z++) {
-                    if (x == (int) minX || x == (int) maxX || y == (int) minY || y == (int) maxY || z == (int) minZ ||
-                        z == (int) maxZ) {
-                        blocks.add(pos1.getWorld().getBlockAt(x, y, z));
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    if (x == minX || x == maxX || y == minY || y == maxY || z == minZ || z == maxZ) {
+                        blocks.add(world.getBlockAt(x, y, z));
                     }
                 }
             }
@@ -0,0 +1,84 @@
+package de.nvclas.flats.volumes;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents an axis-aligned box of blocks defined by inclusive minimum and maximum block coordinates.
+ * <p>
+ * Unlike {@link Area}, a {@code BlockBox} is not bound to a world or a flat and is primarily used
+ * to describe the region of spatial queries.
+ *
+ * @param minX the lowest X block coordinate contained in the box
+ * @param minY the lowest Y block coordinate contained in the box
+ * @param minZ the lowest Z block coordinate contained in the box
+ * @param maxX the highest X block coordinate contained in the box
+ * @param maxY the highest Y block coordinate contained in the box
+ * @param maxZ the highest Z block coordinate contained in the box
+ */
+public record BlockBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+
+    /**
+     * Creates a {@link BlockBox} spanning the blocks between two corner {@link Location}s.
+     * <p>
+     * The corners may be given in any order, the resulting box is normalized.
+     *
+     * @param pos1 The first corner. Must not be null.
+     * @param pos2 The second corner. Must not be null.
+     * @return A new {@link BlockBox} containing both corners.
+     */
+    public static @NotNull BlockBox of(@NotNull Location pos1, @NotNull Location pos2) {
+        return new BlockBox(Math.min(pos1.getBlockX(), pos2.getBlockX()),
+                            Math.min(pos1.getBlockY(), pos2.getBlockY()),
+                            Math.min(pos1.getBlockZ(), pos2.getBlockZ()),
+                            Math.max(pos1.getBlockX(), pos2.getBlockX()),
+                            Math.max(pos1.getBlockY(), pos2.getBlockY()),
+                            Math.max(pos1.getBlockZ(), pos2.getBlockZ()));
+    }
+
+    /**
+     * Creates a {@link BlockBox} covering all blocks within the given distance of a {@link Location}.
+     *
+     * @param center The center of the box. Must not be null.
+     * @param radius The distance in blocks the box extends in every direction.
+     * @return A new {@link BlockBox} enclosing the sphere around {@code center}.
+     */
+    public static @NotNull BlockBox around(@NotNull Location center, double radius) {
+        return new BlockBox((int) Math.floor(center.getX() - radius),
+                            (int) Math.floor(center.getY() - radius),
+                            (int) Math.floor(center.getZ() - radius),
+                            (int) Math.floor(center.getX() + radius),
+                            (int) Math.floor(center.getY() + radius),
+                            (int) Math.floor(center.getZ() + radius));
+    }
+
+    /**
+     * Checks whether the block at the given coordinates lies within this box.
+     *
+     * @param x the X block coordinate
+     * @param y the Y block coordinate
+     * @param z the Z block coordinate
+     * @return {@code true} if the block is contained in this box; {@code false} otherwise.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * Checks whether this box shares at least one block with the given bounds.
+     *
+     * @param otherMinX the lowest X block coordinate of the other bounds
+     * @param otherMinY the lowest Y block coordinate of the other bounds
+     * @param otherMinZ the lowest Z block coordinate of the other bounds
+     * @param otherMaxX the highest X block coordinate of the other bounds
+     * @param otherMaxY the highest Y block coordinate of the other bounds
+     * @param otherMaxZ the highest Z block coordinate of the other bounds
+     * @return {@code true} if both boxes intersect; {@code false} otherwise.
+     */
+    @SuppressWarnings("java:S107") // mirrors the components of the record
+    public boolean intersects(int otherMinX, int otherMinY, int otherMinZ, int otherMaxX, int otherMaxY,
+                              int otherMaxZ) {
+        return minX <= otherMaxX && maxX >= otherMinX && minY <= otherMaxY && maxY >= otherMinY &&
+               minZ <= otherMaxZ && maxZ >= otherMinZ;
+    }
+}
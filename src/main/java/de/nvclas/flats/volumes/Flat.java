@@ -1,38 +1,121 @@
 package de.nvclas.flats.volumes;
 
+import de.nvclas.flats.util.UuidSet;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Represents a flat composed of multiple {@link Area} objects.
  * A flat can have an owner and a unique name.
+ * <p>
+ * The owner and the trusted players are kept as raw UUIDs, resolving them to players or names is left
+ * to the code that displays them.
+ * <p>
+ * Changes of the owner, the trusted players and the areas are reported to all {@link FlatListener}s
+ * added to the flat.
+ * <p>
+ * A flat may be read from any thread while it is modified. The areas and the trusted players are copied
+ * on write, so readers always iterate a consistent state without locking. Modifications are serialized.
+ * <p>
+ * Every modification marks the flat as dirty, so only flats that changed since they were last saved
+ * have to be written again.
  */
 @Getter
 @Setter
 public class Flat {
 
     private final List<Area> areas;
-    private final List<OfflinePlayer> trusted;
-    private String name;
-    private OfflinePlayer owner;
+    @Getter(AccessLevel.NONE)
+    private volatile UuidSet trusted;
+    private volatile String name;
+    @Setter(AccessLevel.NONE)
+    private volatile @Nullable UUID owner;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final List<FlatListener> listeners = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicBoolean dirty;
 
     public Flat(String name, Area area) {
         this.name = name;
-        areas = new ArrayList<>(List.of(area));
-        trusted = new ArrayList<>();
+        areas = new CopyOnWriteArrayList<>(List.of(area));
+        trusted = new UuidSet();
+        dirty = new AtomicBoolean(true);
     }
 
-    public Flat(String name, OfflinePlayer owner, List<Area> areas, List<OfflinePlayer> trusted) {
+    public Flat(String name, @Nullable UUID owner, List<Area> areas, Collection<UUID> trusted) {
         this.name = name;
         this.owner = owner;
-        this.areas = areas;
-        this.trusted = trusted;
+        this.areas = new CopyOnWriteArrayList<>(areas);
+        this.trusted = new UuidSet(trusted);
+        this.dirty = new AtomicBoolean(false);
+    }
+
+    /**
+     * Checks whether this flat has been modified since it was last saved.
+     * <p>
+     * Flats created with a single area start out dirty, flats restored with all their data start out clean.
+     *
+     * @return {@code true} if this flat has unsaved changes; {@code false} otherwise.
+     */
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Marks this flat as modified, so it is written on the next save.
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Marks this flat as saved.
+     * <p>
+     * This must be called before the state of the flat is read for saving, so a modification made
+     * concurrently marks the flat as dirty again instead of being lost.
+     *
+     * @return {@code true} if this flat had unsaved changes; {@code false} otherwise.
+     */
+    public boolean clearDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    /**
+     * Retrieves the UUIDs of the players trusted in this flat in the order they were trusted.
+     *
+     * @return An unmodifiable view of the trusted player UUIDs. Never null.
+     */
+    public @NotNull Set<UUID> getTrusted() {
+        return Collections.unmodifiableSet(trusted);
+    }
+
+    /**
+     * Sets the owner of this flat and notifies its {@link FlatListener}s.
+     *
+     * @param owner The UUID of the new owner, or {@code null} to mark the flat as unoccupied.
+     */
+    public synchronized void setOwner(@Nullable UUID owner) {
+        UUID previousOwner = this.owner;
+        this.owner = owner;
+        markDirty();
+        for (FlatListener listener : listeners) {
+            listener.onOwnerChanged(this, previousOwner, owner);
+        }
     }
 
     /**
@@ -59,7 +142,7 @@ public class Flat {
      * @return {@code true} if the given player is the owner of this flat; {@code false} otherwise.
      */
     public boolean isOwner(@NotNull OfflinePlayer player) {
-        return owner != null && owner.getUniqueId().equals(player.getUniqueId());
+        return player.getUniqueId().equals(owner);
     }
 
     /**
@@ -78,18 +161,38 @@ public class Flat {
      * @return {@code true} if the specified player is trusted; {@code false} otherwise.
      */
     public boolean isTrusted(@NotNull OfflinePlayer player) {
-        return trusted.contains(player);
+        return trusted.contains(player.getUniqueId());
     }
 
     /**
      * Adds the specified {@link OfflinePlayer} to the list of trusted players for this flat.
      * <p>
-     * Trusted players have access to this flat's resources.
+     * Trusted players have access to this flat's resources. Adding a player that is already trusted has no effect.
      *
      * @param player The {@link OfflinePlayer} to be added to the trusted list. Must not be null.
      */
     public void addTrusted(@NotNull OfflinePlayer player) {
-        trusted.add(player);
+        addTrusted(player.getUniqueId());
+    }
+
+    /**
+     * Adds the player with the specified UUID to the list of trusted players for this flat.
+     * <p>
+     * Adding a player that is already trusted has no effect.
+     *
+     * @param playerId The UUID of the player to be added to the trusted list. Must not be null.
+     */
+    public synchronized void addTrusted(@NotNull UUID playerId) {
+        if (trusted.contains(playerId)) {
+            return;
+        }
+        UuidSet updated = new UuidSet(trusted);
+        updated.add(playerId);
+        trusted = updated;
+        markDirty();
+        for (FlatListener listener : listeners) {
+            listener.onTrustedAdded(this, playerId);
+        }
     }
 
     /**
@@ -98,7 +201,42 @@ public class Flat {
      * @param player The {@link OfflinePlayer} to be removed from the trusted list. Must not be null.
      */
     public void removeTrusted(@NotNull OfflinePlayer player) {
-        trusted.remove(player);
+        removeTrusted(player.getUniqueId());
+    }
+
+    /**
+     * Removes the player with the specified UUID from the list of trusted players for this flat.
+     *
+     * @param playerId The UUID of the player to be removed from the trusted list. Must not be null.
+     */
+    public synchronized void removeTrusted(@NotNull UUID playerId) {
+        if (!trusted.contains(playerId)) {
+            return;
+        }
+        UuidSet updated = new UuidSet(trusted);
+        updated.remove(playerId);
+        trusted = updated;
+        markDirty();
+        for (FlatListener listener : listeners) {
+            listener.onTrustedRemoved(this, playerId);
+        }
+    }
+
+    /**
+     * Removes all players from the list of trusted players for this flat.
+     */
+    public synchronized void clearTrusted() {
+        UuidSet removed = trusted;
+        if (removed.isEmpty()) {
+            return;
+        }
+        trusted = new UuidSet();
+        markDirty();
+        for (FlatListener listener : listeners) {
+            for (UUID playerId : removed) {
+                listener.onTrustedRemoved(this, playerId);
+            }
+        }
     }
 
     /**
@@ -106,8 +244,30 @@ public class Flat {
      *
      * @param area The {@link Area} to add. Must not be null.
      */
-    public void addArea(@NotNull Area area) {
+    public synchronized void addArea(@NotNull Area area) {
         areas.add(area);
+        markDirty();
+        for (FlatListener listener : listeners) {
+            listener.onAreaAdded(this, area);
+        }
+    }
+
+    /**
+     * Starts notifying the specified {@link FlatListener} about changes of this flat.
+     *
+     * @param listener The {@link FlatListener} to add. Must not be null.
+     */
+    public void addListener(@NotNull FlatListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops notifying the specified {@link FlatListener} about changes of this flat.
+     *
+     * @param listener The {@link FlatListener} to remove. Must not be null.
+     */
+    public void removeListener(@NotNull FlatListener listener) {
+        listeners.remove(listener);
     }
 
 }
@@ -0,0 +1,50 @@
+package de.nvclas.flats.volumes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Receives notifications about changes of the players and areas associated with a {@link Flat}.
+ * <p>
+ * This allows indexes built from the owners and trusted players of flats to be kept up to date
+ * without scanning all flats, and changes to be recorded as they happen. A flat notifies all listeners
+ * added via {@link Flat#addListener}.
+ */
+public interface FlatListener {
+
+    /**
+     * Called after the owner of a flat has changed.
+     *
+     * @param flat          The {@link Flat} whose owner changed. Never null.
+     * @param previousOwner The UUID of the previous owner, or {@code null} if the flat was unoccupied.
+     * @param newOwner      The UUID of the new owner, or {@code null} if the flat is now unoccupied.
+     */
+    void onOwnerChanged(@NotNull Flat flat, @Nullable UUID previousOwner, @Nullable UUID newOwner);
+
+    /**
+     * Called after a player has been added to the trusted players of a flat.
+     *
+     * @param flat     The {@link Flat} the player is now trusted in. Never null.
+     * @param playerId The UUID of the player that was added. Never null.
+     */
+    void onTrustedAdded(@NotNull Flat flat, @NotNull UUID playerId);
+
+    /**
+     * Called after a player has been removed from the trusted players of a flat.
+     *
+     * @param flat     The {@link Flat} the player is no longer trusted in. Never null.
+     * @param playerId The UUID of the player that was removed. Never null.
+     */
+    void onTrustedRemoved(@NotNull Flat flat, @NotNull UUID playerId);
+
+    /**
+     * Called after an area has been added to a flat.
+     *
+     * @param flat The {@link Flat} the area was added to. Never null.
+     * @param area The {@link Area} that was added. Never null.
+     */
+    default void onAreaAdded(@NotNull Flat flat, @NotNull Area area) {
+    }
+}
@@ -73,12 +73,12 @@ public class Selection {
         double maxZ1 = Math.max(pos1.getZ(), pos2.getZ());
         double minZ1 = Math.min(pos1.getZ(), pos2.getZ());
 
-        double maxX2 = Math.max(area.getPos1().getX(), area.getPos2().getX());
-        double minX2 = Math.min(area.getPos1().getX(), area.getPos2().getX());
-        double maxY2 = Math.max(area.getPos1().getY(), area.getPos2().getY());
-        double minY2 = Math.min(area.getPos1().getY(), area.getPos2().getY());
-        double maxZ2 = Math.max(area.getPos1().getZ(), area.getPos2().getZ());
-        double minZ2 = Math.min(area.getPos1().getZ(), area.getPos2().getZ());
+        double maxX2 = area.getMaxX();
+        double minX2 = area.getMinX();
+        double maxY2 = area.getMaxY();
+        double minY2 = area.getMinY();
+        double maxZ2 = area.getMaxZ();
+        double minZ2 = area.getMinZ();
 
         boolean intersectsX = minX1 <= maxX2 && maxX1 >= minX2;
         boolean intersectsY = minY1 <= maxY2 && maxY1 >= minY2;
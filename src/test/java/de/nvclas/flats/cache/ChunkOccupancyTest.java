@@ -0,0 +1,90 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkOccupancyTest {
+
+    private WorldMock world;
+    private WorldMock otherWorld;
+    private ChunkOccupancy chunkOccupancy;
+
+    @BeforeEach
+    void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        world = TestUtil.addWorld(serverMock, "world");
+        otherWorld = TestUtil.addWorld(serverMock, "world_nether");
+        chunkOccupancy = new ChunkOccupancy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private Area createArea(int x1, int z1, int x2, int z2) {
+        return TestUtil.createArea(world, "flat", x1, 0, z1, x2, 10, z2);
+    }
+
+    @Test
+    void marksOverlappedChunksOnly() {
+        chunkOccupancy.addArea(createArea(-20, 500, 20, 520));
+
+        assertTrue(chunkOccupancy.isOccupied(world, -2, 31));
+        assertTrue(chunkOccupancy.isOccupied(world, 1, 32));
+        assertTrue(chunkOccupancy.isOccupied(new Location(world, 0, 64, 510)));
+        assertFalse(chunkOccupancy.isOccupied(world, 2, 31));
+        assertFalse(chunkOccupancy.isOccupied(world, -3, 32));
+        assertFalse(chunkOccupancy.isOccupied(world, 0, 30));
+        assertFalse(chunkOccupancy.isOccupied(otherWorld, 0, 31));
+    }
+
+    @Test
+    void keepsChunkOccupiedUntilLastAreaIsRemoved() {
+        Area first = createArea(0, 0, 5, 5);
+        Area second = createArea(8, 8, 40, 12);
+        chunkOccupancy.addArea(first);
+        chunkOccupancy.addArea(second);
+
+        chunkOccupancy.removeArea(first);
+
+        assertTrue(chunkOccupancy.isOccupied(world, 0, 0));
+        assertTrue(chunkOccupancy.isOccupied(world, 2, 0));
+
+        chunkOccupancy.removeArea(second);
+
+        assertFalse(chunkOccupancy.isOccupied(world, 0, 0));
+        assertFalse(chunkOccupancy.isOccupied(world, 2, 0));
+    }
+
+    @Test
+    void copyIsIndependentOfOriginal() {
+        Area shared = createArea(0, 0, 5, 5);
+        Area removed = createArea(100, 100, 105, 105);
+        chunkOccupancy.addArea(shared);
+        chunkOccupancy.addArea(removed);
+
+        ChunkOccupancy copy = chunkOccupancy.copy();
+        copy.removeArea(removed);
+        copy.addArea(createArea(600, 0, 605, 5));
+        chunkOccupancy.addArea(createArea(40, 40, 45, 45));
+
+        assertTrue(chunkOccupancy.isOccupied(world, 6, 6));
+        assertFalse(chunkOccupancy.isOccupied(world, 37, 0));
+        assertTrue(chunkOccupancy.isOccupied(world, 2, 2));
+        assertTrue(copy.isOccupied(world, 0, 0));
+        assertFalse(copy.isOccupied(world, 6, 6));
+        assertTrue(copy.isOccupied(world, 37, 0));
+        assertFalse(copy.isOccupied(world, 2, 2));
+    }
+}
@@ -0,0 +1,109 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.MockBukkitExtension;
+import org.mockbukkit.mockbukkit.MockBukkitInject;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@ExtendWith(MockBukkitExtension.class)
+class FlatsCacheTest {
+
+    @MockBukkitInject
+    private ServerMock server;
+    @MockBukkitInject
+    private Flats plugin;
+    @MockBukkitInject
+    private WorldMock world;
+    private FlatsCache flatsCache;
+
+    @BeforeEach
+    void setUp() {
+        flatsCache = plugin.getFlatsCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+        if (plugin.getDataFolder().exists() && !plugin.getDataFolder().delete()) {
+            fail("Could not delete plugin data folder.");
+        }
+    }
+
+    private Area createArea(String flatName, int offset) {
+        return TestUtil.createArea(world, flatName, offset);
+    }
+
+    @Test
+    void blocksAreResolvedToTheirFlats() {
+        flatsCache.create("first", createArea("first", 0));
+        flatsCache.create("second", createArea("second", 100));
+        flatsCache.addArea("first", createArea("first", 200));
+        Block inFirst = world.getBlockAt(5, 5, 5);
+        Block inSecond = world.getBlockAt(105, 5, 5);
+        Block inAddedArea = world.getBlockAt(210, 10, 10);
+        Block outside = world.getBlockAt(50, 5, 5);
+
+        Map<Block, Flat> flatsByBlock = flatsCache.getFlatsByBlocks(world,
+                                                                    List.of(inFirst, inSecond, inAddedArea, outside));
+
+        assertEquals(flatsCache.getExistingFlat("first"), flatsByBlock.get(inFirst));
+        assertEquals(flatsCache.getExistingFlat("second"), flatsByBlock.get(inSecond));
+        assertEquals(flatsCache.getExistingFlat("first"), flatsByBlock.get(inAddedArea));
+        assertFalse(flatsByBlock.containsKey(outside));
+    }
+
+    @Test
+    void nearestFlatsAreOrderedByDistance() {
+        flatsCache.create("far", createArea("far", 1000));
+        flatsCache.create("near", createArea("near", 0));
+        flatsCache.create("middle", createArea("middle", 100));
+        Location location = new Location(world, -5, 5, 5);
+
+        assertEquals(List.of("near", "middle"),
+                     flatsCache.getNearestFlats(location, 2).stream().map(Flat::getName).toList());
+        assertEquals(List.of("near", "middle", "far"),
+                     flatsCache.getNearestFlats(location, 5).stream().map(Flat::getName).toList());
+    }
+
+    @Test
+    void areasBeyondTheRadiusAreExcluded() {
+        flatsCache.create("flat", createArea("flat", 0));
+        Location location = new Location(world, 20, 5, 5);
+
+        assertEquals(1, flatsCache.getAreasWithinRadius(location, 9.5).size());
+        assertTrue(flatsCache.getAreasWithinRadius(location, 8.5).isEmpty());
+    }
+
+    @Test
+    void queriesAreLimitedToTheirWorld() {
+        WorldMock otherWorld = TestUtil.addWorld(server, "other");
+        flatsCache.create("flat", createArea("flat", 0));
+        flatsCache.create("other", TestUtil.createArea(otherWorld, "other", 0));
+        BlockBox box = new BlockBox(0, 0, 0, 20, 20, 20);
+
+        assertEquals(List.of(flatsCache.getExistingFlat("flat")), flatsCache.getFlatsIntersecting(world, box));
+        assertEquals(List.of(flatsCache.getExistingFlat("other")), flatsCache.getFlatsIntersecting(otherWorld, box));
+        assertEquals(List.of(flatsCache.getExistingFlat("other")),
+                     flatsCache.getNearestFlats(new Location(otherWorld, 5, 5, 5), 2));
+    }
+}
@@ -0,0 +1,94 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IndexSnapshotTest {
+
+    private WorldMock world;
+
+    @BeforeEach
+    void setUp() {
+        world = TestUtil.addWorld(MockBukkit.mock(), "world");
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private Flat createFlat(String name, int x1, int z1, int x2, int z2) {
+        return TestUtil.createFlat(world, name, x1, 0, z1, x2, 10, z2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void buildIndexesAllFlats(SpatialIndexType type) {
+        Flat first = createFlat("first", 0, 0, 10, 10);
+        Flat second = createFlat("second", 500, 500, 510, 510);
+
+        IndexSnapshot snapshot = IndexSnapshot.build(3, Map.of("first", first, "second", second), type);
+
+        assertEquals(3, snapshot.generation());
+        assertEquals(first, snapshot.findArea(new Location(world, 5, 5, 5)).flat());
+        assertEquals(second, snapshot.findArea(new Location(world, 505, 5, 505)).flat());
+        assertNull(snapshot.findArea(new Location(world, 200, 5, 200)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void buildIsUnaffectedByLaterChanges(SpatialIndexType type) {
+        Map<String, Flat> flats = new HashMap<>();
+        flats.put("first", createFlat("first", 0, 0, 10, 10));
+        IndexSnapshot snapshot = IndexSnapshot.build(1, flats, type);
+
+        flats.put("second", createFlat("second", 500, 500, 510, 510));
+        IndexSnapshot nextSnapshot = IndexSnapshot.build(2, flats, type);
+
+        assertEquals(1, snapshot.flats().size());
+        assertNull(snapshot.findArea(new Location(world, 505, 5, 505)));
+        assertEquals(flats.get("second"), nextSnapshot.findArea(new Location(world, 505, 5, 505)).flat());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.flats().remove("first"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void derivedSnapshotsLeavePreviousSnapshotsUnchanged(SpatialIndexType type) {
+        Flat first = createFlat("first", 0, 0, 10, 10);
+        IndexSnapshot snapshot = IndexSnapshot.build(1, Map.of("first", first), type);
+
+        Flat second = createFlat("second", 500, 500, 510, 510);
+        IndexSnapshot withSecond = snapshot.withFlat(second);
+        Area addedArea = TestUtil.createArea(world, "second", 700, 0, 700, 710, 10, 710);
+        second.addArea(addedArea);
+        IndexSnapshot withArea = withSecond.withArea(second, addedArea);
+        IndexSnapshot withoutFirst = withArea.withoutFlat(first);
+
+        assertEquals(2, withSecond.generation());
+        assertEquals(4, withoutFirst.generation());
+        assertEquals(Map.of("first", first), snapshot.flats());
+        assertNull(snapshot.findArea(new Location(world, 505, 5, 505)));
+        assertEquals(second, withSecond.findArea(new Location(world, 505, 5, 505)).flat());
+        assertNull(withSecond.findArea(new Location(world, 705, 5, 705)));
+        assertEquals(second, withArea.findArea(new Location(world, 705, 5, 705)).flat());
+        assertEquals(first, withArea.findArea(new Location(world, 5, 5, 5)).flat());
+        assertEquals(Map.of("second", second), withoutFirst.flats());
+        assertNull(withoutFirst.findArea(new Location(world, 5, 5, 5)));
+        assertEquals(second, withoutFirst.findArea(new Location(world, 705, 5, 705)).flat());
+    }
+}
@@ -0,0 +1,65 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LocalityCacheTest {
+
+    private ServerMock server;
+    private WorldMock world;
+    private PlayerMock player;
+    private IndexedArea entry;
+    private LocalityCache localityCache;
+
+    @BeforeEach
+    void setUp() {
+        server = MockBukkit.mock();
+        world = TestUtil.addWorld(server, "world");
+        player = server.addPlayer();
+        Flat flat = TestUtil.createFlat(world, "flat");
+        Area area = flat.getAreas().get(0);
+        entry = new IndexedArea(area, flat);
+        localityCache = new LocalityCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void hintIsReturnedWithinTheArea() {
+        localityCache.put(player, entry, 1);
+
+        assertSame(entry, localityCache.get(player, new Location(world, 5, 5, 5), 1));
+    }
+
+    @Test
+    void hintIsDroppedWhenTheGenerationChanges() {
+        localityCache.put(player, entry, 1);
+
+        assertNull(localityCache.get(player, new Location(world, 5, 5, 5), 2));
+    }
+
+    @Test
+    void hintIsIgnoredOutsideTheArea() {
+        localityCache.put(player, entry, 1);
+
+        assertNull(localityCache.get(player, new Location(world, 11, 5, 5), 1));
+        assertNull(localityCache.get(player, new Location(world, 5, -1, 5), 1));
+        assertNull(localityCache.get(player, new Location(TestUtil.addWorld(server, "other"), 5, 5, 5), 1));
+        assertSame(entry, localityCache.get(player, new Location(world, 10, 10, 10), 1));
+    }
+}
@@ -0,0 +1,97 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Flat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlayerFlatsIndexTest {
+
+    private WorldMock world;
+    private PlayerMock owner;
+    private PlayerMock guest;
+    private PlayerFlatsIndex playerFlatsIndex;
+
+    @BeforeEach
+    void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        world = TestUtil.addWorld(serverMock, "world");
+        owner = serverMock.addPlayer("Owner");
+        guest = serverMock.addPlayer("Guest");
+        playerFlatsIndex = new PlayerFlatsIndex();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private Flat createFlat(String name) {
+        return TestUtil.createFlat(world, name);
+    }
+
+    @Test
+    void indexesExistingOwnerAndTrusted() {
+        Flat flat = createFlat("flat");
+        flat.setOwner(owner.getUniqueId());
+        flat.addTrusted(guest);
+
+        playerFlatsIndex.addFlat(flat);
+
+        assertEquals(List.of(flat), playerFlatsIndex.getOwnedFlats(owner.getUniqueId()));
+        assertEquals(List.of(flat), playerFlatsIndex.getTrustedFlats(guest.getUniqueId()));
+    }
+
+    @Test
+    void followsOwnerChanges() {
+        Flat flat = createFlat("flat");
+        playerFlatsIndex.addFlat(flat);
+
+        flat.setOwner(owner.getUniqueId());
+        assertEquals(List.of(flat), playerFlatsIndex.getOwnedFlats(owner.getUniqueId()));
+
+        flat.setOwner(guest.getUniqueId());
+        assertEquals(List.of(), playerFlatsIndex.getOwnedFlats(owner.getUniqueId()));
+        assertEquals(List.of(flat), playerFlatsIndex.getOwnedFlats(guest.getUniqueId()));
+
+        flat.setOwner(null);
+        assertEquals(List.of(), playerFlatsIndex.getOwnedFlats(guest.getUniqueId()));
+    }
+
+    @Test
+    void followsTrustChanges() {
+        Flat first = createFlat("first");
+        Flat second = createFlat("second");
+        playerFlatsIndex.addFlat(first);
+        playerFlatsIndex.addFlat(second);
+
+        first.addTrusted(guest);
+        second.addTrusted(guest);
+        assertEquals(List.of(first, second), playerFlatsIndex.getTrustedFlats(guest.getUniqueId()));
+
+        first.clearTrusted();
+        assertEquals(List.of(second), playerFlatsIndex.getTrustedFlats(guest.getUniqueId()));
+    }
+
+    @Test
+    void removeFlatDetachesListener() {
+        Flat flat = createFlat("flat");
+        flat.setOwner(owner.getUniqueId());
+        playerFlatsIndex.addFlat(flat);
+
+        playerFlatsIndex.removeFlat(flat);
+        flat.setOwner(guest.getUniqueId());
+
+        assertEquals(List.of(), playerFlatsIndex.getOwnedFlats(owner.getUniqueId()));
+        assertEquals(List.of(), playerFlatsIndex.getOwnedFlats(guest.getUniqueId()));
+    }
+}
@@ -0,0 +1,64 @@
+package de.nvclas.flats.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedLong2ObjectMapTest {
+
+    @Test
+    void copyIsIndependentOfItsSource() {
+        SegmentedLong2ObjectMap<String> source = new SegmentedLong2ObjectMap<>();
+        for (long key = 0; key < 100; key++) {
+            source.put(key, "value" + key);
+        }
+
+        SegmentedLong2ObjectMap<String> copy = source.copy();
+        copy.put(100, "added");
+        copy.put(1, "replaced");
+        copy.remove(2);
+
+        assertEquals(100, source.size());
+        assertNull(source.get(100));
+        assertEquals("value1", source.get(1));
+        assertEquals("value2", source.get(2));
+        assertEquals(100, copy.size());
+        assertEquals("replaced", copy.get(1));
+        assertNull(copy.get(2));
+    }
+
+    @Test
+    void iterationVisitsEveryMappingAfterGrowing() {
+        SegmentedLong2ObjectMap<String> map = new SegmentedLong2ObjectMap<>();
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key << 32, "value" + key);
+        }
+
+        long count = 0;
+        for (Long2ObjectMap.Entry<String> entry : map) {
+            assertEquals("value" + (entry.getLongKey() >>> 32), entry.getValue());
+            count++;
+        }
+        assertEquals(10_000, count);
+        assertEquals(10_000, map.size());
+    }
+
+    @Test
+    void removingAllMappingsEmptiesTheCopy() {
+        SegmentedLong2ObjectMap<String> source = new SegmentedLong2ObjectMap<>();
+        source.put(1, "one");
+        source.put(2, "two");
+
+        SegmentedLong2ObjectMap<String> copy = source.copy();
+        copy.remove(1);
+        copy.remove(2);
+
+        assertTrue(copy.isEmpty());
+        assertFalse(copy.iterator().hasNext());
+        assertEquals(2, source.size());
+    }
+}
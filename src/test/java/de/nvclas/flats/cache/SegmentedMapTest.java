@@ -0,0 +1,78 @@
+package de.nvclas.flats.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedMapTest {
+
+    @Test
+    void copyIsIndependentOfItsSource() {
+        SegmentedMap<String, Integer> source = SegmentedMap.byEquality();
+        for (int i = 0; i < 100; i++) {
+            source.put("key" + i, i);
+        }
+
+        SegmentedMap<String, Integer> copy = source.copy();
+        copy.put("added", -1);
+        copy.put("key1", -2);
+        copy.remove("key2");
+
+        assertEquals(100, source.size());
+        assertNull(source.get("added"));
+        assertEquals(1, source.get("key1"));
+        assertEquals(2, source.get("key2"));
+        assertEquals(100, copy.size());
+        assertEquals(-2, copy.get("key1"));
+        assertFalse(copy.containsKey("key2"));
+    }
+
+    @Test
+    void mappingsSurviveGrowingSegments() {
+        SegmentedMap<String, Integer> map = SegmentedMap.byEquality();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            map.put("key" + i, i);
+            expected.put("key" + i, i);
+        }
+        SegmentedMap<String, Integer> copy = map.copy();
+        for (int i = 0; i < 10_000; i += 2) {
+            copy.remove("key" + i);
+        }
+
+        assertEquals(expected, map);
+        assertEquals(5_000, copy.size());
+        assertEquals(5_000, copy.entrySet().size());
+        assertTrue(copy.keySet().stream().allMatch(key -> Integer.parseInt(key.substring(3)) % 2 == 1));
+    }
+
+    @Test
+    void identityMapDistinguishesEqualKeys() {
+        String key = "flat";
+        String equalKey = new String(key);
+        SegmentedMap<String, Integer> map = SegmentedMap.byIdentity();
+        map.put(key, 1);
+
+        assertEquals(1, map.get(key));
+        assertNull(map.get(equalKey));
+        assertNull(map.remove(equalKey));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void viewsAreUnmodifiable() {
+        SegmentedMap<String, Integer> map = SegmentedMap.byEquality();
+        map.put("key", 1);
+
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().iterator().next().setValue(2));
+        assertThrows(UnsupportedOperationException.class, () -> map.values().clear());
+        assertEquals(1, map.get("key"));
+    }
+}
@@ -0,0 +1,157 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialIndexStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private WorldMock world;
+    private WorldMock otherWorld;
+    private File indexFile;
+    private SpatialIndexStore store;
+    private Map<String, Flat> flats;
+
+    @BeforeEach
+    void setUp() {
+        ServerMock serverMock = MockBukkit.mock();
+        world = TestUtil.addWorld(serverMock, "world");
+        otherWorld = TestUtil.addWorld(serverMock, "world_nether");
+        indexFile = tempDir.resolve("flats.index").toFile();
+        store = new SpatialIndexStore(indexFile, Logger.getLogger("SpatialIndexStoreTest"));
+
+        flats = new HashMap<>();
+        Flat first = new Flat("first", TestUtil.createArea(world, "first", 0, 0, 0, 40, 40, 40));
+        first.addArea(TestUtil.createArea(otherWorld, "first", 100, 0, 100, 110, 10, 110));
+        flats.put("first", first);
+        flats.put("second", new Flat("second", TestUtil.createArea(world, "second", -50, 0, -50, -45, 5, -45)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private void save(SpatialIndexType type) {
+        SpatialIndex index = IndexSnapshot.build(0, flats, type).spatialIndex();
+        Map<String, List<Area>> areas = new HashMap<>();
+        flats.forEach((name, flat) -> areas.put(name, List.copyOf(flat.getAreas())));
+        assertTrue(store.save(areas, index, type));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void restoredIndexMatchesBuiltIndex(SpatialIndexType type) {
+        save(type);
+
+        SpatialIndex restored = store.load(flats, type);
+
+        assertNotNull(restored);
+        assertEquals(flats.get("first"), restored.getFlatAtLocation(new Location(world, 20, 20, 20)));
+        assertEquals(flats.get("first"), restored.getFlatAtLocation(new Location(otherWorld, 105, 5, 105)));
+        assertEquals(flats.get("second"), restored.getFlatAtLocation(new Location(world, -47, 2, -47)));
+        assertNull(restored.getFlatAtLocation(new Location(world, 60, 5, 60)));
+        assertEquals(2, restored.getAreasIntersecting(world, new BlockBox(-100, 0, -100, 100, 100, 100)).size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void restoredIndexAllowsRemovingFlats(SpatialIndexType type) {
+        save(type);
+        SpatialIndex restored = store.load(flats, type);
+        assertNotNull(restored);
+
+        restored.removeFlat(flats.get("first"));
+
+        assertNull(restored.getFlatAtLocation(new Location(world, 20, 20, 20)));
+        assertNull(restored.getFlatAtLocation(new Location(otherWorld, 105, 5, 105)));
+        assertEquals(flats.get("second"), restored.getFlatAtLocation(new Location(world, -47, 2, -47)));
+    }
+
+    @Test
+    void changedFlatsAreNotRestored() {
+        save(SpatialIndexType.GRID_3D);
+
+        flats.get("second").addArea(TestUtil.createArea(world, "second", 200, 0, 200, 210, 10, 210));
+
+        assertNull(store.load(flats, SpatialIndexType.GRID_3D));
+    }
+
+    @Test
+    void deletedFlatsAreNotRestored() {
+        save(SpatialIndexType.GRID_3D);
+
+        flats.remove("second");
+
+        assertNull(store.load(flats, SpatialIndexType.GRID_3D));
+    }
+
+    @Test
+    void otherIndexTypeIsNotRestored() {
+        save(SpatialIndexType.GRID);
+
+        assertNull(store.load(flats, SpatialIndexType.RTREE));
+    }
+
+    @Test
+    void damagedFileIsNotRestored() throws IOException {
+        save(SpatialIndexType.RTREE);
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 0xFF);
+        }
+
+        assertNull(store.load(flats, SpatialIndexType.RTREE));
+    }
+
+    @Test
+    void contentHashDistinguishesNamesWithEqualHashCodes() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        long first = SpatialIndexStore.contentHash(Map.of("Aa", TestUtil.createFlat(world, "Aa")));
+        long second = SpatialIndexStore.contentHash(Map.of("BB", TestUtil.createFlat(world, "BB")));
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void savedFileCanBeReplacedAfterLoading() {
+        save(SpatialIndexType.GRID);
+        assertNotNull(store.load(flats, SpatialIndexType.GRID));
+
+        save(SpatialIndexType.RTREE);
+
+        assertNotNull(store.load(flats, SpatialIndexType.RTREE));
+    }
+}
@@ -0,0 +1,355 @@
+package de.nvclas.flats.cache;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.BlockBox;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SpatialIndexTest {
+
+    private ServerMock serverMock;
+    private WorldMock world;
+    private WorldMock otherWorld;
+    private SpatialIndex spatialIndex;
+
+    @BeforeEach
+    void setUp() {
+        serverMock = MockBukkit.mock();
+        world = TestUtil.addWorld(serverMock, "world");
+        otherWorld = TestUtil.addWorld(serverMock, "world_nether");
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private Flat createFlat(String name, WorldMock flatWorld, int x1, int y1, int z1, int x2, int y2, int z2) {
+        Flat flat = TestUtil.createFlat(flatWorld, name, x1, y1, z1, x2, y2, z2);
+        spatialIndex.addFlat(flat);
+        return flat;
+    }
+
+    private static Stream<Arguments> pointsInside() {
+        return withAllTypes(new int[]{0, 0, 0}, new int[]{15, 10, 15}, new int[]{16, 20, 16}, new int[]{-1, 5, -1},
+                            new int[]{-17, 5, -17}, new int[]{20, 20, -20});
+    }
+
+    private static Stream<Arguments> pointsOutside() {
+        return withAllTypes(new int[]{21, 0, 0}, new int[]{0, 21, 0}, new int[]{-21, 0, 0}, new int[]{0, 0, -21});
+    }
+
+    private static Stream<Arguments> withAllTypes(int[]... points) {
+        return Arrays.stream(SpatialIndexType.values())
+                .flatMap(type -> Arrays.stream(points).map(point -> Arguments.of(type, point[0], point[1], point[2])));
+    }
+
+    @ParameterizedTest
+    @MethodSource("pointsInside")
+    void getFlatAtLocationInside(SpatialIndexType type, int x, int y, int z) {
+        spatialIndex = type.createIndex();
+        Flat flat = createFlat("flat", world, -20, 0, -20, 20, 20, 20);
+
+        assertEquals(flat, spatialIndex.getFlatAtLocation(new Location(world, x, y, z)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("pointsOutside")
+    void getFlatAtLocationOutside(SpatialIndexType type, int x, int y, int z) {
+        spatialIndex = type.createIndex();
+        createFlat("flat", world, -20, 0, -20, 20, 20, 20);
+
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, x, y, z)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void getFlatAtLocationSeparatesWorlds(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat overworldFlat = createFlat("overworld", world, 0, 0, 0, 10, 10, 10);
+        Flat netherFlat = createFlat("nether", otherWorld, 0, 0, 0, 10, 10, 10);
+
+        assertEquals(overworldFlat, spatialIndex.getFlatAtLocation(new Location(world, 5, 5, 5)));
+        assertEquals(netherFlat, spatialIndex.getFlatAtLocation(new Location(otherWorld, 5, 5, 5)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void getFlatAtLocationStackedFlats(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat[] floors = new Flat[20];
+        for (int floor = 0; floor < floors.length; floor++) {
+            int minY = floor * 5;
+            floors[floor] = createFlat("floor" + floor, world, 0, minY, 0, 10, minY + 4, 10);
+        }
+
+        for (int floor = 0; floor < floors.length; floor++) {
+            assertEquals(floors[floor], spatialIndex.getFlatAtLocation(new Location(world, 5, floor * 5 + 2, 5)));
+        }
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 5, floors.length * 5, 5)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void getFlatAtLocationSectionAlignedFlats(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat covering = createFlat("covering", world, 0, 0, 0, 15, 15, 15);
+        Flat partial = createFlat("partial", world, 16, 0, 0, 20, 15, 15);
+
+        assertEquals(covering, spatialIndex.getFlatAtLocation(new Location(world, 0, 0, 0)));
+        assertEquals(covering, spatialIndex.getFlatAtLocation(new Location(world, 15, 15, 15)));
+        assertEquals(partial, spatialIndex.getFlatAtLocation(new Location(world, 20, 5, 5)));
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 21, 5, 5)));
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 5, 16, 5)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void coveredCellSharedWithPartialArea(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        // The areas overlap, so the section covered by the first one also holds a partial area
+        Flat covering = createFlat("covering", world, 0, 0, 0, 15, 15, 15);
+        Flat partial = createFlat("partial", world, 8, 0, 0, 20, 15, 15);
+
+        assertEquals(covering, spatialIndex.getFlatAtLocation(new Location(world, 2, 5, 5)));
+        assertEquals(partial, spatialIndex.getFlatAtLocation(new Location(world, 20, 5, 5)));
+
+        spatialIndex.removeFlat(covering);
+
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 2, 5, 5)));
+        assertEquals(partial, spatialIndex.getFlatAtLocation(new Location(world, 10, 5, 5)));
+
+        spatialIndex.addFlat(covering);
+
+        assertEquals(covering, spatialIndex.getFlatAtLocation(new Location(world, 2, 5, 5)));
+        assertEquals(partial, spatialIndex.getFlatAtLocation(new Location(world, 20, 5, 5)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void cellGrowsPastInitialCapacity(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat[] columns = new Flat[16];
+        for (int x = 0; x < columns.length; x++) {
+            columns[x] = createFlat("column" + x, world, x, 0, 0, x, 10, 3);
+        }
+
+        for (int x = 0; x < columns.length; x++) {
+            assertEquals(columns[x], spatialIndex.getFlatAtLocation(new Location(world, x, 5, 2)));
+        }
+        BlockBox cell = new BlockBox(0, 0, 0, 15, 15, 15);
+        assertEquals(columns.length, spatialIndex.getAreasIntersecting(world, cell).size());
+
+        for (int x = 0; x < columns.length; x += 2) {
+            spatialIndex.removeFlat(columns[x]);
+        }
+
+        for (int x = 0; x < columns.length; x++) {
+            assertEquals(x % 2 == 0 ? null : columns[x],
+                         spatialIndex.getFlatAtLocation(new Location(world, x, 5, 2)));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void removeFlat(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat flat = createFlat("flat", world, 0, 0, 0, 40, 10, 40);
+        Flat neighbour = createFlat("neighbour", world, 41, 0, 0, 50, 10, 10);
+
+        spatialIndex.removeFlat(flat);
+
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 5, 5, 5)));
+        assertEquals(neighbour, spatialIndex.getFlatAtLocation(new Location(world, 45, 5, 5)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void addAreaAndRemoveFlat(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat flat = createFlat("flat", world, 0, 0, 0, 10, 10, 10);
+        Area secondArea = new Area(new Location(world, 100, 0, 100), new Location(world, 110, 10, 110), "flat");
+        flat.addArea(secondArea);
+        spatialIndex.addArea(flat, secondArea);
+
+        assertEquals(flat, spatialIndex.getFlatAtLocation(new Location(world, 105, 5, 105)));
+
+        spatialIndex.removeFlat(flat);
+
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 5, 5, 5)));
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 105, 5, 105)));
+        assertEquals(List.of(), spatialIndex.getAreasIntersecting(world, new BlockBox(0, 0, 0, 200, 20, 200)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void getAreaAtLocationReturnsContainingArea(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat flat = createFlat("flat", world, 0, 0, 0, 10, 10, 10);
+        Area secondArea = new Area(new Location(world, 11, 0, 0), new Location(world, 20, 10, 10), "flat");
+        flat.addArea(secondArea);
+        spatialIndex.addArea(flat, secondArea);
+
+        IndexedArea indexedArea = spatialIndex.getAreaAtLocation(new Location(world, 15, 5, 5));
+
+        assertEquals(new IndexedArea(secondArea, flat), indexedArea);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void getAreasIntersecting(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat large = createFlat("large", world, 0, 0, 0, 200, 10, 200);
+        Flat small = createFlat("small", world, 300, 0, 300, 305, 5, 305);
+        createFlat("far", world, 1000, 0, 1000, 1010, 10, 1010);
+        createFlat("nether", otherWorld, 0, 0, 0, 400, 10, 400);
+
+        List<Area> areas = spatialIndex.getAreasIntersecting(world, new BlockBox(150, 0, 150, 302, 2, 302));
+
+        assertEquals(2, areas.size());
+        assertEquals(List.of(large.getAreas().getFirst(), small.getAreas().getFirst()),
+                     areas.stream().sorted((a, b) -> Integer.compare(a.getMinX(), b.getMinX())).toList());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void getAreasWithinRadius(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat near = createFlat("near", world, 10, 0, 0, 20, 10, 10);
+        createFlat("far", world, 60, 0, 0, 70, 10, 10);
+
+        List<Area> areas = spatialIndex.getAreasWithinRadius(new Location(world, 0, 5, 5), 30);
+
+        assertEquals(List.of(near.getAreas().getFirst()), areas);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void addFlatsMatchesSingleInsertion(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat existing = createFlat("existing", world, 0, 0, 0, 7, 7, 7);
+        List<Flat> flats = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Area area = new Area(new Location(world, i * 12 + 8, 0, 0), new Location(world, i * 12 + 19, 40, 15),
+                                 "bulk" + i);
+            Flat flat = new Flat("bulk" + i, area);
+            Area netherArea = new Area(new Location(otherWorld, i * 16, 0, 0),
+                                       new Location(otherWorld, i * 16 + 15, 15, 15), "bulk" + i);
+            flat.addArea(netherArea);
+            flats.add(flat);
+        }
+
+        spatialIndex.addFlats(flats);
+
+        assertEquals(existing, spatialIndex.getFlatAtLocation(new Location(world, 3, 3, 3)));
+        for (int i = 0; i < flats.size(); i++) {
+            assertEquals(flats.get(i), spatialIndex.getFlatAtLocation(new Location(world, i * 12 + 10, 20, 5)));
+            assertEquals(flats.get(i), spatialIndex.getFlatAtLocation(new Location(otherWorld, i * 16 + 8, 8, 8)));
+        }
+        assertEquals(11, spatialIndex.getAreasIntersecting(world, new BlockBox(0, 0, 0, 200, 50, 20)).size());
+
+        spatialIndex.removeFlat(flats.getFirst());
+
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 10, 20, 5)));
+        assertNull(spatialIndex.getFlatAtLocation(new Location(otherWorld, 8, 8, 8)));
+        assertEquals(existing, spatialIndex.getFlatAtLocation(new Location(world, 7, 7, 7)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void removeAndAddFlatsOfLargeIndex(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        List<Flat> flats = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            flats.add(TestUtil.createFlat(world, "flat" + i, i * 20, 0, 0, i * 20 + 10, 10, 10));
+        }
+        spatialIndex.addFlats(flats);
+
+        for (int i = 0; i < 400; i += 2) {
+            spatialIndex.removeFlat(flats.get(i));
+        }
+        List<Flat> added = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            added.add(createFlat("added" + i, world, i * 20, 50, 0, i * 20 + 10, 60, 10));
+        }
+
+        for (int i = 0; i < flats.size(); i++) {
+            Flat expected = i < 400 && i % 2 == 0 ? null : flats.get(i);
+            assertEquals(expected, spatialIndex.getFlatAtLocation(new Location(world, i * 20 + 5, 5, 5)));
+        }
+        for (int i = 0; i < added.size(); i++) {
+            assertEquals(added.get(i), spatialIndex.getFlatAtLocation(new Location(world, i * 20 + 5, 55, 5)));
+        }
+        assertEquals(400, spatialIndex.getAreasIntersecting(world, new BlockBox(0, 0, 0, 10_000, 100, 10)).size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void copyIsIndependentOfOriginal(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        Flat removed = TestUtil.createFlat(world, "removed", 0, 0, 0, 10, 10, 10);
+        Flat extended = TestUtil.createFlat(world, "extended", 20, 0, 0, 30, 10, 10);
+        spatialIndex.addFlats(List.of(removed, extended));
+
+        SpatialIndex copy = spatialIndex.copy();
+        copy.removeFlat(removed);
+        Area addedArea = TestUtil.createArea(world, "extended", 40, 0, 0, 50, 10, 10);
+        copy.addArea(extended, addedArea);
+        Flat added = TestUtil.createFlat(world, "added", 60, 0, 0, 70, 10, 10);
+        copy.addFlat(added);
+        Flat addedToOriginal = createFlat("addedToOriginal", world, 80, 0, 0, 90, 10, 10);
+
+        assertEquals(removed, spatialIndex.getFlatAtLocation(new Location(world, 5, 5, 5)));
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 45, 5, 5)));
+        assertNull(spatialIndex.getFlatAtLocation(new Location(world, 65, 5, 5)));
+        assertEquals(addedToOriginal, spatialIndex.getFlatAtLocation(new Location(world, 85, 5, 5)));
+        assertEquals(3, spatialIndex.getAreasIntersecting(world, new BlockBox(0, 0, 0, 100, 10, 10)).size());
+
+        assertNull(copy.getFlatAtLocation(new Location(world, 5, 5, 5)));
+        assertEquals(extended, copy.getFlatAtLocation(new Location(world, 25, 5, 5)));
+        assertEquals(extended, copy.getFlatAtLocation(new Location(world, 45, 5, 5)));
+        assertEquals(added, copy.getFlatAtLocation(new Location(world, 65, 5, 5)));
+        assertNull(copy.getFlatAtLocation(new Location(world, 85, 5, 5)));
+        assertEquals(3, copy.getAreasIntersecting(world, new BlockBox(0, 0, 0, 100, 10, 10)).size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SpatialIndexType.class)
+    void copyOfLargeIndexSharesUnmodifiedParts(SpatialIndexType type) {
+        spatialIndex = type.createIndex();
+        List<Flat> flats = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            flats.add(TestUtil.createFlat(world, "flat" + i, i * 20, 0, 0, i * 20 + 10, 10, 10));
+        }
+        spatialIndex.addFlats(flats);
+
+        SpatialIndex copy = spatialIndex.copy();
+        for (int i = 0; i < flats.size(); i += 100) {
+            copy.removeFlat(flats.get(i));
+        }
+
+        for (int i = 0; i < flats.size(); i++) {
+            Location location = new Location(world, i * 20 + 5, 5, 5);
+            assertEquals(flats.get(i), spatialIndex.getFlatAtLocation(location));
+            assertEquals(i % 100 == 0 ? null : flats.get(i), copy.getFlatAtLocation(location));
+        }
+    }
+}
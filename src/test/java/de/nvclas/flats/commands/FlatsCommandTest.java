@@ -141,7 +141,7 @@ class FlatsCommandTest {
      */
     private Flat createAndClaimFlat() {
         Flat flat = createValidFlat();
-        flat.setOwner(player);
+        flat.setOwner(player.getUniqueId());
         placePlayerInFlat();
         return flat;
     }
@@ -372,7 +372,7 @@ class FlatsCommandTest {
         @DisplayName("Unclaim command removes ownership")
         void unclaimCommand() {
             Flat flat = createValidFlat();
-            flat.setOwner(player);
+            flat.setOwner(player.getUniqueId());
             placePlayerInFlat();
 
             executeCommandWithPermission("flats unclaim", Permissions.CLAIM_FLATS);
@@ -384,7 +384,7 @@ class FlatsCommandTest {
         @DisplayName("Cannot unclaim flat owned by another player")
         void unclaimCommandWithoutOwnership() {
             Flat flat = createValidFlat();
-            flat.setOwner(target);
+            flat.setOwner(target.getUniqueId());
             placePlayerInFlat();
 
             executeCommandWithPermission("flats unclaim", Permissions.CLAIM_FLATS);
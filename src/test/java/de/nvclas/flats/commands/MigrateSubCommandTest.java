@@ -0,0 +1,131 @@
+package de.nvclas.flats.commands;
+
+import de.nvclas.flats.Flats;
+import de.nvclas.flats.cache.FlatsCache;
+import de.nvclas.flats.config.FlatsConfig;
+import de.nvclas.flats.storage.FlatsStorage;
+import de.nvclas.flats.storage.StorageType;
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.util.I18n;
+import de.nvclas.flats.volumes.Flat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.MockBukkitExtension;
+import org.mockbukkit.mockbukkit.MockBukkitInject;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Verifies that {@code /flats migrate} copies the current flats of the cache and never overwrites
+ * changes with an outdated {@code flats.yml}.
+ */
+@ExtendWith(MockBukkitExtension.class)
+class MigrateSubCommandTest {
+
+    @MockBukkitInject
+    private ServerMock server;
+    @MockBukkitInject
+    private Flats plugin;
+    @MockBukkitInject
+    private PlayerMock player;
+    @MockBukkitInject
+    private WorldMock world;
+
+    private final UUID owner = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        player.setOp(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+        if (plugin.getDataFolder().exists() && !plugin.getDataFolder().delete()) {
+            fail("Could not delete plugin data folder.");
+        }
+    }
+
+    /**
+     * Restarts the plugin with the specified storage.
+     */
+    private void switchStorage(StorageType type) {
+        plugin.getSettingsConfig().getConfigFile().set("storage", type.getConfigValue());
+        plugin.getSettingsConfig().saveConfig();
+        server.getPluginManager().disablePlugin(plugin);
+        server.getPluginManager().enablePlugin(plugin);
+    }
+
+    /**
+     * Creates flats in the cache that are newer than the outdated {@code flats.yml} written before.
+     */
+    private void createNewerFlats() {
+        new FlatsConfig(Flats.FLATS_YAML_FILE, plugin).saveFlats(Map.of("flat", TestUtil.createFlat(world, "flat")));
+        FlatsCache flatsCache = plugin.getFlatsCache();
+        flatsCache.create("flat", TestUtil.createArea(world, "flat", 0));
+        flatsCache.getExistingFlat("flat").setOwner(owner);
+        flatsCache.create("newer", TestUtil.createArea(world, "newer", 100));
+    }
+
+    /**
+     * Stops the plugin, which waits for all pending writes, and loads the flats stored in the specified storage.
+     */
+    private Map<String, Flat> loadStoredFlats(StorageType type) {
+        server.getPluginManager().disablePlugin(plugin);
+        FlatsStorage storage = plugin.createFlatsStorage(type);
+        try {
+            return storage.loadFlats();
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void migrationIntoActiveStorageIsRefused() {
+        switchStorage(StorageType.SQLITE);
+        createNewerFlats();
+
+        assertTrue(player.performCommand("flats migrate sqlite"));
+
+        TestUtil.assertEqualMessage(Flats.PREFIX + I18n.translate("migrate.active", Flats.FLATS_DATABASE_FILE),
+                                    player.nextMessage());
+        Map<String, Flat> flats = loadStoredFlats(StorageType.SQLITE);
+        assertEquals(Set.of("flat", "newer"), flats.keySet());
+        assertEquals(owner, flats.get("flat").getOwner());
+    }
+
+    @Test
+    void migrationCopiesChangesNewerThanYaml() {
+        createNewerFlats();
+
+        assertTrue(player.performCommand("flats migrate sqlite"));
+
+        Map<String, Flat> flats = loadStoredFlats(StorageType.SQLITE);
+        assertEquals(Set.of("flat", "newer"), flats.keySet());
+        assertEquals(owner, flats.get("flat").getOwner());
+    }
+
+    @Test
+    void migrationFromSqliteCopiesCurrentFlats() {
+        switchStorage(StorageType.SQLITE);
+        createNewerFlats();
+
+        assertTrue(player.performCommand("flats migrate binary"));
+
+        Map<String, Flat> flats = loadStoredFlats(StorageType.BINARY);
+        assertEquals(Set.of("flat", "newer"), flats.keySet());
+        assertEquals(owner, flats.get("flat").getOwner());
+    }
+}
@@ -0,0 +1,78 @@
+package de.nvclas.flats.config;
+
+import de.nvclas.flats.storage.SaveBatch;
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlatsConfigTest {
+
+    private static final String FILE_NAME = "flats.yml";
+    private static final long LAST_MODIFIED = 1_600_000_000_000L;
+
+    private WorldMock world;
+    private JavaPlugin plugin;
+    private FlatsConfig flatsConfig;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        world = TestUtil.addWorld(MockBukkit.mock(), "world");
+        plugin = MockBukkit.createMockPlugin();
+        Files.deleteIfExists(getFile().toPath());
+        flatsConfig = new FlatsConfig(FILE_NAME, plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private File getFile() {
+        return new File(plugin.getDataFolder(), FILE_NAME);
+    }
+
+    private Flat createFlat(String name) {
+        return TestUtil.createFlat(world, name);
+    }
+
+    @Test
+    void unchangedBatchDoesNotRewriteFile() {
+        assertTrue(flatsConfig.saveFlats(Map.of("flat", createFlat("flat"))));
+        assertTrue(getFile().setLastModified(LAST_MODIFIED));
+
+        assertFalse(flatsConfig.saveBatch(new SaveBatch(Set.of("flat"), List.of(), Set.of())));
+
+        assertEquals(LAST_MODIFIED, getFile().lastModified());
+        assertFalse(flatsConfig.hasUnsavedChanges());
+    }
+
+    @Test
+    void deletedFlatSectionIsRemoved() {
+        Flat deleted = createFlat("deleted");
+        deleted.addTrusted(UUID.randomUUID());
+        flatsConfig.saveFlats(Map.of("kept", createFlat("kept"), "deleted", deleted));
+
+        assertTrue(flatsConfig.saveBatch(new SaveBatch(Set.of("kept"), List.of(), Set.of("deleted"))));
+
+        FlatsConfig reloaded = new FlatsConfig(FILE_NAME, plugin);
+        assertEquals(Set.of("kept"), reloaded.getConfigFile().getConfigurationSection(Paths.FLATS).getKeys(false));
+        assertEquals(Set.of("kept"), reloaded.loadFlats().keySet());
+    }
+}
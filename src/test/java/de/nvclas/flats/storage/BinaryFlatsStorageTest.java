@@ -0,0 +1,150 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFlatsStorageTest {
+
+    private static final String FILE_NAME = "flats.bin";
+
+    private WorldMock world;
+    private JavaPlugin plugin;
+    private BinaryFlatsStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        world = TestUtil.addWorld(MockBukkit.mock(), "world");
+        plugin = MockBukkit.createMockPlugin();
+        Files.deleteIfExists(getFile().toPath());
+        storage = new BinaryFlatsStorage(FILE_NAME, plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private File getFile() {
+        return new File(plugin.getDataFolder(), FILE_NAME);
+    }
+
+    private Area createArea(String flatName, int offset) {
+        return TestUtil.createArea(world, flatName, offset);
+    }
+
+    private Flat createFlat(String name) {
+        return TestUtil.createFlat(world, name);
+    }
+
+    private Map<String, Flat> reload() {
+        return new BinaryFlatsStorage(FILE_NAME, plugin).loadFlats();
+    }
+
+    @Test
+    void savedFlatsAreLoadedAgain() {
+        UUID owner = UUID.randomUUID();
+        UUID trusted = UUID.randomUUID();
+        Flat flat = createFlat("flat");
+        flat.addArea(createArea("flat", -100));
+        flat.setOwner(owner);
+        flat.addTrusted(trusted);
+        Flat unoccupied = createFlat("unoccupied");
+
+        assertTrue(storage.saveFlats(Map.of("flat", flat, "unoccupied", unoccupied)));
+        Map<String, Flat> flats = reload();
+
+        assertEquals(Set.of("flat", "unoccupied"), flats.keySet());
+        Flat loaded = flats.get("flat");
+        assertEquals(owner, loaded.getOwner());
+        assertEquals(Set.of(trusted), loaded.getTrusted());
+        assertEquals(List.of(0, -100), loaded.getAreas().stream().map(Area::getMinX).toList());
+        assertEquals(List.of(-90, 10, 10), List.of(loaded.getAreas().get(1).getMaxX(),
+                                                   loaded.getAreas().get(1).getMaxY(),
+                                                   loaded.getAreas().get(1).getMaxZ()));
+        assertEquals(world.getUID(), loaded.getAreas().get(0).getWorldId());
+        assertNull(flats.get("unoccupied").getOwner());
+        assertFalse(loaded.isDirty());
+    }
+
+    @Test
+    void deletedFlatsAreRemoved() {
+        storage.saveFlats(Map.of("first", createFlat("first"), "second", createFlat("second")));
+
+        assertTrue(storage.saveBatch(new SaveBatch(Set.of("first"), List.of(), Set.of("second"))));
+
+        assertEquals(Set.of("first"), reload().keySet());
+    }
+
+    @Test
+    void unchangedBatchIsNotWritten() {
+        storage.saveFlats(Map.of("flat", createFlat("flat")));
+
+        assertFalse(storage.saveBatch(new SaveBatch(Set.of("flat"), List.of(), Set.of())));
+        assertFalse(storage.hasUnsavedChanges());
+    }
+
+    @Test
+    void savingBeforeLoadingKeepsExistingFlats() {
+        storage.saveFlats(Map.of("first", createFlat("first")));
+
+        BinaryFlatsStorage reopened = new BinaryFlatsStorage(FILE_NAME, plugin);
+        reopened.saveBatch(new SaveBatch(Set.of("first", "second"),
+                                         List.of(FlatSnapshot.of(createFlat("second"))), Set.of()));
+
+        assertEquals(Set.of("first", "second"), reload().keySet());
+    }
+
+    @Test
+    void areasInUnknownWorldsAreSkipped() {
+        WorldMock removedWorld = new WorldMock();
+        removedWorld.setName("removed");
+        Flat flat = createFlat("flat");
+        flat.addArea(new Area(new Location(removedWorld, 0, 0, 0), new Location(removedWorld, 5, 5, 5), "flat"));
+        Flat removed = new Flat("removed", new Area(new Location(removedWorld, 0, 0, 0),
+                                                    new Location(removedWorld, 5, 5, 5), "removed"));
+        storage.saveFlats(Map.of("flat", flat, "removed", removed));
+
+        Map<String, Flat> flats = reload();
+
+        assertEquals(Set.of("flat"), flats.keySet());
+        assertEquals(1, flats.get("flat").getAreas().size());
+        assertTrue(flats.get("flat").isDirty());
+    }
+
+    @Test
+    void damagedSnapshotIsRejected() throws IOException {
+        storage.saveFlats(Map.of("flat", createFlat("flat")));
+        try (RandomAccessFile file = new RandomAccessFile(getFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 0xFF);
+        }
+
+        BinaryFlatsStorage reopened = new BinaryFlatsStorage(FILE_NAME, plugin);
+        assertThrows(IllegalStateException.class, reopened::loadFlats);
+    }
+}
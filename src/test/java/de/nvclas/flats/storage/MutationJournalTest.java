@@ -0,0 +1,179 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MutationJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private WorldMock world;
+    private File journalFile;
+    private MutationJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        world = TestUtil.addWorld(MockBukkit.mock(), "world");
+        journalFile = tempDir.resolve("flats.journal").toFile();
+        journal = openJournal();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+        MockBukkit.unmock();
+    }
+
+    private MutationJournal openJournal() {
+        return new MutationJournal(journalFile, Logger.getLogger("MutationJournalTest"));
+    }
+
+    private Area createArea(String flatName, int offset) {
+        return TestUtil.createArea(world, flatName, offset);
+    }
+
+    private Flat createFlat(String name) {
+        Area area = createArea(name, 0);
+        Flat flat = new Flat(name, area);
+        flat.addListener(journal);
+        journal.recordCreated(name, area);
+        return flat;
+    }
+
+    private Map<String, Flat> reopenAndReplay() {
+        journal.close();
+        journal = openJournal();
+        Map<String, Flat> flats = new HashMap<>();
+        journal.replay(flats);
+        return flats;
+    }
+
+    @Test
+    void replayRestoresAllChanges() {
+        UUID owner = UUID.randomUUID();
+        UUID trusted = UUID.randomUUID();
+        UUID untrusted = UUID.randomUUID();
+        Flat flat = createFlat("flat");
+        flat.addArea(createArea("flat", 100));
+        flat.setOwner(owner);
+        flat.addTrusted(trusted);
+        flat.addTrusted(untrusted);
+        flat.removeTrusted(untrusted);
+        createFlat("deleted");
+        journal.recordDeleted("deleted");
+        journal.flush();
+
+        Map<String, Flat> flats = reopenAndReplay();
+
+        assertEquals(Set.of("flat"), flats.keySet());
+        Flat replayed = flats.get("flat");
+        assertEquals(owner, replayed.getOwner());
+        assertEquals(Set.of(trusted), replayed.getTrusted());
+        assertEquals(List.of(0, 100), replayed.getAreas().stream().map(Area::getMinX).toList());
+        assertTrue(replayed.isDirty());
+    }
+
+    @Test
+    void replayIsIdempotentOnSavedFlats() {
+        Flat flat = createFlat("flat");
+        flat.addArea(createArea("flat", 100));
+        journal.flush();
+
+        Map<String, Flat> flats = new HashMap<>();
+        flats.put("flat", new Flat("flat", null, List.copyOf(flat.getAreas()), List.of()));
+        journal.replay(flats);
+
+        assertEquals(2, flats.get("flat").getAreas().size());
+    }
+
+    @Test
+    void replayIncludesUnflushedRecords() {
+        createFlat("flat").setOwner(UUID.randomUUID());
+
+        Map<String, Flat> flats = new HashMap<>();
+        journal.replay(flats);
+
+        assertEquals(Set.of("flat"), flats.keySet());
+    }
+
+    @Test
+    void replayDiscardsDamagedTail() throws IOException {
+        createFlat("first");
+        journal.flush();
+        long validSize = journalFile.length();
+        createFlat("second");
+        journal.flush();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        Map<String, Flat> flats = reopenAndReplay();
+
+        assertEquals(Set.of("first"), flats.keySet());
+        assertEquals(validSize, journalFile.length());
+    }
+
+    @Test
+    void truncateKeepsRecordsAfterPosition() {
+        Flat flat = createFlat("flat");
+        long position = journal.mark();
+        UUID owner = UUID.randomUUID();
+        flat.setOwner(owner);
+
+        journal.truncate(position);
+
+        Map<String, Flat> flats = new HashMap<>();
+        flats.put("flat", new Flat("flat", null, List.copyOf(flat.getAreas()), List.of()));
+        journal.replay(flats);
+        assertEquals(owner, flats.get("flat").getOwner());
+        assertEquals(journal.mark() - position, journal.size());
+    }
+
+    @Test
+    void truncateToMarkEmptiesJournal() {
+        createFlat("flat").setOwner(UUID.randomUUID());
+
+        journal.truncate(journal.mark());
+
+        assertEquals(0, journal.size());
+        assertEquals(0, journalFile.length());
+        assertTrue(reopenAndReplay().isEmpty());
+    }
+
+    @Test
+    void replaySkipsAreasInUnknownWorlds() {
+        WorldMock removedWorld = new WorldMock();
+        removedWorld.setName("removed");
+        Area area = new Area(new Location(removedWorld, 0, 0, 0), new Location(removedWorld, 5, 5, 5), "flat");
+        journal.recordCreated("flat", area);
+        journal.flush();
+
+        Map<String, Flat> flats = reopenAndReplay();
+
+        assertNull(flats.get("flat"));
+    }
+}
@@ -0,0 +1,74 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SaveBatchTest {
+
+    private WorldMock world;
+
+    @BeforeEach
+    void setUp() {
+        world = TestUtil.addWorld(MockBukkit.mock(), "world");
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private Area createArea(String flatName) {
+        return TestUtil.createArea(world, flatName, 0);
+    }
+
+    @Test
+    void captureCopiesOnlyDirtyFlats() {
+        Flat created = new Flat("created", createArea("created"));
+        Flat loaded = new Flat("loaded", null, List.of(createArea("loaded")), List.of());
+
+        SaveBatch batch = SaveBatch.capture(Map.of("created", created, "loaded", loaded));
+
+        assertEquals(Set.of("created", "loaded"), batch.flatNames());
+        assertEquals(List.of(FlatSnapshot.of(created)), batch.changedFlats());
+        assertFalse(created.isDirty());
+    }
+
+    @Test
+    void captureKeepsDeletedFlats() {
+        Flat flat = new Flat("flat", createArea("flat"));
+
+        SaveBatch batch = SaveBatch.capture(Map.of("flat", flat), Set.of("deleted"));
+
+        assertEquals(Set.of("deleted"), batch.deletedFlats());
+        assertEquals(Set.of(), SaveBatch.capture(Map.of("flat", flat)).deletedFlats());
+    }
+
+    @Test
+    void snapshotIsUnaffectedByLaterChanges() {
+        UUID owner = UUID.randomUUID();
+        Flat flat = new Flat("flat", owner, List.of(createArea("flat")), List.of());
+        flat.setOwner(owner);
+
+        FlatSnapshot snapshot = SaveBatch.capture(Map.of("flat", flat)).changedFlats().getFirst();
+        flat.setOwner(null);
+        flat.addArea(createArea("flat"));
+
+        assertEquals(owner, snapshot.owner());
+        assertEquals(1, snapshot.areas().size());
+        assertEquals(List.of(), snapshot.trusted());
+    }
+}
@@ -0,0 +1,165 @@
+package de.nvclas.flats.storage;
+
+import de.nvclas.flats.testutil.TestUtil;
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqliteFlatsStorageTest {
+
+    private static final String FILE_NAME = "flats.db";
+
+    private ServerMock serverMock;
+    private WorldMock world;
+    private JavaPlugin plugin;
+    private SqliteFlatsStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverMock = MockBukkit.mock();
+        world = TestUtil.addWorld(serverMock, "world");
+        plugin = MockBukkit.createMockPlugin();
+        for (String suffix : List.of("", "-wal", "-shm")) {
+            Files.deleteIfExists(new File(plugin.getDataFolder(), FILE_NAME + suffix).toPath());
+        }
+        storage = new SqliteFlatsStorage(FILE_NAME, plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+        MockBukkit.unmock();
+    }
+
+    private Area createArea(String flatName, int offset) {
+        return TestUtil.createArea(world, flatName, offset);
+    }
+
+    private Flat createFlat(String name) {
+        return TestUtil.createFlat(world, name);
+    }
+
+    private Map<String, Flat> reload() {
+        SqliteFlatsStorage reopened = new SqliteFlatsStorage(FILE_NAME, plugin);
+        try {
+            return reopened.loadFlats();
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void savedFlatsAreLoadedAgain() {
+        UUID owner = UUID.randomUUID();
+        UUID trusted = UUID.randomUUID();
+        Flat flat = createFlat("flat");
+        flat.addArea(createArea("flat", -100));
+        flat.setOwner(owner);
+        flat.addTrusted(trusted);
+        Flat unoccupied = createFlat("unoccupied");
+
+        assertTrue(storage.saveFlats(Map.of("flat", flat, "unoccupied", unoccupied)));
+        Map<String, Flat> flats = reload();
+
+        assertEquals(Set.of("flat", "unoccupied"), flats.keySet());
+        Flat loaded = flats.get("flat");
+        assertEquals(owner, loaded.getOwner());
+        assertEquals(Set.of(trusted), loaded.getTrusted());
+        assertEquals(List.of(0, -100), loaded.getAreas().stream().map(Area::getMinX).toList());
+        assertEquals(List.of(-90, 10, 10), List.of(loaded.getAreas().get(1).getMaxX(),
+                                                   loaded.getAreas().get(1).getMaxY(),
+                                                   loaded.getAreas().get(1).getMaxZ()));
+        assertEquals(world.getUID(), loaded.getAreas().get(0).getWorldId());
+        assertNull(flats.get("unoccupied").getOwner());
+        assertFalse(loaded.isDirty());
+    }
+
+    @Test
+    void changedFlatsAreUpdated() {
+        Flat flat = createFlat("flat");
+        flat.addArea(createArea("flat", 100));
+        flat.addTrusted(UUID.randomUUID());
+        storage.saveFlats(Map.of("flat", flat));
+
+        Flat changed = createFlat("flat");
+        UUID owner = UUID.randomUUID();
+        changed.setOwner(owner);
+        assertTrue(storage.saveBatch(new SaveBatch(Set.of("flat"), List.of(FlatSnapshot.of(changed)), Set.of())));
+
+        Flat loaded = reload().get("flat");
+        assertEquals(owner, loaded.getOwner());
+        assertEquals(1, loaded.getAreas().size());
+        assertEquals(Set.of(), loaded.getTrusted());
+    }
+
+    @Test
+    void deletedFlatsAreRemoved() {
+        storage.saveFlats(Map.of("first", createFlat("first"), "second", createFlat("second")));
+
+        assertTrue(storage.saveBatch(new SaveBatch(Set.of("first"), List.of(), Set.of("second"))));
+
+        assertEquals(Set.of("first"), reload().keySet());
+    }
+
+    @Test
+    void unchangedBatchIsNotWritten() {
+        storage.saveFlats(Map.of("flat", createFlat("flat")));
+
+        assertFalse(storage.saveBatch(new SaveBatch(Set.of("flat"), List.of(), Set.of())));
+        assertFalse(storage.hasUnsavedChanges());
+    }
+
+    @Test
+    void importReplacesAllFlats() {
+        storage.saveFlats(Map.of("first", createFlat("first"), "second", createFlat("second")));
+
+        assertTrue(storage.importFlats(List.of(FlatSnapshot.of(createFlat("second")),
+                                               FlatSnapshot.of(createFlat("third")))));
+
+        assertEquals(Set.of("second", "third"), reload().keySet());
+    }
+
+    @Test
+    void areasInUnknownWorldsAreSkipped() {
+        WorldMock removedWorld = new WorldMock();
+        removedWorld.setName("removed");
+        Flat flat = createFlat("flat");
+        flat.addArea(TestUtil.createArea(removedWorld, "flat", 0));
+        Flat removed = TestUtil.createFlat(removedWorld, "removed");
+        storage.saveFlats(Map.of("flat", flat, "removed", removed));
+
+        SqliteFlatsStorage reopened = new SqliteFlatsStorage(FILE_NAME, plugin);
+        Map<String, Flat> flats = reopened.loadFlats();
+
+        assertEquals(Set.of("flat"), flats.keySet());
+        assertEquals(1, flats.get("flat").getAreas().size());
+        assertTrue(flats.get("flat").isDirty());
+
+        assertTrue(reopened.saveFlats(flats));
+        reopened.close();
+
+        TestUtil.addWorld(serverMock, "removed");
+        Map<String, Flat> saved = reload();
+        assertEquals(Set.of("flat"), saved.keySet());
+        assertEquals(List.of(world.getUID()), saved.get("flat").getAreas().stream().map(Area::getWorldId).toList());
+    }
+}
@@ -1,7 +1,13 @@
 package de.nvclas.flats.testutil;
 
+import de.nvclas.flats.volumes.Area;
+import de.nvclas.flats.volumes.Flat;
 import lombok.experimental.UtilityClass;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.junit.jupiter.api.Assertions;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
 
 /**
  * Utility class providing helper methods for testing Minecraft-specific functionality.
@@ -23,4 +29,65 @@ public class TestUtil {
         Assertions.assertEquals(expected, actual);
     }
 
+    /**
+     * Creates a world with the given name and adds it to the mocked server.
+     *
+     * @param server The mocked server
+     * @param name   The name of the world
+     * @return The added world
+     */
+    public static WorldMock addWorld(ServerMock server, String name) {
+        WorldMock world = new WorldMock();
+        world.setName(name);
+        server.addWorld(world);
+        return world;
+    }
+
+    /**
+     * Creates an area of a flat spanning the blocks between two corners.
+     *
+     * @param world    The world of the area
+     * @param flatName The name of the flat the area belongs to
+     * @return The created area
+     */
+    public static Area createArea(World world, String flatName, int x1, int y1, int z1, int x2, int y2, int z2) {
+        return new Area(new Location(world, x1, y1, z1), new Location(world, x2, y2, z2), flatName);
+    }
+
+    /**
+     * Creates an area of 11x11x11 blocks whose minimum corner lies at the given X coordinate and {@code 0}
+     * on the other axes.
+     *
+     * @param world    The world of the area
+     * @param flatName The name of the flat the area belongs to
+     * @param offset   The X coordinate of the minimum corner
+     * @return The created area
+     */
+    public static Area createArea(World world, String flatName, int offset) {
+        return createArea(world, flatName, offset, 0, 0, offset + 10, 10, 10);
+    }
+
+    /**
+     * Creates an unoccupied flat consisting of a single area spanning the blocks between two corners.
+     *
+     * @param world The world of the flat
+     * @param name  The name of the flat
+     * @return The created flat
+     */
+    public static Flat createFlat(World world, String name, int x1, int y1, int z1, int x2, int y2, int z2) {
+        return new Flat(name, createArea(world, name, x1, y1, z1, x2, y2, z2));
+    }
+
+    /**
+     * Creates an unoccupied flat consisting of the area created by {@link #createArea(World, String, int)}
+     * with offset {@code 0}.
+     *
+     * @param world The world of the flat
+     * @param name  The name of the flat
+     * @return The created flat
+     */
+    public static Flat createFlat(World world, String name) {
+        return new Flat(name, createArea(world, name, 0));
+    }
+
 }
@@ -1,6 +1,7 @@
 package de.nvclas.flats.util;
 
 
+import de.nvclas.flats.volumes.BlockBox;
 import org.bukkit.Location;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -58,4 +59,16 @@ class LocationConverterTest {
                                                                                                          location2));
         assertEquals("First position has no world reference", exception.getMessage());
     }
+
+    @Test
+    void getBoundsFromString() {
+        assertEquals(new BlockBox(-4, 2, 3, 1, 5, 6), LocationConverter.getBoundsFromString("world:1,5,3;-4,2,6"));
+        assertEquals("world", LocationConverter.getWorldNameFromString("world:1,5,3;-4,2,6"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"'world:1,2,3;4,5'", "'world:1,2,x;4,5,6'", "'1,2,3,4,5,6'"})
+    void getBoundsFromInvalidString(String locationString) {
+        assertThrows(IllegalArgumentException.class, () -> LocationConverter.getBoundsFromString(locationString));
+    }
 }
@@ -0,0 +1,73 @@
+package de.nvclas.flats.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidSetTest {
+
+    private static List<UUID> createUuids(int count) {
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+        return uuids;
+    }
+
+    @Test
+    void addIgnoresDuplicatesAndKeepsOrder() {
+        List<UUID> uuids = createUuids(10);
+        UuidSet set = new UuidSet();
+
+        for (UUID uuid : uuids) {
+            assertTrue(set.add(uuid));
+        }
+        assertFalse(set.add(new UUID(uuids.get(3).getMostSignificantBits(), uuids.get(3).getLeastSignificantBits())));
+
+        assertEquals(uuids, new ArrayList<>(set));
+        assertEquals(uuids.getLast(), set.getLast());
+    }
+
+    @Test
+    void containsComparesValues() {
+        UUID uuid = UUID.randomUUID();
+        UuidSet set = new UuidSet(List.of(uuid));
+
+        assertTrue(set.contains(UUID.fromString(uuid.toString())));
+        assertFalse(set.contains(UUID.randomUUID()));
+        assertFalse(set.contains(uuid.toString()));
+    }
+
+    @Test
+    void removeKeepsRemainingOrder() {
+        List<UUID> uuids = createUuids(5);
+        UuidSet set = new UuidSet(uuids);
+
+        assertTrue(set.remove(uuids.get(1)));
+        assertFalse(set.remove(uuids.get(1)));
+
+        assertEquals(List.of(uuids.get(0), uuids.get(2), uuids.get(3), uuids.get(4)), new ArrayList<>(set));
+    }
+
+    @Test
+    void iteratorRemove() {
+        List<UUID> uuids = createUuids(4);
+        UuidSet set = new UuidSet(uuids);
+
+        Iterator<UUID> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().equals(uuids.get(2))) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(List.of(uuids.get(2)), new ArrayList<>(set));
+    }
+}